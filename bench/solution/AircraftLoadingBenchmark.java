@@ -0,0 +1,99 @@
+package solution;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import baseclasses.Aircraft;
+import baseclasses.DataLoadingException;
+
+/**
+ * Compares the memory-mapped AircraftDAO.loadAircraftData() with the BufferedReader and
+ * String.split() loader it replaced, on a synthetic fleet file (1,000,000 rows by default).
+ * The old loader printed a line per aircraft; that is left out of the baseline, as the DAO no
+ * longer prints anything, so the comparison is of parsing alone
+ *
+ * Pass -p rows=... to JMH to override the default size
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AircraftLoadingBenchmark {
+
+	@Param("1000000")
+	public int rows;
+
+	private Path file;
+
+	@Setup
+	public void writeFile() throws IOException {
+
+		file = Files.createTempFile("aircraft-" + rows + "-", ".csv");
+		SyntheticData.writeAircraft(file, rows, 42);
+	}
+
+	@TearDown
+	public void deleteFile() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public List<Aircraft> bufferedReaderAndSplit() {
+		return legacyLoad(file);
+	}
+
+	@Benchmark
+	public AircraftDAO memoryMappedReader() throws DataLoadingException {
+
+		AircraftDAO dao = new AircraftDAO();
+		dao.loadAircraftData(file);
+		return dao;
+	}
+
+	//the loader AircraftDAO used before it was switched to MappedCsvReader, without its println
+	private static List<Aircraft> legacyLoad(Path p) {
+
+		List<Aircraft> aircraft = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(p)) {
+			String line = reader.readLine();
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split(",");
+
+				Aircraft a = new Aircraft();
+				a.setTailCode(fields[0]);
+				a.setTypeCode(fields[2]);
+				a.setSeats(Integer.parseInt(fields[5]));
+				a.setCabinCrewRequired(Integer.parseInt(fields[6]));
+				a.setManufacturer(Aircraft.Manufacturer.valueOf(fields[3].toUpperCase()));
+				a.setModel(fields[1]);
+				a.setStartingPosition(fields[4]);
+				aircraft.add(a);
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return aircraft;
+	}
+
+}
@@ -0,0 +1,145 @@
+package solution;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import baseclasses.Aircraft;
+import baseclasses.CabinCrew;
+import baseclasses.Crew;
+import baseclasses.DataLoadingException;
+import baseclasses.Pilot;
+import baseclasses.Route;
+import baseclasses.Schedule;
+
+/**
+ * Measures how much garbage the DAOs' getAll methods make, by running the same work against the
+ * DAOs, which hand every caller the same read-only list, and against subclasses that copy the
+ * list on every call as the DAOs used to. The work is a round of getAll calls, building a four
+ * week schedule on the full data set, and a few seconds of improving it. Run it with JMH's
+ * -prof gc, which reports the bytes allocated per call and the collections and time spent in them
+ *
+ * Run from the project root, optionally passing -p seconds=... for the seconds to improve each
+ * schedule for
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class AllocationBenchmark {
+
+	private static final LocalDate START = LocalDate.of(2020, 7, 1);
+	private static final int HORIZON = 28;
+
+	@Param({"true", "false"})
+	public boolean copying;
+
+	@Param("3")
+	public double seconds;
+
+	private AircraftDAO aircraft;
+	private CrewDAO crew;
+	private RouteDAO routes;
+	private PassengerNumbersDAO passengers;
+
+	@Setup
+	public void load() throws DataLoadingException {
+
+		aircraft = copying ? new CopyingAircraftDAO() : new AircraftDAO();
+		crew = copying ? new CopyingCrewDAO() : new CrewDAO();
+		routes = copying ? new CopyingRouteDAO() : new RouteDAO();
+		passengers = new PassengerNumbersDAO();
+		aircraft.loadAircraftData(Paths.get("./data/aircraft.csv"));
+		crew.loadCrewData(Paths.get("./data/crew.json"));
+		routes.loadRouteData(Paths.get("./data/routes.xml"));
+		try {
+			passengers.loadPassengerNumbersData(Paths.get("./data/passengernumbers.db"));
+		}
+		catch (DataLoadingException e) {
+			System.out.println("No passenger numbers (" + e.getCause() + "), scheduling without forecasts");
+		}
+	}
+
+	private Schedule schedule(Duration timeLimit) {
+
+		Scheduler scheduler = new Scheduler();
+		scheduler.setTimeLimit(timeLimit);
+		scheduler.setSeed(42);
+		return scheduler.generateSchedule(aircraft, crew, routes, passengers, START, START.plusDays(HORIZON));
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@Warmup(iterations = 3)
+	@Measurement(iterations = 5)
+	public int getAll() {
+		return aircraft.getAllAircraft().size() + crew.getAllCrew().size() + crew.getAllPilots().size() + routes.getAllRoutes().size();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 3)
+	public Schedule schedule() {
+		return schedule(Duration.ZERO);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 3)
+	public Schedule improvedSchedule() {
+		return schedule(Duration.ofMillis((long) (seconds * 1000)));
+	}
+
+	//the DAOs as they were, copying the whole list for every caller
+
+	private static final class CopyingAircraftDAO extends AircraftDAO {
+
+		@Override
+		public List<Aircraft> getAllAircraft() {
+			return new ArrayList<>(super.getAllAircraft());
+		}
+	}
+
+	private static final class CopyingCrewDAO extends CrewDAO {
+
+		@Override
+		public List<CabinCrew> getAllCabinCrew() {
+			return new ArrayList<>(super.getAllCabinCrew());
+		}
+
+		@Override
+		public List<Pilot> getAllPilots() {
+			return new ArrayList<>(super.getAllPilots());
+		}
+
+		@Override
+		public List<Crew> getAllCrew() {
+			return new ArrayList<>(super.getAllCrew());
+		}
+	}
+
+	private static final class CopyingRouteDAO extends RouteDAO {
+
+		@Override
+		public List<Route> getAllRoutes() {
+			return new ArrayList<>(super.getAllRoutes());
+		}
+	}
+
+}
@@ -0,0 +1,370 @@
+package solution;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import baseclasses.Aircraft;
+import baseclasses.Crew;
+import baseclasses.DataLoadingException;
+import baseclasses.QualityScoreCalculator;
+import baseclasses.Route;
+import baseclasses.Schedule;
+
+/**
+ * Runs every benchmark of the DAOs and the scheduler on data sets of increasing size: the mini
+ * and full data sets in ./data, and synthetic data sets with ten and a hundred times the routes,
+ * fleet and crew of the full one, written to a temporary directory by SyntheticData. For each it
+ * times loading each DAO, each finder method over a spread of keys, and building a schedule for
+ * one day, one week and four weeks, printing each schedule's quality score
+ *
+ * Run from the project root, optionally passing -p set=... to choose data sets from mini, full,
+ * 10x and 100x. Passenger numbers need the SQLite JDBC driver on the classpath; without it their
+ * loading fails and schedules are scored without forecasts. Horizons with more flights than
+ * MAX_FLIGHTS fail straight away rather than being timed, as building them takes minutes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BenchmarkSuite {
+
+	private static final int MAX_FLIGHTS = 5_000;
+	private static final LocalDate START = LocalDate.of(2020, 7, 1);
+
+	@Param({"mini", "full", "10x", "100x"})
+	public String set;
+
+	private Path synthetic;
+	private Path aircraftFile;
+	private Path crewFile;
+	private Path routesFile;
+	private Path passengersFile;
+
+	private AircraftDAO aircraft;
+	private CrewDAO crew;
+	private RouteDAO routes;
+	private PassengerNumbersDAO passengers;
+
+	//keys taken from the data, cycled through so most queries find something
+	private String[] tailCodes;
+	private int[] seats;
+	private String[] positions;
+	private String[] types;
+	private Aircraft.Manufacturer[] manufacturers;
+	private String[] homeBases;
+	private String[] ratings;
+	private String[] airports;
+	private String[] days;
+	private int[] flightNumbers;
+	private int next;
+
+	//the last schedule built, whose quality is printed at the end of the iteration
+	private Schedule built;
+
+	/**
+	 * How far ahead the schedule benchmark builds
+	 */
+	@State(Scope.Benchmark)
+	public static class Horizon {
+
+		@Param({"1", "7", "28"})
+		public int days;
+
+		//the flights to allocate, counted by the first run, as a schedule is built
+		int flights = -1;
+	}
+
+	@Setup
+	public void load() throws IOException, DataLoadingException {
+
+		Path dir;
+		switch (set) {
+		case "mini":
+			dir = Paths.get("./data");
+			aircraftFile = dir.resolve("mini_aircraft.csv");
+			crewFile = dir.resolve("mini_crew.json");
+			routesFile = dir.resolve("mini_routes.xml");
+			passengersFile = dir.resolve("mini_passengers.db");
+			break;
+		case "full":
+			dir = Paths.get("./data");
+			aircraftFile = dir.resolve("aircraft.csv");
+			crewFile = dir.resolve("crew.json");
+			routesFile = dir.resolve("routes.xml");
+			passengersFile = dir.resolve("passengernumbers.db");
+			break;
+		case "10x":
+		case "100x":
+			int scale = Integer.parseInt(set.substring(0, set.length() - 1));
+			synthetic = Files.createTempDirectory("synthetic-" + set + "-");
+			SyntheticData.writeDataSet(synthetic, scale, 42);
+			aircraftFile = synthetic.resolve("aircraft.csv");
+			crewFile = synthetic.resolve("crew.json");
+			routesFile = synthetic.resolve("routes.xml");
+			passengersFile = synthetic.resolve("passengernumbers.db");
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown data set " + set + ", expected mini, full, 10x or 100x");
+		}
+
+		aircraft = new AircraftDAO();
+		crew = new CrewDAO();
+		routes = new RouteDAO();
+		passengers = new PassengerNumbersDAO();
+		aircraft.loadAircraftData(aircraftFile);
+		crew.loadCrewData(crewFile);
+		routes.loadRouteData(routesFile);
+		try {
+			passengers.loadPassengerNumbersData(passengersFile);
+		}
+		catch (DataLoadingException e) {
+			System.out.println("No passenger numbers (" + e.getCause() + "), scheduling without forecasts");
+		}
+
+		List<Aircraft> fleet = aircraft.getAllAircraft();
+		List<Crew> everyone = crew.getAllCrew();
+		List<Route> timetable = routes.getAllRoutes();
+		tailCodes = fleet.stream().map(Aircraft::getTailCode).toArray(String[]::new);
+		seats = fleet.stream().mapToInt(Aircraft::getSeats).toArray();
+		positions = fleet.stream().map(Aircraft::getStartingPosition).toArray(String[]::new);
+		types = fleet.stream().map(Aircraft::getTypeCode).toArray(String[]::new);
+		manufacturers = Aircraft.Manufacturer.values();
+		homeBases = everyone.stream().map(Crew::getHomeBase).toArray(String[]::new);
+		ratings = everyone.stream().map(c -> c.getTypeRatings().get(0)).toArray(String[]::new);
+		airports = timetable.stream().map(Route::getDepartureAirportCode).toArray(String[]::new);
+		days = timetable.stream().map(Route::getDayOfWeek).toArray(String[]::new);
+		flightNumbers = timetable.stream().mapToInt(Route::getFlightNumber).toArray();
+	}
+
+	@TearDown(Level.Iteration)
+	public void printQuality() {
+
+		if (built != null) {
+			long score = new QualityScoreCalculator(aircraft, crew, passengers, built).calculateQualityScore();
+			System.out.printf("%n    %,d of %,d flights completed, quality score %,d%n", built.getCompletedAllocations().size(),
+					built.getCompletedAllocations().size() + built.getRemainingAllocations().size(), score);
+			built = null;
+		}
+	}
+
+	@TearDown
+	public void deleteSynthetic() throws IOException {
+
+		if (synthetic == null) {
+			return;
+		}
+		List<Path> paths = new ArrayList<>();
+		try (Stream<Path> walk = Files.walk(synthetic)) {
+			walk.forEach(paths::add);
+		}
+		paths.sort(Comparator.reverseOrder());
+		for (Path p : paths) {
+			Files.deleteIfExists(p);
+		}
+	}
+
+	//the index of the next key to query with, in an array of keys of the given length
+	private int next(int length) {
+		return (next++ & Integer.MAX_VALUE) % length;
+	}
+
+	//loading, one DAO at a time
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public AircraftDAO loadAircraft() throws DataLoadingException {
+
+		AircraftDAO dao = new AircraftDAO();
+		dao.loadAircraftData(aircraftFile);
+		return dao;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public CrewDAO loadCrew() throws DataLoadingException {
+
+		CrewDAO dao = new CrewDAO();
+		dao.loadCrewData(crewFile);
+		return dao;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public RouteDAO loadRoutes() throws DataLoadingException {
+
+		RouteDAO dao = new RouteDAO();
+		dao.loadRouteData(routesFile);
+		return dao;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public PassengerNumbersDAO loadPassengerNumbers() throws DataLoadingException {
+
+		PassengerNumbersDAO dao = new PassengerNumbersDAO();
+		dao.loadPassengerNumbersData(passengersFile);
+		return dao;
+	}
+
+	//queries
+
+	@Benchmark
+	public Aircraft findAircraftByTailCode() {
+		return aircraft.findAircraftByTailCode(tailCodes[next(tailCodes.length)]);
+	}
+
+	@Benchmark
+	public List<Aircraft> findAircraftBySeats() {
+		return aircraft.findAircraftBySeats(seats[next(seats.length)]);
+	}
+
+	@Benchmark
+	public List<Aircraft> findAircraftByStartingPosition() {
+		return aircraft.findAircraftByStartingPosition(positions[next(positions.length)]);
+	}
+
+	@Benchmark
+	public List<Aircraft> findAircraftByType() {
+		return aircraft.findAircraftByType(types[next(types.length)]);
+	}
+
+	@Benchmark
+	public List<Aircraft> findAircraftByManufacturer() {
+		return aircraft.findAircraftByManufacturer(manufacturers[next(manufacturers.length)]);
+	}
+
+	@Benchmark
+	public List<Aircraft> getAllAircraft() {
+		return aircraft.getAllAircraft();
+	}
+
+	@Benchmark
+	public Object findPilotsByHomeBase() {
+		return crew.findPilotsByHomeBase(homeBases[next(homeBases.length)]);
+	}
+
+	@Benchmark
+	public Object findPilotsByTypeRating() {
+		return crew.findPilotsByTypeRating(ratings[next(ratings.length)]);
+	}
+
+	@Benchmark
+	public Object findPilotsByHomeBaseAndTypeRating() {
+
+		int i = next(Integer.MAX_VALUE);
+		return crew.findPilotsByHomeBaseAndTypeRating(ratings[i % ratings.length], homeBases[i % homeBases.length]);
+	}
+
+	@Benchmark
+	public Object findCabinCrewByHomeBase() {
+		return crew.findCabinCrewByHomeBase(homeBases[next(homeBases.length)]);
+	}
+
+	@Benchmark
+	public Object findCabinCrewByTypeRating() {
+		return crew.findCabinCrewByTypeRating(ratings[next(ratings.length)]);
+	}
+
+	@Benchmark
+	public Object findCabinCrewByHomeBaseAndTypeRating() {
+
+		int i = next(Integer.MAX_VALUE);
+		return crew.findCabinCrewByHomeBaseAndTypeRating(ratings[i % ratings.length], homeBases[i % homeBases.length]);
+	}
+
+	@Benchmark
+	public Object getAllPilots() {
+		return crew.getAllPilots();
+	}
+
+	@Benchmark
+	public Object getAllCabinCrew() {
+		return crew.getAllCabinCrew();
+	}
+
+	@Benchmark
+	public Object getAllCrew() {
+		return crew.getAllCrew();
+	}
+
+	@Benchmark
+	public List<Route> findRoutesByDayOfWeek() {
+		return routes.findRoutesByDayOfWeek(days[next(days.length)]);
+	}
+
+	@Benchmark
+	public List<Route> findRoutesDepartingAirport() {
+		return routes.findRoutesDepartingAirport(airports[next(airports.length)]);
+	}
+
+	@Benchmark
+	public List<Route> findRoutesByDepartureAirportAndDay() {
+
+		int i = next(Integer.MAX_VALUE);
+		return routes.findRoutesByDepartureAirportAndDay(airports[i % airports.length], days[i % days.length]);
+	}
+
+	@Benchmark
+	public List<Route> findRoutesbyDate() {
+		return routes.findRoutesbyDate(START.plusDays(next(7)));
+	}
+
+	@Benchmark
+	public List<Route> getAllRoutes() {
+		return routes.getAllRoutes();
+	}
+
+	@Benchmark
+	public int getPassengerNumbersFor() {
+
+		int i = next(Integer.MAX_VALUE);
+		return passengers.getPassengerNumbersFor(flightNumbers[i % flightNumbers.length], START.plusDays(i % 28));
+	}
+
+	//building a schedule without improving it
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 3)
+	public Schedule schedule(Horizon horizon) {
+
+		LocalDate end = START.plusDays(horizon.days);
+		if (horizon.flights < 0) {
+			horizon.flights = new Schedule(routes, START, end).getRemainingAllocations().size();
+		}
+		if (horizon.flights > MAX_FLIGHTS) {
+			throw new IllegalStateException("Skipped, as " + horizon.flights + " flights would take minutes to build");
+		}
+		Scheduler scheduler = new Scheduler();
+		scheduler.setTimeLimit(Duration.ZERO);
+		built = scheduler.generateSchedule(aircraft, crew, routes, passengers, START, end);
+		return built;
+	}
+
+}
@@ -0,0 +1,96 @@
+package solution;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import baseclasses.Crew;
+import baseclasses.DataLoadingException;
+import baseclasses.ICrewDAO;
+import baseclasses.IRouteDAO;
+import baseclasses.Pilot;
+import baseclasses.Route;
+
+/**
+ * Compares repeating the scheduler's kind of crew and route queries against the DAOs with
+ * repeating them through the caching DAOs wrapped round them, then prints how the caches did
+ *
+ * Run from the project root
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CachingBenchmark {
+
+	private static final String[] DAYS = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+
+	@Param({"false", "true"})
+	public boolean cached;
+
+	private ICrewDAO crew;
+	private IRouteDAO routes;
+	private String[] homeBases;
+	private String[] typeRatings;
+	private String[] airports;
+	private int next;
+
+	@Setup
+	public void load() throws DataLoadingException {
+
+		CrewDAO crewDAO = new CrewDAO();
+		RouteDAO routeDAO = new RouteDAO();
+		crewDAO.loadCrewData(Paths.get("./data/crew.json"));
+		routeDAO.loadRouteData(Paths.get("./data/routes.xml"));
+		crew = cached ? new CachingCrewDAO(crewDAO) : crewDAO;
+		routes = cached ? new CachingRouteDAO(routeDAO) : routeDAO;
+
+		homeBases = crewDAO.getAllCrew().stream().map(Crew::getHomeBase).distinct().toArray(String[]::new);
+		typeRatings = crewDAO.getAllPilots().stream().flatMap(p -> p.getTypeRatings().stream()).distinct().toArray(String[]::new);
+		airports = routeDAO.getAllRoutes().stream().map(Route::getDepartureAirportCode).distinct().toArray(String[]::new);
+	}
+
+	@TearDown
+	public void printStatistics() {
+
+		if (cached) {
+			System.out.println();
+			System.out.println(((CachingCrewDAO) crew).getStatistics());
+			System.out.println(((CachingRouteDAO) routes).getStatistics());
+		}
+	}
+
+	@Benchmark
+	public List<Pilot> findPilotsByHomeBaseAndTypeRating() {
+
+		int i = next++ & Integer.MAX_VALUE;
+		return crew.findPilotsByHomeBaseAndTypeRating(typeRatings[i % typeRatings.length], homeBases[i % homeBases.length]);
+	}
+
+	@Benchmark
+	public List<Route> findRoutesByDepartureAirportAndDay() {
+
+		int i = next++ & Integer.MAX_VALUE;
+		return routes.findRoutesByDepartureAirportAndDay(airports[i % airports.length], DAYS[i % DAYS.length]);
+	}
+
+	@Benchmark
+	public List<Crew> getAllCrew() {
+		return crew.getAllCrew();
+	}
+
+}
@@ -0,0 +1,129 @@
+package solution;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import baseclasses.Crew;
+import baseclasses.DataLoadingException;
+import baseclasses.Route;
+
+/**
+ * Measures how many crew and route queries a number of threads sharing the same DAOs can answer,
+ * first on their own and then while another thread reloads the crew and routes over and over.
+ * Each reader checks every answer against the full data set, and the run fails at the end if a
+ * reader ever saw the DAOs empty or part way through a load
+ *
+ * Run from the project root, optionally passing -tg to JMH to set the threads in each group,
+ * such as -tg 8 for eight readers on their own or -tg 8,1 for eight readers and the reloader
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConcurrencyBenchmark {
+
+	private final Path crewFile = Paths.get("./data/crew.json");
+	private final Path routeFile = Paths.get("./data/routes.xml");
+
+	private CrewDAO crew;
+	private RouteDAO routes;
+	private int crewCount;
+	private int routeCount;
+	private String[] homeBases;
+	private String[] airports;
+	private final AtomicLong failed = new AtomicLong();
+
+	/**
+	 * Where each reader is in the keys, so readers don't all ask the same question at once
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+
+		int next = (int) Thread.currentThread().getId();
+	}
+
+	@Setup
+	public void load() throws DataLoadingException {
+
+		crew = new CrewDAO();
+		routes = new RouteDAO();
+		crew.loadCrewData(crewFile);
+		routes.loadRouteData(routeFile);
+
+		crewCount = crew.getAllCrew().size();
+		routeCount = routes.getAllRoutes().size();
+		homeBases = crew.getAllCrew().stream().map(Crew::getHomeBase).distinct().toArray(String[]::new);
+		airports = routes.getAllRoutes().stream().map(Route::getDepartureAirportCode).distinct().toArray(String[]::new);
+		System.out.printf("%,d crew at %d home bases, %,d routes from %d airports, %d processors%n",
+				crewCount, homeBases.length, routeCount, airports.length, Runtime.getRuntime().availableProcessors());
+	}
+
+	@TearDown
+	public void check() {
+
+		if (failed.get() > 0) {
+			throw new IllegalStateException(failed.get() + " failed checks: a reader saw the DAOs empty or part way through a load");
+		}
+	}
+
+	//four queries, counting the answers that don't match the full data set
+	private long query(Cursor cursor) {
+
+		int i = cursor.next++ & Integer.MAX_VALUE;
+		long bad = 0;
+		bad += crew.getAllCrew().size() == crewCount ? 0 : 1;
+		bad += crew.findPilotsByHomeBase(homeBases[i % homeBases.length]).isEmpty()
+				&& crew.findCabinCrewByHomeBase(homeBases[i % homeBases.length]).isEmpty() ? 1 : 0;
+		bad += routes.getNumberOfRoutes() == routeCount ? 0 : 1;
+		bad += routes.findRoutesDepartingAirport(airports[i % airports.length]).isEmpty() ? 1 : 0;
+		if (bad > 0) {
+			failed.addAndGet(bad);
+		}
+		return bad;
+	}
+
+	@Benchmark
+	@Group("readers")
+	@GroupThreads(4)
+	@OperationsPerInvocation(4)
+	public long read(Cursor cursor) {
+		return query(cursor);
+	}
+
+	@Benchmark
+	@Group("reloading")
+	@GroupThreads(4)
+	@OperationsPerInvocation(4)
+	public long readWhileReloading(Cursor cursor) {
+		return query(cursor);
+	}
+
+	@Benchmark
+	@Group("reloading")
+	@GroupThreads(1)
+	public int reload() throws DataLoadingException {
+
+		crew.reloadCrewData(crewFile);
+		routes.reloadRouteData(routeFile);
+		return routes.getNumberOfRoutes();
+	}
+
+}
@@ -0,0 +1,93 @@
+package solution;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import baseclasses.Aircraft;
+import baseclasses.Crew;
+import baseclasses.DataLoadingException;
+import baseclasses.Pilot;
+import baseclasses.Route;
+
+/**
+ * Measures what recording metrics costs, by timing the cheapest DAO queries with metrics off
+ * and then on. With metrics on, the metrics recorded over the run, which are the loads and the
+ * queries, are printed as text at the end
+ *
+ * Run from the project root
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MetricsBenchmark {
+
+	@Param({"false", "true"})
+	public boolean metrics;
+
+	private AircraftDAO aircraft;
+	private CrewDAO crew;
+	private RouteDAO routes;
+	private String[] tailCodes;
+	private String[] homeBases;
+	private String[] airports;
+	private int next;
+
+	@Setup
+	public void load() throws DataLoadingException {
+
+		Metrics.reset();
+		Metrics.setEnabled(metrics);
+		aircraft = new AircraftDAO();
+		crew = new CrewDAO();
+		routes = new RouteDAO();
+		aircraft.loadAircraftData(Paths.get("./data/aircraft.csv"));
+		crew.loadCrewData(Paths.get("./data/crew.json"));
+		routes.loadRouteData(Paths.get("./data/routes.xml"));
+
+		tailCodes = aircraft.getAllAircraft().stream().map(Aircraft::getTailCode).toArray(String[]::new);
+		homeBases = crew.getAllCrew().stream().map(Crew::getHomeBase).toArray(String[]::new);
+		airports = routes.getAllRoutes().stream().map(Route::getDepartureAirportCode).toArray(String[]::new);
+	}
+
+	@TearDown
+	public void printMetrics() {
+
+		if (metrics) {
+			System.out.println();
+			System.out.print(Metrics.dumpText());
+		}
+		Metrics.setEnabled(false);
+	}
+
+	@Benchmark
+	public Aircraft findAircraftByTailCode() {
+		return aircraft.findAircraftByTailCode(tailCodes[(next++ & Integer.MAX_VALUE) % tailCodes.length]);
+	}
+
+	@Benchmark
+	public List<Pilot> findPilotsByHomeBase() {
+		return crew.findPilotsByHomeBase(homeBases[(next++ & Integer.MAX_VALUE) % homeBases.length]);
+	}
+
+	@Benchmark
+	public List<Route> findRoutesDepartingAirport() {
+		return routes.findRoutesDepartingAirport(airports[(next++ & Integer.MAX_VALUE) % airports.length]);
+	}
+
+}
@@ -0,0 +1,116 @@
+package solution;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import baseclasses.DataLoadingException;
+import baseclasses.QualityScoreCalculator;
+import baseclasses.Schedule;
+
+/**
+ * Measures how the multi-start scheduler scales with the number of threads. The build benchmark
+ * times building one schedule per thread with no time to improve them, which with enough cores
+ * should take about as long at every thread count. The improve benchmark gives each thread count
+ * the same time limit and prints the quality score of the best schedule found, which is what it
+ * is for; its time is just the limit
+ *
+ * Run from the project root, optionally passing -p days=... for the horizon and -p seconds=...
+ * for the time limit. The results only mean something on a machine with at least as many cores
+ * as threads
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class MultiStartBenchmark {
+
+	private static final LocalDate START = LocalDate.of(2020, 7, 1);
+
+	@Param({"1", "2", "4", "8", "16"})
+	public int threads;
+
+	@Param("7")
+	public int days;
+
+	@Param("20")
+	public int seconds;
+
+	private AircraftDAO aircraft;
+	private CrewDAO crew;
+	private RouteDAO routes;
+	private PassengerNumbersDAO passengers;
+	private Schedule improved;
+
+	@Setup
+	public void load() throws DataLoadingException {
+
+		aircraft = new AircraftDAO();
+		crew = new CrewDAO();
+		routes = new RouteDAO();
+		passengers = new PassengerNumbersDAO();
+
+		aircraft.loadAircraftData(Paths.get("./data/aircraft.csv"));
+		crew.loadCrewData(Paths.get("./data/crew.json"));
+		routes.loadRouteData(Paths.get("./data/routes.xml"));
+		try {
+			passengers.loadPassengerNumbersData(Paths.get("./data/passengernumbers.db"));
+		}
+		catch (DataLoadingException e) {
+			System.out.println("No passenger numbers (" + e.getCause() + "), scoring without forecasts");
+		}
+		System.out.println(Runtime.getRuntime().availableProcessors() + " processors available");
+	}
+
+	@TearDown(Level.Iteration)
+	public void printQuality() {
+
+		if (improved != null) {
+			long score = new QualityScoreCalculator(aircraft, crew, passengers, improved).calculateQualityScore();
+			System.out.printf("%n    %2d threads, %d days in %d s: quality score %,d%n", threads, days, seconds, score);
+			improved = null;
+		}
+	}
+
+	private Schedule generate(Duration timeLimit) {
+
+		Scheduler scheduler = new Scheduler();
+		scheduler.setThreads(threads);
+		scheduler.setTimeLimit(timeLimit);
+		return scheduler.generateSchedule(aircraft, crew, routes, passengers, START, START.plusDays(days));
+	}
+
+	//construction only: each call builds one schedule per thread
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 3)
+	public Schedule build() {
+		return generate(Duration.ZERO);
+	}
+
+	//the same time for every thread count, more threads trying more starting points
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	public Schedule improve() {
+
+		improved = generate(Duration.ofSeconds(seconds));
+		return improved;
+	}
+
+}
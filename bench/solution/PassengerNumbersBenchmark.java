@@ -0,0 +1,132 @@
+package solution;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import baseclasses.DataLoadingException;
+
+/**
+ * Compares PassengerNumbersDAO.getPassengerNumbersFor() against the original lookup, which
+ * scanned a HashMap of "date flightNumber" String keys with two contains() checks per key
+ *
+ * Needs the SQLite JDBC driver on the classpath. Run from the project root, optionally passing
+ * -p database=... to use another database than the full data/passengernumbers.db
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PassengerNumbersBenchmark {
+
+	private static final int QUERIES = 2000;
+
+	@Param("./data/passengernumbers.db")
+	public String database;
+
+	private PassengerNumbersDAO dao;
+	private HashMap<String, Integer> legacy;
+	private int[] qFlights;
+	private LocalDate[] qDates;
+
+	@Setup
+	public void load() throws DataLoadingException, SQLException {
+
+		Path db = Paths.get(database);
+		dao = new PassengerNumbersDAO();
+		dao.loadPassengerNumbersData(db);
+
+		legacy = new HashMap<>();
+		List<Integer> flightNumbers = new ArrayList<>();
+		List<LocalDate> dates = new ArrayList<>();
+
+		try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + db);
+				PreparedStatement s = c.prepareStatement("SELECT Date, FlightNumber, LoadEstimate FROM PassengerNumbers");
+				ResultSet rs = s.executeQuery()) {
+			while (rs.next()) {
+				legacy.put(rs.getString(1) + " " + rs.getInt(2), rs.getInt(3));
+				flightNumbers.add(rs.getInt(2));
+				dates.add(LocalDate.parse(rs.getString(1)));
+			}
+		}
+
+		//a mix of hits and misses, as the scheduler and the quality calculator would ask
+		Random random = new Random(42);
+		qFlights = new int[QUERIES];
+		qDates = new LocalDate[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			int row = random.nextInt(flightNumbers.size());
+			qFlights[i] = i % 4 == 0 ? flightNumbers.get(row) + 1 : flightNumbers.get(row);
+			qDates[i] = dates.get(row);
+		}
+
+		int mismatches = 0;
+		for (int i = 0; i < QUERIES; i++) {
+			Integer expected = legacy.get(qDates[i] + " " + qFlights[i]);
+			if (dao.getPassengerNumbersFor(qFlights[i], qDates[i]) != (expected == null ? -1 : expected)) {
+				mismatches++;
+			}
+		}
+
+		System.out.println(dao.getNumberOfEntries() + " forecasts loaded from " + db + ", " + mismatches
+				+ " lookups where the substring scan disagrees with an exact match");
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public long legacyStringKeyScan() {
+
+		long sum = 0;
+		for (int i = 0; i < QUERIES; i++) {
+			sum += legacyLookup(legacy, qFlights[i], qDates[i]);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public long packedLongKeyIndex() {
+
+		long sum = 0;
+		for (int i = 0; i < QUERIES; i++) {
+			sum += dao.getPassengerNumbersFor(qFlights[i], qDates[i]);
+		}
+		return sum;
+	}
+
+	private static int legacyLookup(HashMap<String, Integer> passengerNumbers, int flightNumber, LocalDate date) {
+
+		String number = String.valueOf(flightNumber);
+		for (String i : passengerNumbers.keySet()) {
+			if (i.contains(date.toString()) & i.contains(number)) {
+				return passengerNumbers.get(i);
+			}
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,139 @@
+package solution;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import baseclasses.DataLoadingException;
+import baseclasses.QualityScoreCalculator;
+import baseclasses.Schedule;
+
+/**
+ * Compares scheduling the whole horizon at once with the rolling horizon mode, for horizons of
+ * increasing length. The build benchmark only builds, which shows how the time per day of the
+ * horizon grows, and the improve benchmark has a time limit in proportion to the length of the
+ * horizon, which shows the quality each mode reaches. After every run the quality score and the
+ * peak heap use are printed
+ *
+ * Run from the project root, optionally passing -p secondsPerDay=..., -p window=... and
+ * -p lookAhead=... (the last two in days), and -p days=... to choose the horizon lengths
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class RollingHorizonBenchmark {
+
+	private static final LocalDate START = LocalDate.of(2020, 7, 1);
+
+	@Param({"7", "28", "91"})
+	public int days;
+
+	@Param({"whole", "rolling"})
+	public String mode;
+
+	@Param("0.25")
+	public double secondsPerDay;
+
+	@Param("1")
+	public int window;
+
+	@Param("1")
+	public int lookAhead;
+
+	private AircraftDAO aircraft;
+	private CrewDAO crew;
+	private RouteDAO routes;
+	private PassengerNumbersDAO passengers;
+	private Schedule last;
+
+	@Setup
+	public void load() throws DataLoadingException {
+
+		aircraft = new AircraftDAO();
+		crew = new CrewDAO();
+		routes = new RouteDAO();
+		passengers = new PassengerNumbersDAO();
+
+		aircraft.loadAircraftData(Paths.get("./data/aircraft.csv"));
+		crew.loadCrewData(Paths.get("./data/crew.json"));
+		routes.loadRouteData(Paths.get("./data/routes.xml"));
+		try {
+			passengers.loadPassengerNumbersData(Paths.get("./data/passengernumbers.db"));
+		}
+		catch (DataLoadingException e) {
+			System.out.println("No passenger numbers (" + e.getCause() + "), scoring without forecasts");
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void resetPeakHeap() {
+
+		System.gc();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void printQuality() {
+
+		long score = new QualityScoreCalculator(aircraft, crew, passengers, last).calculateQualityScore();
+		System.out.printf("%n    quality score %,d, peak heap %.1f MB%n", score, peakHeap() / 1e6);
+	}
+
+	private Schedule generate(Duration timeLimit) {
+
+		Scheduler scheduler = new Scheduler();
+		scheduler.setTimeLimit(timeLimit);
+		if (mode.equals("rolling")) {
+			scheduler.setRollingHorizon(window, lookAhead);
+		}
+		last = scheduler.generateSchedule(aircraft, crew, routes, passengers, START, START.plusDays(days));
+		return last;
+	}
+
+	@Benchmark
+	public Schedule build() {
+		return generate(Duration.ZERO);
+	}
+
+	@Benchmark
+	public Schedule improve() {
+		return generate(Duration.ofMillis((long) (days * secondsPerDay * 1000)));
+	}
+
+	//the sum of the pools' peaks, which is an upper bound as the pools don't all peak at once
+	private static long peakHeap() {
+
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+}
@@ -0,0 +1,132 @@
+package solution;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import baseclasses.DataLoadingException;
+import baseclasses.Route;
+
+/**
+ * Compares the streaming RouteDAO.loadRouteData() with the DOM-based loader it replaced,
+ * on synthetic route files of increasing size. Run it with JMH's -prof gc to see the bytes each
+ * load allocates alongside its time, which is where the DOM's heap cost shows up
+ *
+ * Pass -p routes=... to JMH to override the default sizes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RouteLoadingBenchmark {
+
+	@Param({"1000", "10000", "100000", "500000"})
+	public int routes;
+
+	private Path file;
+
+	@Setup
+	public void writeFile() throws IOException {
+
+		file = Files.createTempFile("routes-" + routes + "-", ".xml");
+		SyntheticData.writeRoutes(file, routes, 42);
+	}
+
+	@TearDown
+	public void deleteFile() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public List<Route> domLoader() {
+		return legacyLoad(file);
+	}
+
+	@Benchmark
+	public RouteDAO staxLoader() throws DataLoadingException {
+
+		RouteDAO dao = new RouteDAO();
+		dao.loadRouteData(file);
+		return dao;
+	}
+
+	//the loader RouteDAO used before it was switched to StAX, kept here as the baseline
+	private static List<Route> legacyLoad(Path p) {
+
+		List<Route> routes = new ArrayList<>();
+		try (InputStream inputStream = Files.newInputStream(p)) {
+			DocumentBuilder db = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+			Document doc = db.parse(inputStream);
+			NodeList children = doc.getDocumentElement().getChildNodes();
+
+			for (int i = 0; i < children.getLength(); i++) {
+				Node c = children.item(i);
+				if (!c.getNodeName().equals("Route")) {
+					continue;
+				}
+
+				Route r = new Route();
+				NodeList grandChildren = c.getChildNodes();
+				for (int j = 0; j < grandChildren.getLength(); j++) {
+					Node d = grandChildren.item(j);
+					String name = d.getNodeName();
+					if (name.startsWith("#")) {
+						continue;
+					}
+					String value = d.getChildNodes().item(0).getNodeValue();
+					if (name.equals("FlightNumber")) {
+						r.setFlightNumber(Integer.parseInt(value));
+					} else if (name.equals("DayOfWeek")) {
+						r.setDayOfWeek(value);
+					} else if (name.equals("DepartureTime")) {
+						r.setDepartureTime(LocalTime.parse(value));
+					} else if (name.equals("DepartureAirport")) {
+						r.setDepartureAirport(value);
+					} else if (name.equals("DepartureAirportIATACode")) {
+						r.setDepartureAirportCode(value);
+					} else if (name.equals("ArrivalTime")) {
+						r.setArrivalTime(LocalTime.parse(value));
+					} else if (name.equals("ArrivalAirport")) {
+						r.setArrivalAirport(value);
+					} else if (name.equals("ArrivalAirportIATACode")) {
+						r.setArrivalAirportCode(value);
+					} else if (name.equals("Duration")) {
+						r.setDuration(Duration.parse(value));
+					}
+				}
+				routes.add(r);
+			}
+		}
+		catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+		return routes;
+	}
+
+}
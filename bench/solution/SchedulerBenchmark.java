@@ -0,0 +1,91 @@
+package solution;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import baseclasses.DataLoadingException;
+import baseclasses.QualityScoreCalculator;
+import baseclasses.Schedule;
+
+/**
+ * Times how long Scheduler.generateSchedule() takes to build a complete schedule on the full data
+ * set, for horizons of increasing length, and prints how many flights the last schedule completed
+ * and its quality score
+ *
+ * Run from the project root, optionally passing -p days=... to choose the horizon lengths.
+ * Passenger numbers need the SQLite JDBC driver on the classpath; without it schedules are
+ * scored without forecasts
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class SchedulerBenchmark {
+
+	private static final LocalDate START = LocalDate.of(2020, 7, 1);
+
+	@Param({"1", "7", "28", "91"})
+	public int days;
+
+	private AircraftDAO aircraft;
+	private CrewDAO crew;
+	private RouteDAO routes;
+	private PassengerNumbersDAO passengers;
+	private Scheduler scheduler;
+	private Schedule last;
+
+	@Setup
+	public void load() throws DataLoadingException {
+
+		aircraft = new AircraftDAO();
+		crew = new CrewDAO();
+		routes = new RouteDAO();
+		passengers = new PassengerNumbersDAO();
+
+		aircraft.loadAircraftData(Paths.get("./data/aircraft.csv"));
+		crew.loadCrewData(Paths.get("./data/crew.json"));
+		routes.loadRouteData(Paths.get("./data/routes.xml"));
+		try {
+			passengers.loadPassengerNumbersData(Paths.get("./data/passengernumbers.db"));
+		}
+		catch (DataLoadingException e) {
+			System.out.println("No passenger numbers (" + e.getCause() + "), scoring without forecasts");
+		}
+
+		//time the construction of the schedule, without any time spent improving it
+		scheduler = new Scheduler();
+		scheduler.setTimeLimit(Duration.ZERO);
+	}
+
+	@TearDown
+	public void printQuality() {
+
+		long score = new QualityScoreCalculator(aircraft, crew, passengers, last).calculateQualityScore();
+		System.out.printf("%n    %d of %d flights completed, quality score %,d%n", last.getCompletedAllocations().size(),
+				last.getCompletedAllocations().size() + last.getRemainingAllocations().size(), score);
+	}
+
+	@Benchmark
+	public Schedule generateSchedule() {
+
+		last = scheduler.generateSchedule(aircraft, crew, routes, passengers, START, START.plusDays(days));
+		return last;
+	}
+
+}
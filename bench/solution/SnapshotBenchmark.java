@@ -0,0 +1,162 @@
+package solution;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import baseclasses.DataLoadingException;
+
+/**
+ * Compares parsing each data file with restoring it from a snapshot saved by an earlier load,
+ * on the full data set and on a synthetic one scaled up by SyntheticData. Passenger numbers
+ * need the SQLite JDBC driver on the classpath to read the database at first; without it their
+ * benchmarks fail
+ *
+ * Run from the project root, optionally passing -p set=... with full or a scale such as 10x
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SnapshotBenchmark {
+
+	@Param({"full", "10x"})
+	public String set;
+
+	private Path synthetic;
+	private Path snapshots;
+	private Path aircraftFile;
+	private Path crewFile;
+	private Path routesFile;
+	private Path passengersFile;
+
+	@Setup
+	public void saveSnapshots() throws IOException, DataLoadingException {
+
+		Path dir = Paths.get("./data");
+		if (!set.equals("full")) {
+			synthetic = Files.createTempDirectory("synthetic-");
+			SyntheticData.writeDataSet(synthetic, Integer.parseInt(set.substring(0, set.length() - 1)), 42);
+			dir = synthetic;
+		}
+		snapshots = Files.createTempDirectory("snapshots-");
+		aircraftFile = dir.resolve("aircraft.csv");
+		crewFile = dir.resolve("crew.json");
+		routesFile = dir.resolve("routes.xml");
+		passengersFile = dir.resolve("passengernumbers.db");
+
+		//the first load of each saves its snapshot
+		new AircraftDAO().loadAircraftData(aircraftFile, DataSnapshot.pathFor(snapshots, aircraftFile));
+		new CrewDAO().loadCrewData(crewFile, DataSnapshot.pathFor(snapshots, crewFile));
+		new RouteDAO().loadRouteData(routesFile, DataSnapshot.pathFor(snapshots, routesFile));
+		try {
+			new PassengerNumbersDAO().loadPassengerNumbersData(passengersFile, DataSnapshot.pathFor(snapshots, passengersFile));
+		}
+		catch (DataLoadingException e) {
+			System.out.println("No passenger numbers (" + e.getCause() + "), their benchmarks will fail");
+		}
+	}
+
+	@TearDown
+	public void deleteFiles() throws IOException {
+
+		for (Path dir : new Path[] {snapshots, synthetic}) {
+			if (dir == null) {
+				continue;
+			}
+			List<Path> paths = new ArrayList<>();
+			try (Stream<Path> walk = Files.walk(dir)) {
+				walk.forEach(paths::add);
+			}
+			paths.sort(Comparator.reverseOrder());
+			for (Path p : paths) {
+				Files.deleteIfExists(p);
+			}
+		}
+	}
+
+	@Benchmark
+	public AircraftDAO aircraftParsed() throws DataLoadingException {
+
+		AircraftDAO dao = new AircraftDAO();
+		dao.loadAircraftData(aircraftFile);
+		return dao;
+	}
+
+	@Benchmark
+	public AircraftDAO aircraftRestored() throws DataLoadingException {
+
+		AircraftDAO dao = new AircraftDAO();
+		dao.loadAircraftData(aircraftFile, DataSnapshot.pathFor(snapshots, aircraftFile));
+		return dao;
+	}
+
+	@Benchmark
+	public CrewDAO crewParsed() throws DataLoadingException {
+
+		CrewDAO dao = new CrewDAO();
+		dao.loadCrewData(crewFile);
+		return dao;
+	}
+
+	@Benchmark
+	public CrewDAO crewRestored() throws DataLoadingException {
+
+		CrewDAO dao = new CrewDAO();
+		dao.loadCrewData(crewFile, DataSnapshot.pathFor(snapshots, crewFile));
+		return dao;
+	}
+
+	@Benchmark
+	public RouteDAO routesParsed() throws DataLoadingException {
+
+		RouteDAO dao = new RouteDAO();
+		dao.loadRouteData(routesFile);
+		return dao;
+	}
+
+	@Benchmark
+	public RouteDAO routesRestored() throws DataLoadingException {
+
+		RouteDAO dao = new RouteDAO();
+		dao.loadRouteData(routesFile, DataSnapshot.pathFor(snapshots, routesFile));
+		return dao;
+	}
+
+	@Benchmark
+	public PassengerNumbersDAO passengerNumbersRead() throws DataLoadingException {
+
+		PassengerNumbersDAO dao = new PassengerNumbersDAO();
+		dao.loadPassengerNumbersData(passengersFile);
+		return dao;
+	}
+
+	@Benchmark
+	public PassengerNumbersDAO passengerNumbersRestored() throws DataLoadingException {
+
+		PassengerNumbersDAO dao = new PassengerNumbersDAO();
+		dao.loadPassengerNumbersData(passengersFile, DataSnapshot.pathFor(snapshots, passengersFile));
+		return dao;
+	}
+
+}
@@ -0,0 +1,248 @@
+package solution;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Random;
+
+/**
+ * Writes synthetic data files in the same formats as the files in ./data, so the loaders
+ * and the scheduler can be benchmarked on inputs far larger than the real ones
+ *
+ * Run on its own to write a whole data set scaled from the size of the real one, passing the
+ * directory to write to and the scale, e.g. 10 for ten times the routes, fleet and crew
+ */
+public final class SyntheticData {
+
+	//the sizes of the real data set, which a scaled data set multiplies
+	static final int ROUTES = 766;
+	static final int AIRCRAFT = 48;
+	static final int PILOTS = 350;
+	static final int CABIN_CREW = 800;
+
+	//the first flight number writeRoutes() uses, with each pair of routes numbered on from it
+	private static final int FIRST_FLIGHT_NUMBER = 100;
+
+	private static final String[] FORENAMES = {"Alex", "Sam", "Jo", "Chris", "Pat", "Robin", "Jamie", "Morgan", "Kim", "Lee"};
+	private static final String[] SURNAMES = {"Smith", "Jones", "Taylor", "Brown", "Wilson", "Evans", "Khan", "Patel", "Walker", "Wright"};
+
+	static final String[] UK_AIRPORTS = {"MAN", "LGW", "BHX", "GLA", "NCL", "STN", "EMA", "BFS", "CWL"};
+	static final String[] OVERSEAS_AIRPORTS = {"AYT", "DLM", "PMI", "TFS", "ZTH", "ACE", "NBE", "FAO", "HER", "LPA"};
+	static final String[] DAYS = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+
+	//model, type code, manufacturer, seats and cabin crew of the types flown in aircraft.csv
+	private static final String[][] AIRCRAFT_TYPES = {
+			{"757", "B757", "Boeing", "280", "6"},
+			{"767", "B767", "Boeing", "326", "8"},
+			{"A320", "A320", "Airbus", "180", "4"},
+			{"A321", "A321", "Airbus", "220", "5"},
+			{"A330", "A330", "Airbus", "335", "8"}};
+
+	private SyntheticData() {
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		if (args.length < 2) {
+			System.out.println("Usage: SyntheticData <directory> <scale>");
+			return;
+		}
+		Path dir = Paths.get(args[0]);
+		int scale = Integer.parseInt(args[1]);
+		Files.createDirectories(dir);
+		boolean passengers = writeDataSet(dir, scale, 42);
+		System.out.println("Wrote " + scale + "x data set to " + dir.toAbsolutePath()
+				+ (passengers ? "" : ", without passenger numbers as the SQLite JDBC driver isn't on the classpath"));
+	}
+
+	/**
+	 * Writes aircraft.csv, crew.json, routes.xml and passengernumbers.db with a multiple of the
+	 * routes, aircraft and crew of the real data set, and forecasts for every flight of the first
+	 * four weeks of July 2020
+	 * @param dir the directory to write to
+	 * @param scale how many times bigger than the real data set to make it
+	 * @param seed the seed for the random choices, so runs are repeatable
+	 * @return false if the passenger numbers couldn't be written, which needs the SQLite JDBC driver
+	 * @throws IOException if a file can't be written
+	 */
+	static boolean writeDataSet(Path dir, int scale, long seed) throws IOException {
+
+		writeAircraft(dir.resolve("aircraft.csv"), AIRCRAFT * scale, seed);
+		writeCrew(dir.resolve("crew.json"), PILOTS * scale, CABIN_CREW * scale, seed);
+		writeRoutes(dir.resolve("routes.xml"), ROUTES * scale, seed);
+		try {
+			writePassengerNumbers(dir.resolve("passengernumbers.db"), ROUTES * scale, LocalDate.of(2020, 7, 1), 28, seed);
+			return true;
+		}
+		catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Writes a route file of out-and-back pairs in the format of routes.xml
+	 * @param p where to write the file
+	 * @param count the number of routes to write, rounded up to an even number
+	 * @param seed the seed for the random choices, so runs are repeatable
+	 * @throws IOException if the file can't be written
+	 */
+	static void writeRoutes(Path p, int count, long seed) throws IOException {
+
+		Random random = new Random(seed);
+
+		try (BufferedWriter out = Files.newBufferedWriter(p)) {
+			out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n<Routes>\n");
+
+			for (int i = 0; i < count; i += 2) {
+				String home = UK_AIRPORTS[random.nextInt(UK_AIRPORTS.length)];
+				String away = OVERSEAS_AIRPORTS[random.nextInt(OVERSEAS_AIRPORTS.length)];
+				String day = DAYS[random.nextInt(DAYS.length)];
+				LocalTime departs = LocalTime.of(5 + random.nextInt(8), random.nextInt(12) * 5);
+				Duration flight = Duration.ofMinutes(120 + random.nextInt(36) * 5);
+
+				LocalTime arrives = departs.plus(flight);
+				LocalTime returns = arrives.plusMinutes(60);
+				writeRoute(out, FIRST_FLIGHT_NUMBER + 2 * i, day, departs, home, away, arrives, flight);
+				writeRoute(out, FIRST_FLIGHT_NUMBER + 2 * i + 1, day, returns, away, home, returns.plus(flight), flight);
+			}
+
+			out.write("</Routes>\n");
+		}
+	}
+
+	/**
+	 * Writes a fleet file in the format of aircraft.csv, drawing each row from the aircraft
+	 * types in the real fleet with a made-up tail code and a random UK base
+	 * @param p where to write the file
+	 * @param rows the number of aircraft to write, not counting the header
+	 * @param seed the seed for the random choices, so runs are repeatable
+	 * @throws IOException if the file can't be written
+	 */
+	static void writeAircraft(Path p, int rows, long seed) throws IOException {
+
+		Random random = new Random(seed);
+
+		try (BufferedWriter out = Files.newBufferedWriter(p)) {
+			out.write("Tailcode,Model,TypeCode,Manufacturer,StartingPosition,Seats,CabinCrewRequired\r\n");
+
+			for (int i = 0; i < rows; i++) {
+				String[] type = AIRCRAFT_TYPES[random.nextInt(AIRCRAFT_TYPES.length)];
+				String base = UK_AIRPORTS[random.nextInt(UK_AIRPORTS.length)];
+				int seats = Integer.parseInt(type[3]) - random.nextInt(3) * 5;
+				out.write("G-" + Integer.toString(i, 36).toUpperCase() + "," + type[0] + "," + type[1] + "," + type[2] + ","
+						+ base + "," + seats + "," + type[4] + "\r\n");
+			}
+		}
+	}
+
+	/**
+	 * Writes a crew file in the format of crew.json, each crew member rated for one or two of the
+	 * aircraft types in the real fleet and based at a random UK airport
+	 * @param p where to write the file
+	 * @param pilots the number of pilots, half of them captains
+	 * @param cabinCrew the number of cabin crew
+	 * @param seed the seed for the random choices, so runs are repeatable
+	 * @throws IOException if the file can't be written
+	 */
+	static void writeCrew(Path p, int pilots, int cabinCrew, long seed) throws IOException {
+
+		Random random = new Random(seed);
+
+		try (BufferedWriter out = Files.newBufferedWriter(p)) {
+			out.write("{\n  \"pilots\": [");
+			for (int i = 0; i < pilots; i++) {
+				writeCrewMember(out, random, i % 2 == 0 ? "CAPTAIN" : "FIRST_OFFICER", i == 0);
+			}
+			out.write("\n  ],\n  \"cabincrew\": [");
+			for (int i = 0; i < cabinCrew; i++) {
+				writeCrewMember(out, random, null, i == 0);
+			}
+			out.write("\n  ]\n}\n");
+		}
+	}
+
+	private static void writeCrewMember(BufferedWriter out, Random random, String rank, boolean first) throws IOException {
+
+		String type = AIRCRAFT_TYPES[random.nextInt(AIRCRAFT_TYPES.length)][1];
+		String ratings = "\"" + type + "\"";
+		String second = AIRCRAFT_TYPES[random.nextInt(AIRCRAFT_TYPES.length)][1];
+		if (random.nextInt(4) == 0 && !second.equals(type)) {
+			ratings += ", \"" + second + "\"";
+		}
+
+		out.write(first ? "\n    {" : ",\n    {");
+		out.write("\"forename\": \"" + FORENAMES[random.nextInt(FORENAMES.length)] + "\", ");
+		out.write("\"surname\": \"" + SURNAMES[random.nextInt(SURNAMES.length)] + "\", ");
+		out.write("\"home_airport\": \"" + UK_AIRPORTS[random.nextInt(UK_AIRPORTS.length)] + "\", ");
+		if (rank != null) {
+			out.write("\"rank\": \"" + rank + "\", ");
+		}
+		out.write("\"type_ratings\": [" + ratings + "]}");
+	}
+
+	/**
+	 * Writes an SQLite database of passenger forecasts in the format of passengernumbers.db, with
+	 * a forecast for every flight number writeRoutes() gives the same number of routes on every day
+	 * @param db where to write the database, which is replaced if it exists
+	 * @param routes the number of routes the forecasts are for
+	 * @param start the first day to forecast
+	 * @param days the number of days to forecast
+	 * @param seed the seed for the random choices, so runs are repeatable
+	 * @throws SQLException if the database can't be written, such as when the SQLite JDBC driver isn't on the classpath
+	 * @throws IOException if an existing file can't be replaced
+	 */
+	static void writePassengerNumbers(Path db, int routes, LocalDate start, int days, long seed) throws SQLException, IOException {
+
+		Random random = new Random(seed);
+		Files.deleteIfExists(db);
+
+		try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + db)) {
+			c.setAutoCommit(false);
+			try (Statement s = c.createStatement()) {
+				s.execute("CREATE TABLE PassengerNumbers (Date TEXT, FlightNumber INTEGER, LoadEstimate INTEGER)");
+			}
+			try (PreparedStatement insert = c.prepareStatement("INSERT INTO PassengerNumbers VALUES (?, ?, ?)")) {
+				for (int d = 0; d < days; d++) {
+					String date = start.plusDays(d).toString();
+					//numbered as writeRoutes() numbers each pair of routes
+					for (int i = 0; i < routes; i += 2) {
+						for (int leg = 0; leg < 2; leg++) {
+							insert.setString(1, date);
+							insert.setInt(2, FIRST_FLIGHT_NUMBER + 2 * i + leg);
+							insert.setInt(3, 120 + random.nextInt(230));
+							insert.addBatch();
+						}
+					}
+					insert.executeBatch();
+				}
+			}
+			c.commit();
+		}
+	}
+
+	private static void writeRoute(BufferedWriter out, int flightNumber, String day, LocalTime departs, String from,
+			String to, LocalTime arrives, Duration duration) throws IOException {
+
+		out.write("    <Route>\n");
+		out.write("        <FlightNumber>" + flightNumber + "</FlightNumber>\n");
+		out.write("        <DayOfWeek>" + day + "</DayOfWeek>\n");
+		out.write("        <DepartureTime>" + departs + "</DepartureTime>\n");
+		out.write("        <DepartureAirport>" + from + "</DepartureAirport>\n");
+		out.write("        <DepartureAirportIATACode>" + from + "</DepartureAirportIATACode>\n");
+		out.write("        <ArrivalTime>" + arrives + "</ArrivalTime>\n");
+		out.write("        <ArrivalAirport>" + to + "</ArrivalAirport>\n");
+		out.write("        <ArrivalAirportIATACode>" + to + "</ArrivalAirportIATACode>\n");
+		out.write("        <Duration>" + duration + "</Duration>\n");
+		out.write("    </Route>\n");
+	}
+
+}
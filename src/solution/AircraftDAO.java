@@ -1,11 +1,16 @@
 package solution;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import baseclasses.Aircraft;
 import baseclasses.DataLoadingException;
 import baseclasses.IAircraftDAO;
@@ -14,103 +19,337 @@ import baseclasses.IAircraftDAO;
 /**
  * The AircraftDAO class is responsible for loading aircraft data from CSV files
  * and contains methods to help the system find aircraft when scheduling
+ *
+ * It is safe to share between threads. The aircraft and their indexes are never changed once
+ * built: each load or reset builds new ones and swaps them in at once, so queries take no locks
+ * and see the aircraft from before a load or after it, never part of one
  */
 public class AircraftDAO implements IAircraftDAO {
 	
-	//The data structure we'll use to store the aircraft we've loaded
-	List<Aircraft> aircraft = new ArrayList<>();
+	//The data structure we'll use to store the aircraft we've loaded, replaced whole by each load and reset
+	private volatile Contents contents = Contents.EMPTY;
+	
+	/**
+	 * The loaded aircraft and the indexes over them, none of which change once built
+	 */
+	private static final class Contents {
+		
+		static final Contents EMPTY = new Contents();
+		
+		//a read-only list handed out by getAllAircraft(), so callers share one list instead of each getting a copy
+		final List<Aircraft> aircraft;
+		
+		//secondary indexes over the aircraft
+		final Map<String, Aircraft> aircraftByTailCode;
+		final MultiValueIndex<String, Aircraft> aircraftByType;
+		final MultiValueIndex<String, Aircraft> aircraftByStartingPosition;
+		final Map<Aircraft.Manufacturer, List<Aircraft>> aircraftByManufacturer;
+		
+		//all of the aircraft sorted by seats, with their seat counts alongside for binary searching
+		final Aircraft[] aircraftBySeats;
+		final int[] seatCounts;
+		
+		private Contents() {
+			
+			aircraft = Collections.emptyList();
+			aircraftByTailCode = new HashMap<>();
+			aircraftByType = new MultiValueIndex<>();
+			aircraftByStartingPosition = new MultiValueIndex<>();
+			aircraftByManufacturer = new EnumMap<>(Aircraft.Manufacturer.class);
+			aircraftBySeats = new Aircraft[0];
+			seatCounts = new int[0];
+		}
+		
+		/**
+		 * Indexes some aircraft on top of those already indexed. Only the new aircraft are indexed:
+		 * the previous indexes are copied, sharing the lists under keys none of the new aircraft have,
+		 * and the new aircraft are merged into the previous seat order
+		 * @param previous the aircraft loaded before these, which are left as they are
+		 * @param loaded the new aircraft, in the order they were loaded
+		 */
+		Contents(Contents previous, List<Aircraft> loaded) {
+			
+			List<Aircraft> all = new ArrayList<>(previous.aircraft.size() + loaded.size());
+			all.addAll(previous.aircraft);
+			all.addAll(loaded);
+			aircraft = Collections.unmodifiableList(all);
+			
+			aircraftByTailCode = new HashMap<>(previous.aircraftByTailCode);
+			aircraftByType = new MultiValueIndex<>(previous.aircraftByType);
+			aircraftByStartingPosition = new MultiValueIndex<>(previous.aircraftByStartingPosition);
+			aircraftByManufacturer = new EnumMap<>(previous.aircraftByManufacturer);
+			Set<Aircraft.Manufacturer> copied = EnumSet.noneOf(Aircraft.Manufacturer.class);
+			for (Aircraft a : loaded) {
+				//as with the old linear search, a tail code seen again refers to the most recently loaded aircraft
+				aircraftByTailCode.put(a.getTailCode(), a);
+				aircraftByType.add(a.getTypeCode(), a);
+				aircraftByStartingPosition.add(a.getStartingPosition(), a);
+				
+				//the previous list for a manufacturer is still in use, so it is copied before the first addition
+				Aircraft.Manufacturer m = a.getManufacturer();
+				if (copied.add(m)) {
+					List<Aircraft> before = aircraftByManufacturer.get(m);
+					aircraftByManufacturer.put(m, before == null ? new ArrayList<>() : new ArrayList<>(before));
+				}
+				aircraftByManufacturer.get(m).add(a);
+			}
+			
+			//the sort is stable and ties are taken from the previous aircraft first, so aircraft with the same seats stay in the order they were loaded
+			Aircraft[] added = loaded.toArray(new Aircraft[0]);
+			Arrays.sort(added, Comparator.comparingInt(Aircraft::getSeats));
+			aircraftBySeats = new Aircraft[previous.aircraftBySeats.length + added.length];
+			seatCounts = new int[aircraftBySeats.length];
+			int i = 0, j = 0;
+			for (int k = 0; k < aircraftBySeats.length; k++) {
+				if (j == added.length || (i < previous.seatCounts.length && previous.seatCounts[i] <= added[j].getSeats())) {
+					aircraftBySeats[k] = previous.aircraftBySeats[i];
+					seatCounts[k] = previous.seatCounts[i++];
+				}
+				else {
+					aircraftBySeats[k] = added[j];
+					seatCounts[k] = added[j++].getSeats();
+				}
+			}
+		}
+	}
+	
+	//how long each load and query takes, and how many aircraft are loaded, while metrics are on
+	private static final Metrics.Timer LOAD = Metrics.timer("aircraft.loadAircraftData");
+	private static final Metrics.Counter LOADED = Metrics.counter("aircraft.loaded");
+	private static final Metrics.Counter RESTORED = Metrics.counter("aircraft.restoredFromSnapshot");
+	private static final Metrics.Timer FIND_BY_SEATS = Metrics.timer("aircraft.findAircraftBySeats");
+	private static final Metrics.Timer FIND_BY_STARTING_POSITION = Metrics.timer("aircraft.findAircraftByStartingPosition");
+	private static final Metrics.Timer FIND_BY_TAIL_CODE = Metrics.timer("aircraft.findAircraftByTailCode");
+	private static final Metrics.Timer FIND_BY_TYPE = Metrics.timer("aircraft.findAircraftByType");
+	private static final Metrics.Timer FIND_BY_MANUFACTURER = Metrics.timer("aircraft.findAircraftByManufacturer");
+	private static final Metrics.Timer GET_ALL = Metrics.timer("aircraft.getAllAircraft");
+	
+	//the number of fields each line of an aircraft file must have
+	private static final int FIELDS_PER_ROW = 7;
 	
 	/**
 	 * Loads the aircraft data from the specified file, adding them to the currently loaded aircraft
 	 * Multiple calls to this function, perhaps on different files, would thus be cumulative
 	 * @param p A Path pointing to the file from which data could be loaded
 	 * @throws DataLoadingException if anything goes wrong. The exception's "cause" indicates the underlying exception
-     *
-	 * Initially, this contains some starter code to help you get started in reading the CSV file...
+	 *
+	 * The file is memory-mapped and parsed in place: numbers are read straight from its bytes, and
+	 * the type codes, models, manufacturers and airports are shared between rows rather than copied
 	 */
 	@Override
-	public void loadAircraftData(Path p) throws DataLoadingException {	
+	public void loadAircraftData(Path p) throws DataLoadingException {
+		
+		long start = Metrics.start();
+		addAll(parse(p));
+		LOAD.stop(start);
+	}
+	
+	/**
+	 * Loads the aircraft data from the specified file like loadAircraftData(Path), but restores
+	 * it from a snapshot instead if one has been saved since the file last changed. Otherwise the
+	 * file is parsed and a snapshot of it saved, ready for the next time it is loaded
+	 * @param p A Path pointing to the file from which data could be loaded
+	 * @param snapshot A Path pointing to the snapshot of the file, which need not exist yet
+	 * @throws DataLoadingException if anything goes wrong. The exception's "cause" indicates the underlying exception
+	 */
+	public void loadAircraftData(Path p, Path snapshot) throws DataLoadingException {
+		
+		long start = Metrics.start();
+		List<Aircraft> loaded;
 		try {
-			//open the file
-			BufferedReader reader = Files.newBufferedReader(p);
-			
-			//read the file line by line
-			String line = "";
-			
+			loaded = DataSnapshot.restore(snapshot, p, DataSnapshot.AIRCRAFT, AircraftDAO::readSnapshot);
+		}
+		catch (IOException ioe) {
+			throw new DataLoadingException(ioe);
+		}
+		
+		if (loaded == null) {
+			List<Aircraft> parsed = parse(p);
+			DataSnapshot.save(snapshot, p, DataSnapshot.AIRCRAFT, writer -> writeSnapshot(parsed, writer));
+			loaded = parsed;
+		}
+		else {
+			RESTORED.increment();
+		}
+		addAll(loaded);
+		LOAD.stop(start);
+	}
+	
+	/**
+	 * Reads the aircraft from a file without adding them to the DAO
+	 * @param p the file to read
+	 * @return the aircraft, in file order
+	 * @throws DataLoadingException if the file can't be read or parsed
+	 */
+	private List<Aircraft> parse(Path p) throws DataLoadingException {
+		try {
+			//map the file into memory
+			MappedCsvReader reader = new MappedCsvReader(p);
 			
 			//skip the first line of the file - headers
-			reader.readLine();
+			reader.nextRow();
 			
+			//only add this file's aircraft once it has all been read, so a bad file leaves the DAO as it was
+			List<Aircraft> loaded = new ArrayList<>();
 			
-			while( (line = reader.readLine()) != null) {
-				//each line has fields separated by commas, split into an array of fields
-				String[] fields = line.split(",");
+			//each manufacturer name is only converted to its enum constant once
+			Map<String, Aircraft.Manufacturer> manufacturers = new HashMap<>();
+			
+			while(reader.nextRow()) {
 				
-				//put some of the fields into variables: check which fields are where atop the CSV file itself
-				String tailcode = fields[0];
-				String type = fields[2];
-				String model = fields[1];
-				String manufacturer = fields[3].toUpperCase();
-				String startingPosition = fields[4];
-				int seats = Integer.parseInt(fields[5]);
-				int cabinCrewRequired = Integer.parseInt(fields[6]);
+				if (reader.fieldCount() < FIELDS_PER_ROW) {
+					throw new IllegalArgumentException("Line " + reader.lineNumber() + " of " + p + " has "
+							+ reader.fieldCount() + " fields, expected " + FIELDS_PER_ROW);
+				}
 				
+				//put the fields into variables: check which fields are where atop the CSV file itself
+				String tailcode = reader.stringField(0);
+				String model = reader.internedField(1);
+				String type = reader.internedField(2);
+				String manufacturerName = reader.internedField(3);
+				String startingPosition = reader.internedField(4);
+				int seats = reader.intField(5);
+				int cabinCrewRequired = reader.intField(6);
 				
-				//create an Aircraft object, and set (some of) its properties
+				Aircraft.Manufacturer manufacturer = manufacturers.get(manufacturerName);
+				if (manufacturer == null) {
+					manufacturer = Aircraft.Manufacturer.valueOf(manufacturerName.toUpperCase());
+					manufacturers.put(manufacturerName, manufacturer);
+				}
+				
+				//create an Aircraft object, and set its properties
 				Aircraft a = new Aircraft();
 				a.setTailCode(tailcode);
 				a.setTypeCode(type);
 				a.setSeats(seats);
 				a.setCabinCrewRequired(cabinCrewRequired);
-				a.setManufacturer(Aircraft.Manufacturer.valueOf(manufacturer));
+				a.setManufacturer(manufacturer);
 				a.setModel(model);
 				a.setStartingPosition(startingPosition);
 				
-				
-				
-				
-				//add the aircraft to our list
-				aircraft.add(a);
-				
-				System.out.println("Aircraft: " + tailcode +  " of Model " + model + " is a " + type + " of " + manufacturer + " starting " + startingPosition + " with " + seats + " seats "  + cabinCrewRequired + " cabin crew required.");
+				//add the aircraft to the ones loaded from this file
+				loaded.add(a);
 			}
+			
+			return loaded;
 		}
 		
-		catch( IOException | ArrayIndexOutOfBoundsException  | NullPointerException | IllegalArgumentException ioe) {
+		catch( IOException | IndexOutOfBoundsException  | NullPointerException | IllegalArgumentException ioe) {
 			
 			throw new  DataLoadingException(ioe);
 			
 		}
+	}
+
+	private static void writeSnapshot(List<Aircraft> loaded, DataSnapshot.Writer writer) throws IOException {
 		
+		int n = loaded.size();
+		String[] tailCodes = new String[n], models = new String[n], types = new String[n], startingPositions = new String[n];
+		byte[] manufacturers = new byte[n];
+		int[] seats = new int[n], cabinCrewRequired = new int[n];
+		for (int i = 0; i < n; i++) {
+			Aircraft a = loaded.get(i);
+			tailCodes[i] = a.getTailCode();
+			models[i] = a.getModel();
+			types[i] = a.getTypeCode();
+			startingPositions[i] = a.getStartingPosition();
+			manufacturers[i] = (byte) a.getManufacturer().ordinal();
+			seats[i] = a.getSeats();
+			cabinCrewRequired[i] = a.getCabinCrewRequired();
+		}
+		
+		writer.count(n);
+		writer.strings(tailCodes);
+		writer.strings(models);
+		writer.strings(types);
+		writer.strings(startingPositions);
+		writer.bytes(manufacturers);
+		writer.ints(seats);
+		writer.ints(cabinCrewRequired);
+	}
+	
+	private static List<Aircraft> readSnapshot(DataSnapshot.Reader reader) {
+		
+		int n = reader.count();
+		String[] tailCodes = reader.strings(n);
+		String[] models = reader.strings(n);
+		String[] types = reader.strings(n);
+		String[] startingPositions = reader.strings(n);
+		byte[] manufacturers = reader.bytes(n);
+		int[] seats = reader.ints(n);
+		int[] cabinCrewRequired = reader.ints(n);
+		
+		Aircraft.Manufacturer[] allManufacturers = Aircraft.Manufacturer.values();
+		List<Aircraft> loaded = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			Aircraft a = new Aircraft();
+			a.setTailCode(tailCodes[i]);
+			a.setTypeCode(types[i]);
+			a.setSeats(seats[i]);
+			a.setCabinCrewRequired(cabinCrewRequired[i]);
+			a.setManufacturer(allManufacturers[manufacturers[i]]);
+			a.setModel(models[i]);
+			a.setStartingPosition(startingPositions[i]);
+			loaded.add(a);
+		}
+		return loaded;
+	}
 
-			
+	/**
+	 * Loads the aircraft data from the specified file in place of all of the currently loaded aircraft.
+	 * Unlike reset() followed by loadAircraftData(), other threads querying meanwhile see either the
+	 * old aircraft or the new, never none, and if the file can't be loaded the old aircraft are kept
+	 * @param p A Path pointing to the file from which data could be loaded
+	 * @throws DataLoadingException if anything goes wrong. The exception's "cause" indicates the underlying exception
+	 */
+	public void reloadAircraftData(Path p) throws DataLoadingException {
+		
+		long start = Metrics.start();
+		List<Aircraft> loaded = parse(p);
+		synchronized (this) {
+			LOADED.add(loaded.size());
+			contents = new Contents(Contents.EMPTY, loaded);
+		}
+		LOAD.stop(start);
+	}
 	
+	/**
+	 * Adds newly loaded aircraft to those already loaded, indexing only the new ones
+	 * @param loaded the aircraft to add, in file order
+	 */
+	private synchronized void addAll(List<Aircraft> loaded) {
+		
+		LOADED.add(loaded.size());
+		contents = new Contents(contents, loaded);
 	}
 	
 	/**
 	 * Returns a list of all the loaded Aircraft with at least the specified number of seats
 	 * @param seats the number of seats required
-	 * @return a List of all the loaded aircraft with at least this many seats
+	 * @return a List of all the loaded aircraft with at least this many seats, smallest first
 	 */
 	@Override
 	public List<Aircraft> findAircraftBySeats(int seats) {
 		
-		List<Aircraft> seatList = new ArrayList<>();
-		try {
-			
-			for (int i = 0; i < aircraft.size(); i++) {
-				if (aircraft.get(i).getSeats() >= (seats)) {
-					seatList.add(aircraft.get(i));
-					
-				}
+		long start = Metrics.start();
+		Contents c = contents;
+		
+		//binary search for the first aircraft with enough seats; everything after it qualifies too
+		int[] seatCounts = c.seatCounts;
+		int low = 0, high = seatCounts.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (seatCounts[mid] < seats) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
 			}
-			
 		}
 		
-		catch (Exception e) {
-			return Collections.emptyList();
-		}
-		return seatList;
+		List<Aircraft> found = Collections.unmodifiableList(Arrays.asList(c.aircraftBySeats).subList(low, seatCounts.length));
+		FIND_BY_SEATS.stop(start);
+		return found;
 	}
 				
 
@@ -122,21 +361,10 @@ public class AircraftDAO implements IAircraftDAO {
 	@Override
 	public List<Aircraft> findAircraftByStartingPosition(String startingPosition) {
 		
-		List<Aircraft> positionList = new ArrayList<>();
-		
-		try {
-			for (int i = 0; i < aircraft.size(); i++)
-				if (aircraft.get(i).getStartingPosition().contains(startingPosition))  {
-					positionList.add(aircraft.get(i));
-				}
-		}
-		catch (Exception e) {
-			return Collections.emptyList();
-			
-		}
-		
-		//System.out.println(positionList);
-		return positionList;
+		long start = Metrics.start();
+		List<Aircraft> found = contents.aircraftByStartingPosition.get(startingPosition);
+		FIND_BY_STARTING_POSITION.stop(start);
+		return found;
 	}
 
 	/**
@@ -147,21 +375,10 @@ public class AircraftDAO implements IAircraftDAO {
 	@Override
 	public Aircraft findAircraftByTailCode(String tailCode) {
 		
-		Aircraft tailCodeAircraft = null;
-	
-		try {
-			for (int i = 0; i < aircraft.size(); i++)
-				if (aircraft.get(i).getTailCode().contains(tailCode))  {
-					 tailCodeAircraft = aircraft.get(i);
-					
-				}
-		}
-		catch (Exception e) {
-			return null;
-			
-		}
-		return  tailCodeAircraft;
-		
+		long start = Metrics.start();
+		Aircraft found = contents.aircraftByTailCode.get(tailCode);
+		FIND_BY_TAIL_CODE.stop(start);
+		return found;
 	}
 
 	/**
@@ -172,42 +389,37 @@ public class AircraftDAO implements IAircraftDAO {
 	@Override
 	public List<Aircraft> findAircraftByType(String typeCode) {
 		
+		long start = Metrics.start();
+		List<Aircraft> found = contents.aircraftByType.get(typeCode);
+		FIND_BY_TYPE.stop(start);
+		return found;
+	}
 
-		List<Aircraft> typeCodeList = new ArrayList<>();
+	/**
+	 * Returns a List of all the loaded Aircraft made by the specified manufacturer
+	 * @param manufacturer the manufacturer of the aircraft you wish to find
+	 * @return a List of all the loaded Aircraft made by the specified manufacturer
+	 */
+	public List<Aircraft> findAircraftByManufacturer(Aircraft.Manufacturer manufacturer) {
 		
-		try {
-			for (int i = 0; i < aircraft.size(); i++)
-				if (aircraft.get(i).getTypeCode().contains(typeCode))  {
-					typeCodeList.add(aircraft.get(i));
-				}
-		}
-		catch (Exception e) {
-			return Collections.emptyList();
-			
-		}
-		System.out.println(typeCodeList);
-		return typeCodeList;
-	
+		long start = Metrics.start();
+		List<Aircraft> byManufacturer = manufacturer == null ? null : contents.aircraftByManufacturer.get(manufacturer);
+		List<Aircraft> found = byManufacturer == null ? Collections.emptyList() : Collections.unmodifiableList(byManufacturer);
+		FIND_BY_MANUFACTURER.stop(start);
+		return found;
 	}
 
 	/**
 	 * Returns a List of all the currently loaded aircraft
-	 * @return a List of all the currently loaded aircraft
+	 * @return a read-only List of all the currently loaded aircraft, which later loads don't change
 	 */
 	@Override
 	public List<Aircraft> getAllAircraft() {
 		
-		List<Aircraft> copyOfAircraft = new ArrayList<>();
-		copyOfAircraft.addAll(aircraft);
-		
-		
-			try {
-				return copyOfAircraft;
-			}
-			
-			catch (Exception e) {
-				return Collections.emptyList();
-			}
+		long start = Metrics.start();
+		List<Aircraft> all = contents.aircraft;
+		GET_ALL.stop(start);
+		return all;
 	}
 
 	/**
@@ -218,7 +430,7 @@ public class AircraftDAO implements IAircraftDAO {
 	public int getNumberOfAircraft() {
 		
 		
-		int numberOfAircraft = aircraft.size(); // get size of array, store it in variable
+		int numberOfAircraft = contents.aircraft.size(); // get size of array, store it in variable
 	//System.out.println(numberOfAircraft);
 		
 		return numberOfAircraft; // return size of array
@@ -228,11 +440,9 @@ public class AircraftDAO implements IAircraftDAO {
 	 * Unloads all of the aircraft currently loaded, ready to start again if needed
 	 */
 	@Override
-	public void reset() {
+	public synchronized void reset() {
 		
-		aircraft.clear();
-
-
+		contents = Contents.EMPTY;
 	}
 
 }
@@ -0,0 +1,96 @@
+package solution;
+import java.util.ArrayList;
+import java.util.List;
+
+import baseclasses.Aircraft;
+import baseclasses.CabinCrew;
+import baseclasses.DoubleBookedException;
+import baseclasses.FlightInfo;
+import baseclasses.InvalidAllocationException;
+import baseclasses.Pilot;
+import baseclasses.Schedule;
+
+/**
+ * The aircraft and crew of one flight
+ */
+final class Allocation {
+
+	final Aircraft aircraft;
+	final Pilot captain;
+	final Pilot firstOfficer;
+	final List<CabinCrew> cabinCrew;
+
+	Allocation(Aircraft aircraft, Pilot captain, Pilot firstOfficer, List<CabinCrew> cabinCrew) {
+
+		this.aircraft = aircraft;
+		this.captain = captain;
+		this.firstOfficer = firstOfficer;
+		this.cabinCrew = cabinCrew;
+	}
+
+	/**
+	 * Copies the allocation of a flight from a schedule
+	 * @param s the schedule
+	 * @param f the flight
+	 * @return the flight's aircraft and crew
+	 */
+	static Allocation of(Schedule s, FlightInfo f) {
+		return new Allocation(s.getAircraftFor(f), s.getCaptainOf(f), s.getFirstOfficerOf(f), new ArrayList<>(s.getCabinCrewOf(f)));
+	}
+
+	int crewSize() {
+		return 2 + cabinCrew.size();
+	}
+
+	//0 is the captain, 1 the first officer and the rest are the cabin crew in order
+	Object crewMember(int i) {
+		return i == 0 ? captain : i == 1 ? firstOfficer : cabinCrew.get(i - 2);
+	}
+
+	/**
+	 * Lists everything allocated to the flight
+	 * @return the aircraft, captain, first officer and cabin crew
+	 */
+	List<Object> resources() {
+
+		List<Object> resources = new ArrayList<>(crewSize() + 1);
+		resources.add(aircraft);
+		resources.add(captain);
+		resources.add(firstOfficer);
+		resources.addAll(cabinCrew);
+		return resources;
+	}
+
+	boolean contains(Object resource) {
+		return aircraft == resource || captain == resource || firstOfficer == resource || cabinCrew.contains(resource);
+	}
+
+	/**
+	 * Puts one aircraft or crew member in place of another
+	 * @return the new allocation, or null if the replacement is already on this flight
+	 */
+	Allocation replace(Object from, Object to) {
+
+		if (contains(to)) {
+			return null;
+		}
+		List<CabinCrew> crew = new ArrayList<>(cabinCrew);
+		int i = crew.indexOf(from);
+		if (i >= 0) {
+			crew.set(i, (CabinCrew) to);
+		}
+		return new Allocation(aircraft == from ? (Aircraft) to : aircraft, captain == from ? (Pilot) to : captain,
+				firstOfficer == from ? (Pilot) to : firstOfficer, crew);
+	}
+
+	void allocateTo(Schedule s, FlightInfo f) throws DoubleBookedException, InvalidAllocationException {
+
+		s.allocateAircraftTo(aircraft, f);
+		s.allocateCaptainTo(captain, f);
+		s.allocateFirstOfficerTo(firstOfficer, f);
+		for (CabinCrew c : cabinCrew) {
+			s.allocateCabinCrewTo(c, f);
+		}
+		s.completeAllocationFor(f);
+	}
+}
@@ -0,0 +1,182 @@
+package solution;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import baseclasses.FlightInfo;
+
+/**
+ * Records when each aircraft and crew member is busy and where they end up, so a candidate for a
+ * flight can be checked without going through Schedule, whose conflict checks scan every flight the
+ * resource has. Each resource's flights are kept in departure order as epoch minutes in primitive
+ * arrays, and as a resource never has overlapping flights they are in landing order too, so both
+ * questions are answered with a binary search
+ */
+final class AvailabilityIndex {
+
+	private final Map<Object, Intervals> intervals = new HashMap<>();
+
+	/**
+	 * Sets where a resource is before its first flight
+	 * @param resource the aircraft or crew member
+	 * @param airport their starting position or home base
+	 */
+	void start(Object resource, String airport) {
+		intervalsOf(resource).startingAirport = airport;
+	}
+
+	/**
+	 * Records that a resource is working a flight. The flight must not overlap any they already have
+	 * @param resource the aircraft or crew member
+	 * @param f the flight
+	 */
+	void add(Object resource, FlightInfo f) {
+		intervalsOf(resource).add(ScheduleBuilder.minutes(f.getDepartureDateTime()), ScheduleBuilder.minutes(f.getLandingDateTime()),
+				f.getFlight().getArrivalAirportCode());
+	}
+
+	/**
+	 * Forgets that a resource is working a flight
+	 * @param resource the aircraft or crew member
+	 * @param f the flight, which must have been added for them
+	 */
+	void remove(Object resource, FlightInfo f) {
+		intervalsOf(resource).remove(ScheduleBuilder.minutes(f.getDepartureDateTime()), ScheduleBuilder.minutes(f.getLandingDateTime()));
+	}
+
+	/**
+	 * Checks that a resource has no flight overlapping a period. Flights that end as the period
+	 * starts, or start as it ends, don't overlap it
+	 * @param resource the aircraft or crew member
+	 * @param from the start of the period, in epoch minutes
+	 * @param to the end of the period, in epoch minutes
+	 * @return true if the resource is free for the whole period
+	 */
+	boolean isFree(Object resource, long from, long to) {
+
+		Intervals i = intervals.get(resource);
+		if (i == null) {
+			return true;
+		}
+		//of the flights departing before the period ends, the last one lands last
+		int before = i.countDepartingBefore(to);
+		return before == 0 || i.lands[before - 1] <= from;
+	}
+
+	/**
+	 * Finds where a resource was at a given time: where their last flight to have landed by then
+	 * arrived, or where they started if they hadn't flown
+	 * @param resource the aircraft or crew member
+	 * @param time the time, in epoch minutes
+	 * @return the airport code, or null if the resource has no flights and no starting airport
+	 */
+	String lastSeenAt(Object resource, long time) {
+
+		Intervals i = intervals.get(resource);
+		if (i == null) {
+			return null;
+		}
+		int landed = i.countLandedBy(time);
+		return landed == 0 ? i.startingAirport : i.arrivals[landed - 1];
+	}
+
+	/**
+	 * Finds when a resource last landed by a given time
+	 * @param resource the aircraft or crew member
+	 * @param time the time, in epoch minutes
+	 * @return the landing time in epoch minutes, or Long.MIN_VALUE if they hadn't landed anywhere by then
+	 */
+	long lastLandedBy(Object resource, long time) {
+
+		Intervals i = intervals.get(resource);
+		if (i == null) {
+			return Long.MIN_VALUE;
+		}
+		int landed = i.countLandedBy(time);
+		return landed == 0 ? Long.MIN_VALUE : i.lands[landed - 1];
+	}
+
+	/**
+	 * Checks that a resource is free for a period and waiting at a given airport when it starts
+	 * @param resource the aircraft or crew member
+	 * @param from the start of the period, in epoch minutes
+	 * @param to the end of the period, in epoch minutes
+	 * @param airport the airport the period starts from
+	 * @return true if the resource could work a flight from the airport over the period without moving first
+	 */
+	boolean isAvailable(Object resource, long from, long to, String airport) {
+		return isFree(resource, from, to) && airport.equals(lastSeenAt(resource, from));
+	}
+
+	private Intervals intervalsOf(Object resource) {
+		return intervals.computeIfAbsent(resource, r -> new Intervals());
+	}
+
+	private static final class Intervals {
+
+		String startingAirport;
+		long[] departs = new long[8];
+		long[] lands = new long[8];
+		String[] arrivals = new String[8];
+		int size;
+
+		void add(long depart, long land, String arrival) {
+
+			if (size == departs.length) {
+				departs = Arrays.copyOf(departs, size * 2);
+				lands = Arrays.copyOf(lands, size * 2);
+				arrivals = Arrays.copyOf(arrivals, size * 2);
+			}
+			int i = countDepartingBefore(depart);
+			System.arraycopy(departs, i, departs, i + 1, size - i);
+			System.arraycopy(lands, i, lands, i + 1, size - i);
+			System.arraycopy(arrivals, i, arrivals, i + 1, size - i);
+			departs[i] = depart;
+			lands[i] = land;
+			arrivals[i] = arrival;
+			size++;
+		}
+
+		void remove(long depart, long land) {
+
+			//flights being moved between resources may overlap for a moment, so match both times
+			int i = countDepartingBefore(depart);
+			while (i < size && departs[i] == depart && lands[i] != land) {
+				i++;
+			}
+			if (i == size || departs[i] != depart) {
+				throw new IllegalArgumentException("No flight from minute " + depart + " to " + land);
+			}
+			System.arraycopy(departs, i + 1, departs, i, size - i - 1);
+			System.arraycopy(lands, i + 1, lands, i, size - i - 1);
+			System.arraycopy(arrivals, i + 1, arrivals, i, size - i - 1);
+			arrivals[--size] = null;
+		}
+
+		int countDepartingBefore(long time) {
+			return countBefore(departs, time);
+		}
+
+		int countLandedBy(long time) {
+			return countBefore(lands, time + 1);
+		}
+
+		//the number of values in the first size elements of a sorted array that are less than a limit
+		private int countBefore(long[] values, long limit) {
+
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (values[mid] < limit) {
+					low = mid + 1;
+				}
+				else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+
+}
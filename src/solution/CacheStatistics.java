@@ -0,0 +1,101 @@
+package solution;
+
+/**
+ * How well one of the caching DAOs' caches has done, for choosing how big to make it. A low hit
+ * rate with many evictions means the cache is too small for the queries being made; a cache that
+ * never fills could be smaller
+ */
+public final class CacheStatistics {
+
+	private final String name;
+	private final long hits;
+	private final long misses;
+	private final long evictions;
+	private final long invalidations;
+	private final int size;
+	private final int capacity;
+
+	CacheStatistics(String name, long hits, long misses, long evictions, long invalidations, int size, int capacity) {
+
+		this.name = name;
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.invalidations = invalidations;
+		this.size = size;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns the name of the cache
+	 * @return the name, e.g. "crew"
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns how many queries were answered from the cache
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns how many queries had to be passed on to the DAO
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the share of queries answered from the cache
+	 * @return the hits divided by all queries, or 0 if there have been none
+	 */
+	public double getHitRate() {
+
+		long queries = hits + misses;
+		return queries == 0 ? 0 : (double) hits / queries;
+	}
+
+	/**
+	 * Returns how many results were dropped to make room for others
+	 * @return the number of evictions
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns how many times the whole cache was emptied because data was loaded or reset
+	 * @return the number of invalidations
+	 */
+	public long getInvalidations() {
+		return invalidations;
+	}
+
+	/**
+	 * Returns how many results the cache holds
+	 * @return the number of entries
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the most results the cache can hold
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %,d hits, %,d misses (%.1f%% hit rate), %,d evictions, %,d invalidations, %,d of %,d entries",
+				name, hits, misses, 100 * getHitRate(), evictions, invalidations, size, capacity);
+	}
+
+}
@@ -0,0 +1,115 @@
+package solution;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Supplier;
+
+import baseclasses.Aircraft;
+import baseclasses.DataLoadingException;
+import baseclasses.IAircraftDAO;
+
+/**
+ * Wraps any aircraft DAO, remembering the result of each query so asking again with the same
+ * arguments doesn't go back to the DAO. Results are kept as the DAO returned them, so it should
+ * hand out lists that don't change afterwards, as the DAOs in this package do. At most a fixed
+ * number are kept, dropping the least recently used. Loading or resetting through this DAO
+ * empties the cache; loading into the wrapped DAO directly would leave it out of date
+ */
+public class CachingAircraftDAO implements IAircraftDAO {
+
+	//how many results are kept unless told otherwise
+	static final int DEFAULT_CAPACITY = 1024;
+
+	private static final int BY_TYPE = 0;
+	private static final int BY_SEATS = 1;
+	private static final int BY_STARTING_POSITION = 2;
+	private static final int BY_TAIL_CODE = 3;
+	private static final int ALL = 4;
+
+	private final IAircraftDAO aircraftDAO;
+	private final LruCache<QueryKey, Object> cache;
+
+	/**
+	 * Wraps a DAO with a cache of the default size
+	 * @param aircraftDAO the DAO to pass queries on to
+	 */
+	public CachingAircraftDAO(IAircraftDAO aircraftDAO) {
+		this(aircraftDAO, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Wraps a DAO with a cache of the given size
+	 * @param aircraftDAO the DAO to pass queries on to
+	 * @param capacity the most results to keep
+	 */
+	public CachingAircraftDAO(IAircraftDAO aircraftDAO, int capacity) {
+
+		this.aircraftDAO = aircraftDAO;
+		cache = new LruCache<>("aircraft", capacity);
+	}
+
+	/**
+	 * Returns how well the cache has done so far
+	 * @return the cache's hits, misses, evictions and size
+	 */
+	public CacheStatistics getStatistics() {
+		return cache.statistics();
+	}
+
+	@Override
+	public void loadAircraftData(Path p) throws DataLoadingException {
+
+		try {
+			aircraftDAO.loadAircraftData(p);
+		}
+		finally {
+			cache.clear();
+		}
+	}
+
+	@Override
+	public int getNumberOfAircraft() {
+		return aircraftDAO.getNumberOfAircraft();
+	}
+
+	@Override
+	public List<Aircraft> findAircraftByType(String typeCode) {
+		return cached(BY_TYPE, typeCode, () -> aircraftDAO.findAircraftByType(typeCode));
+	}
+
+	@Override
+	public List<Aircraft> findAircraftBySeats(int seats) {
+		return cached(BY_SEATS, seats, () -> aircraftDAO.findAircraftBySeats(seats));
+	}
+
+	@Override
+	public List<Aircraft> findAircraftByStartingPosition(String startingPosition) {
+		return cached(BY_STARTING_POSITION, startingPosition, () -> aircraftDAO.findAircraftByStartingPosition(startingPosition));
+	}
+
+	@Override
+	public Aircraft findAircraftByTailCode(String tailCode) {
+		return (Aircraft) cache.get(new QueryKey(BY_TAIL_CODE, tailCode, null), () -> aircraftDAO.findAircraftByTailCode(tailCode));
+	}
+
+	@Override
+	public List<Aircraft> getAllAircraft() {
+		return cached(ALL, null, aircraftDAO::getAllAircraft);
+	}
+
+	@Override
+	public void reset() {
+
+		try {
+			aircraftDAO.reset();
+		}
+		finally {
+			cache.clear();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Aircraft> cached(int query, Object argument, Supplier<List<Aircraft>> find) {
+		return (List<Aircraft>) cache.get(new QueryKey(query, argument, null), find::get);
+	}
+
+}
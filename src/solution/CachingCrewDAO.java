@@ -0,0 +1,151 @@
+package solution;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Supplier;
+
+import baseclasses.CabinCrew;
+import baseclasses.Crew;
+import baseclasses.DataLoadingException;
+import baseclasses.ICrewDAO;
+import baseclasses.Pilot;
+
+/**
+ * Wraps any crew DAO, remembering the result of each query so asking again with the same
+ * arguments doesn't go back to the DAO. The scheduler asks for the same base and type rating
+ * for every flight from that base on that type, so most of its crew queries are repeats.
+ * Results are kept as the DAO returned them, so it should hand out lists that don't change
+ * afterwards, as the DAOs in this package do. At most a fixed number are kept, dropping the
+ * least recently used. Loading or resetting through this DAO empties the cache; loading into
+ * the wrapped DAO directly would leave it out of date
+ */
+public class CachingCrewDAO implements ICrewDAO {
+
+	//how many results are kept unless told otherwise
+	static final int DEFAULT_CAPACITY = 1024;
+
+	private static final int ALL_PILOTS = 0;
+	private static final int PILOTS_BY_TYPE_RATING = 1;
+	private static final int PILOTS_BY_HOME_BASE = 2;
+	private static final int PILOTS_BY_HOME_BASE_AND_TYPE_RATING = 3;
+	private static final int ALL_CABIN_CREW = 4;
+	private static final int ALL_CREW = 5;
+	private static final int CABIN_CREW_BY_TYPE_RATING = 6;
+	private static final int CABIN_CREW_BY_HOME_BASE = 7;
+	private static final int CABIN_CREW_BY_HOME_BASE_AND_TYPE_RATING = 8;
+
+	private final ICrewDAO crewDAO;
+	private final LruCache<QueryKey, List<? extends Crew>> cache;
+
+	/**
+	 * Wraps a DAO with a cache of the default size
+	 * @param crewDAO the DAO to pass queries on to
+	 */
+	public CachingCrewDAO(ICrewDAO crewDAO) {
+		this(crewDAO, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Wraps a DAO with a cache of the given size
+	 * @param crewDAO the DAO to pass queries on to
+	 * @param capacity the most results to keep
+	 */
+	public CachingCrewDAO(ICrewDAO crewDAO, int capacity) {
+
+		this.crewDAO = crewDAO;
+		cache = new LruCache<>("crew", capacity);
+	}
+
+	/**
+	 * Returns how well the cache has done so far
+	 * @return the cache's hits, misses, evictions and size
+	 */
+	public CacheStatistics getStatistics() {
+		return cache.statistics();
+	}
+
+	@Override
+	public void loadCrewData(Path p) throws DataLoadingException {
+
+		try {
+			crewDAO.loadCrewData(p);
+		}
+		finally {
+			cache.clear();
+		}
+	}
+
+	@Override
+	public int getNumberOfPilots() {
+		return crewDAO.getNumberOfPilots();
+	}
+
+	@Override
+	public List<Pilot> getAllPilots() {
+		return cached(ALL_PILOTS, null, null, crewDAO::getAllPilots);
+	}
+
+	@Override
+	public List<Pilot> findPilotsByTypeRating(String typeCode) {
+		return cached(PILOTS_BY_TYPE_RATING, typeCode, null, () -> crewDAO.findPilotsByTypeRating(typeCode));
+	}
+
+	@Override
+	public List<Pilot> findPilotsByHomeBase(String airportCode) {
+		return cached(PILOTS_BY_HOME_BASE, airportCode, null, () -> crewDAO.findPilotsByHomeBase(airportCode));
+	}
+
+	@Override
+	public List<Pilot> findPilotsByHomeBaseAndTypeRating(String typeCode, String airportCode) {
+		return cached(PILOTS_BY_HOME_BASE_AND_TYPE_RATING, typeCode, airportCode,
+				() -> crewDAO.findPilotsByHomeBaseAndTypeRating(typeCode, airportCode));
+	}
+
+	@Override
+	public int getNumberOfCabinCrew() {
+		return crewDAO.getNumberOfCabinCrew();
+	}
+
+	@Override
+	public List<CabinCrew> getAllCabinCrew() {
+		return cached(ALL_CABIN_CREW, null, null, crewDAO::getAllCabinCrew);
+	}
+
+	@Override
+	public List<Crew> getAllCrew() {
+		return cached(ALL_CREW, null, null, crewDAO::getAllCrew);
+	}
+
+	@Override
+	public List<CabinCrew> findCabinCrewByTypeRating(String typeCode) {
+		return cached(CABIN_CREW_BY_TYPE_RATING, typeCode, null, () -> crewDAO.findCabinCrewByTypeRating(typeCode));
+	}
+
+	@Override
+	public List<CabinCrew> findCabinCrewByHomeBase(String airportCode) {
+		return cached(CABIN_CREW_BY_HOME_BASE, airportCode, null, () -> crewDAO.findCabinCrewByHomeBase(airportCode));
+	}
+
+	@Override
+	public List<CabinCrew> findCabinCrewByHomeBaseAndTypeRating(String typeCode, String airportCode) {
+		return cached(CABIN_CREW_BY_HOME_BASE_AND_TYPE_RATING, typeCode, airportCode,
+				() -> crewDAO.findCabinCrewByHomeBaseAndTypeRating(typeCode, airportCode));
+	}
+
+	@Override
+	public void reset() {
+
+		try {
+			crewDAO.reset();
+		}
+		finally {
+			cache.clear();
+		}
+	}
+
+	//each query number is only ever stored with results of its own type
+	@SuppressWarnings("unchecked")
+	private <C extends Crew> List<C> cached(int query, String first, String second, Supplier<List<C>> find) {
+		return (List<C>) cache.get(new QueryKey(query, first, second), find::get);
+	}
+
+}
@@ -0,0 +1,84 @@
+package solution;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import baseclasses.DataLoadingException;
+import baseclasses.IPassengerNumbersDAO;
+
+/**
+ * Wraps any passenger numbers DAO, remembering each forecast looked up so asking again for the
+ * same flight and date doesn't go back to the DAO. This pays off for a DAO that queries its
+ * database on every lookup rather than loading it all up front. At most a fixed number of
+ * forecasts are kept, dropping the least recently used. Loading or resetting through this DAO
+ * empties the cache; loading into the wrapped DAO directly would leave it out of date
+ */
+public class CachingPassengerNumbersDAO implements IPassengerNumbersDAO {
+
+	//how many forecasts are kept unless told otherwise
+	static final int DEFAULT_CAPACITY = 65536;
+
+	private final IPassengerNumbersDAO passengerNumbersDAO;
+	private final LruCache<Long, Integer> cache;
+
+	/**
+	 * Wraps a DAO with a cache of the default size
+	 * @param passengerNumbersDAO the DAO to pass lookups on to
+	 */
+	public CachingPassengerNumbersDAO(IPassengerNumbersDAO passengerNumbersDAO) {
+		this(passengerNumbersDAO, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Wraps a DAO with a cache of the given size
+	 * @param passengerNumbersDAO the DAO to pass lookups on to
+	 * @param capacity the most forecasts to keep
+	 */
+	public CachingPassengerNumbersDAO(IPassengerNumbersDAO passengerNumbersDAO, int capacity) {
+
+		this.passengerNumbersDAO = passengerNumbersDAO;
+		cache = new LruCache<>("passengers", capacity);
+	}
+
+	/**
+	 * Returns how well the cache has done so far
+	 * @return the cache's hits, misses, evictions and size
+	 */
+	public CacheStatistics getStatistics() {
+		return cache.statistics();
+	}
+
+	@Override
+	public void loadPassengerNumbersData(Path p) throws DataLoadingException {
+
+		try {
+			passengerNumbersDAO.loadPassengerNumbersData(p);
+		}
+		finally {
+			cache.clear();
+		}
+	}
+
+	@Override
+	public int getPassengerNumbersFor(int flightNumber, LocalDate date) {
+
+		long key = PassengerNumbersDAO.key(flightNumber, date.toEpochDay());
+		return cache.get(key, () -> passengerNumbersDAO.getPassengerNumbersFor(flightNumber, date));
+	}
+
+	@Override
+	public int getNumberOfEntries() {
+		return passengerNumbersDAO.getNumberOfEntries();
+	}
+
+	@Override
+	public void reset() {
+
+		try {
+			passengerNumbersDAO.reset();
+		}
+		finally {
+			cache.clear();
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+package solution;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+import baseclasses.DataLoadingException;
+import baseclasses.IRouteDAO;
+import baseclasses.Route;
+
+/**
+ * Wraps any route DAO, remembering the result of each query so asking again with the same
+ * arguments doesn't go back to the DAO. Results are kept as the DAO returned them, so it should
+ * hand out lists that don't change afterwards, as the DAOs in this package do. At most a fixed
+ * number are kept, dropping the least recently used. Loading or resetting through this DAO
+ * empties the cache; loading into the wrapped DAO directly would leave it out of date
+ */
+public class CachingRouteDAO implements IRouteDAO {
+
+	//how many results are kept unless told otherwise
+	static final int DEFAULT_CAPACITY = 1024;
+
+	private static final int BY_DAY_OF_WEEK = 0;
+	private static final int BY_DATE = 1;
+	private static final int DEPARTING_AIRPORT = 2;
+	private static final int BY_DEPARTURE_AIRPORT_AND_DAY = 3;
+	private static final int ALL = 4;
+
+	private final IRouteDAO routeDAO;
+	private final LruCache<QueryKey, List<Route>> cache;
+
+	/**
+	 * Wraps a DAO with a cache of the default size
+	 * @param routeDAO the DAO to pass queries on to
+	 */
+	public CachingRouteDAO(IRouteDAO routeDAO) {
+		this(routeDAO, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Wraps a DAO with a cache of the given size
+	 * @param routeDAO the DAO to pass queries on to
+	 * @param capacity the most results to keep
+	 */
+	public CachingRouteDAO(IRouteDAO routeDAO, int capacity) {
+
+		this.routeDAO = routeDAO;
+		cache = new LruCache<>("routes", capacity);
+	}
+
+	/**
+	 * Returns how well the cache has done so far
+	 * @return the cache's hits, misses, evictions and size
+	 */
+	public CacheStatistics getStatistics() {
+		return cache.statistics();
+	}
+
+	@Override
+	public void loadRouteData(Path p) throws DataLoadingException {
+
+		try {
+			routeDAO.loadRouteData(p);
+		}
+		finally {
+			cache.clear();
+		}
+	}
+
+	@Override
+	public int getNumberOfRoutes() {
+		return routeDAO.getNumberOfRoutes();
+	}
+
+	@Override
+	public List<Route> findRoutesByDayOfWeek(String dayOfWeek) {
+		return cached(BY_DAY_OF_WEEK, dayOfWeek, null, () -> routeDAO.findRoutesByDayOfWeek(dayOfWeek));
+	}
+
+	@Override
+	public List<Route> findRoutesbyDate(LocalDate date) {
+		return cached(BY_DATE, date, null, () -> routeDAO.findRoutesbyDate(date));
+	}
+
+	@Override
+	public List<Route> findRoutesDepartingAirport(String airportCode) {
+		return cached(DEPARTING_AIRPORT, airportCode, null, () -> routeDAO.findRoutesDepartingAirport(airportCode));
+	}
+
+	@Override
+	public List<Route> findRoutesByDepartureAirportAndDay(String airportCode, String dayOfWeek) {
+		return cached(BY_DEPARTURE_AIRPORT_AND_DAY, airportCode, dayOfWeek, () -> routeDAO.findRoutesByDepartureAirportAndDay(airportCode, dayOfWeek));
+	}
+
+	@Override
+	public List<Route> getAllRoutes() {
+		return cached(ALL, null, null, routeDAO::getAllRoutes);
+	}
+
+	@Override
+	public void reset() {
+
+		try {
+			routeDAO.reset();
+		}
+		finally {
+			cache.clear();
+		}
+	}
+
+	private List<Route> cached(int query, Object first, Object second, Supplier<List<Route>> find) {
+		return cache.get(new QueryKey(query, first, second), find);
+	}
+
+}
@@ -5,11 +5,16 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 import baseclasses.CabinCrew;
 import baseclasses.Crew;
@@ -20,12 +25,75 @@ import baseclasses.Pilot;
 /**
  * The CrewDAO is responsible for loading data from JSON-based crew files 
  * It contains various methods to help the scheduler find the right pilots and cabin crew
+ *
+ * It is safe to share between threads. The crew and their indexes are never changed once built:
+ * each load or reset builds new ones and swaps them in at once, so queries take no locks and see
+ * the crew from before a load or after it, never part of one
  */
 public class CrewDAO implements ICrewDAO {
 	
-	List<CabinCrew> cabinCrew = new ArrayList<>();
-	List<Pilot> pilot = new ArrayList<>();
-	List<Crew> crew = new ArrayList<>();
+	//the loaded crew, replaced whole by each load and reset
+	private volatile Contents contents = Contents.EMPTY;
+	
+	/**
+	 * The loaded crew and the indexes over them, none of which change once built
+	 */
+	private static final class Contents {
+		
+		static final Contents EMPTY = new Contents(Collections.emptyList());
+		
+		//read-only lists handed out by the getAll methods, so callers share one list instead of each getting a copy
+		final List<CabinCrew> cabinCrew;
+		final List<Pilot> pilot;
+		final List<Crew> crew;
+		
+		//secondary indexes over the lists above
+		final MultiValueIndex<String, Pilot> pilotsByHomeBase = new MultiValueIndex<>();
+		final MultiValueIndex<String, Pilot> pilotsByTypeRating = new MultiValueIndex<>();
+		final Map<String, MultiValueIndex<String, Pilot>> pilotsByHomeBaseAndTypeRating = new HashMap<>();
+		final MultiValueIndex<String, CabinCrew> cabinCrewByHomeBase = new MultiValueIndex<>();
+		final MultiValueIndex<String, CabinCrew> cabinCrewByTypeRating = new MultiValueIndex<>();
+		final Map<String, MultiValueIndex<String, CabinCrew>> cabinCrewByHomeBaseAndTypeRating = new HashMap<>();
+		
+		/**
+		 * Indexes some crew
+		 * @param crew the crew, pilots and cabin crew in the order they were loaded
+		 */
+		Contents(List<Crew> crew) {
+			
+			List<CabinCrew> cabinCrew = new ArrayList<>();
+			List<Pilot> pilot = new ArrayList<>();
+			for (Crew member : crew) {
+				if (member instanceof Pilot) {
+					Pilot pl = (Pilot) member;
+					pilot.add(pl);
+					addToIndexes(pl, pilotsByHomeBase, pilotsByTypeRating, pilotsByHomeBaseAndTypeRating);
+				}
+				else {
+					CabinCrew cabinC = (CabinCrew) member;
+					cabinCrew.add(cabinC);
+					addToIndexes(cabinC, cabinCrewByHomeBase, cabinCrewByTypeRating, cabinCrewByHomeBaseAndTypeRating);
+				}
+			}
+			this.cabinCrew = Collections.unmodifiableList(cabinCrew);
+			this.pilot = Collections.unmodifiableList(pilot);
+			this.crew = Collections.unmodifiableList(new ArrayList<>(crew));
+		}
+	}
+	
+	//how long each load and query takes, and how many crew are loaded, while metrics are on
+	private static final Metrics.Timer LOAD = Metrics.timer("crew.loadCrewData");
+	private static final Metrics.Counter LOADED = Metrics.counter("crew.loaded");
+	private static final Metrics.Counter RESTORED = Metrics.counter("crew.restoredFromSnapshot");
+	private static final Metrics.Timer FIND_CABIN_CREW_BY_HOME_BASE = Metrics.timer("crew.findCabinCrewByHomeBase");
+	private static final Metrics.Timer FIND_CABIN_CREW_BY_HOME_BASE_AND_TYPE_RATING = Metrics.timer("crew.findCabinCrewByHomeBaseAndTypeRating");
+	private static final Metrics.Timer FIND_CABIN_CREW_BY_TYPE_RATING = Metrics.timer("crew.findCabinCrewByTypeRating");
+	private static final Metrics.Timer FIND_PILOTS_BY_HOME_BASE = Metrics.timer("crew.findPilotsByHomeBase");
+	private static final Metrics.Timer FIND_PILOTS_BY_HOME_BASE_AND_TYPE_RATING = Metrics.timer("crew.findPilotsByHomeBaseAndTypeRating");
+	private static final Metrics.Timer FIND_PILOTS_BY_TYPE_RATING = Metrics.timer("crew.findPilotsByTypeRating");
+	private static final Metrics.Timer GET_ALL_CABIN_CREW = Metrics.timer("crew.getAllCabinCrew");
+	private static final Metrics.Timer GET_ALL_CREW = Metrics.timer("crew.getAllCrew");
+	private static final Metrics.Timer GET_ALL_PILOTS = Metrics.timer("crew.getAllPilots");
 
 	/**
 	 * Loads the crew data from the specified file, adding them to the currently loaded crew
@@ -36,91 +104,101 @@ public class CrewDAO implements ICrewDAO {
 	@Override
 	public void loadCrewData(Path p) throws DataLoadingException {
 		
+		long start = Metrics.start();
+		addAll(parse(p));
+		LOAD.stop(start);
+	}
+	
+	/**
+	 * Loads the crew data from the specified file like loadCrewData(Path), but restores it from a
+	 * snapshot instead if one has been saved since the file last changed. Otherwise the file is
+	 * parsed and a snapshot of it saved, ready for the next time it is loaded
+	 * @param p A Path pointing to the file from which data could be loaded
+	 * @param snapshot A Path pointing to the snapshot of the file, which need not exist yet
+	 * @throws DataLoadingException if anything goes wrong. The exception's "cause" indicates the underlying exception
+	 */
+	public void loadCrewData(Path p, Path snapshot) throws DataLoadingException {
+		
+		long start = Metrics.start();
+		List<Crew> loaded;
 		try {
+			loaded = DataSnapshot.restore(snapshot, p, DataSnapshot.CREW, CrewDAO::readSnapshot);
+		}
+		catch (IOException ioe) {
+			throw new DataLoadingException(ioe);
+		}
+		
+		if (loaded == null) {
+			List<Crew> parsed = parse(p);
+			DataSnapshot.save(snapshot, p, DataSnapshot.CREW, writer -> writeSnapshot(parsed, writer));
+			loaded = parsed;
+		}
+		else {
+			RESTORED.increment();
+		}
+		addAll(loaded);
+		LOAD.stop(start);
+	}
+	
+	/**
+	 * Reads the crew from a file without adding them to the DAO
+	 * @param p the file to read
+	 * @return the pilots and then the cabin crew, each in file order
+	 * @throws DataLoadingException if the file can't be read or parsed
+	 */
+	private static List<Crew> parse(Path p) throws DataLoadingException {
+		
+		//only add this file's crew once it has all been read, so a bad file leaves the DAO as it was
+		List<Pilot> loadedPilots = new ArrayList<>();
+		List<CabinCrew> loadedCabinCrew = new ArrayList<>();
+		
+		try (BufferedReader br = Files.newBufferedReader(p)) {
 			
-			BufferedReader br = Files.newBufferedReader(p);
-			String json = ""; String line = "";
-			while ((line = br.readLine ()) != null) { json = json + line; }
-			
-			
-			JSONObject root = new JSONObject(json);
-			JSONArray pilots = root.getJSONArray("pilots");
-			JSONArray crewCabin = root.getJSONArray("cabincrew");
-			
+			//walk the top level of the file token by token, so only one crew record is ever held as a JSONObject
+			JSONTokener tokens = new JSONTokener(br);
+			boolean seenPilots = false;
+			boolean seenCabinCrew = false;
 			
-			for (int i = 0; i < pilots.length(); i++ ) {
-				
-				
-				JSONArray typeRatings = pilots.getJSONObject(i).getJSONArray("type_ratings");
-				String foreName = pilots.getJSONObject(i).getString("forename");
-				String surName = pilots.getJSONObject(i).getString("surname");
-				String homeBase = pilots.getJSONObject(i).getString("home_airport");
-				String rank = pilots.getJSONObject(i).getString("rank");
-				
+			if (tokens.nextClean() != '{') {
+				throw tokens.syntaxError("A crew file must begin with '{'");
+			}
 			
-				Pilot pl = new Pilot();
+			char c = tokens.nextClean();
+			while (c != '}') {
+				tokens.back();
 				
-				pl.setForename(foreName);
-				pl.setSurname(surName);
-				pl.setRank(Pilot.Rank.valueOf(rank));
-				pl.setHomeBase(homeBase);
-				
-				
-				for(int j = 0; j < typeRatings.length(); j++ ) {
-					
-				String typeRating = typeRatings.getString(j);
-			
-			
-					pl.setQualifiedFor(typeRating);
-					
+				String key = tokens.nextValue().toString();
+				if (tokens.nextClean() != ':') {
+					throw tokens.syntaxError("Expected a ':' after " + key);
 				}
 				
-				
-				pilot.add(pl);
-				crew.add(pl);
-				
-				
-			
+				if (key.equals("pilots")) {
+					readRecords(tokens, record -> loadedPilots.add(toPilot(record)));
+					seenPilots = true;
+				}
+				else if (key.equals("cabincrew")) {
+					readRecords(tokens, record -> loadedCabinCrew.add(toCabinCrew(record)));
+					seenCabinCrew = true;
+				}
+				else {
+					tokens.nextValue();
 				}
-			
-			for (int i = 0; i < crewCabin.length(); i++) {
-				
-				
-				
-				String foreName = crewCabin.getJSONObject(i).getString("forename");
-				String surName = crewCabin.getJSONObject(i).getString("surname");
-				String homeBase = crewCabin.getJSONObject(i).getString("home_airport");
-				JSONArray typeRatings = crewCabin.getJSONObject(i).getJSONArray("type_ratings");
-				
-				
-				CabinCrew cabinC = new CabinCrew();
-				
-				
-				cabinC.setForename(foreName);
-				cabinC.setSurname(surName);
-				cabinC.setHomeBase(homeBase);
-				
-				
-			
-				for(int j = 0; j < typeRatings.length(); j++ ) {
-					
-					String typeRating = typeRatings.getString(j);
-					
-						cabinC.setQualifiedFor(typeRating);
-						
-						
-					}
 				
-				cabinCrew.add(cabinC);
-				crew.add(cabinC);
-			
-					
-	}
-			
+				c = tokens.nextClean();
+				if (c == ',') {
+					c = tokens.nextClean();
+				}
+				else if (c != '}') {
+					throw tokens.syntaxError("Expected a ',' or '}'");
+				}
+			}
 			
+			if (!seenPilots || !seenCabinCrew) {
+				throw new JSONException("A crew file must contain both \"pilots\" and \"cabincrew\"");
+			}
 		}
 		
-		catch(IOException | NullPointerException  ioe){
+		catch(IOException | NullPointerException | IllegalArgumentException ioe){
 			throw new DataLoadingException(ioe);
 		}
 		
@@ -128,59 +206,231 @@ public class CrewDAO implements ICrewDAO {
 			throw new DataLoadingException(e);
 		}
 		
+		List<Crew> loaded = new ArrayList<>(loadedPilots.size() + loadedCabinCrew.size());
+		loaded.addAll(loadedPilots);
+		loaded.addAll(loadedCabinCrew);
+		return loaded;
+	}
+	
+	/**
+	 * Loads the crew data from the specified file in place of all of the currently loaded crew.
+	 * Unlike reset() followed by loadCrewData(), other threads querying meanwhile see either the
+	 * old crew or the new, never none, and if the file can't be loaded the old crew are kept
+	 * @param p A Path pointing to the file from which data could be loaded
+	 * @throws DataLoadingException if anything goes wrong. The exception's "cause" indicates the underlying exception
+	 */
+	public void reloadCrewData(Path p) throws DataLoadingException {
 		
+		long start = Metrics.start();
+		List<Crew> loaded = parse(p);
+		synchronized (this) {
+			LOADED.add(loaded.size());
+			contents = new Contents(loaded);
+		}
+		LOAD.stop(start);
 	}
 	
 	/**
-	 * Returns a list of all the cabin crew based at the airport with the specified airport code
-	 * @param airportCode the three-letter airport code of the airport to check for
-	 * @return a list of all the cabin crew based at the airport with the specified airport code
+	 * Adds newly loaded crew to those already loaded, rebuilding the lists and indexes over them all
+	 * @param loaded the crew to add, pilots and cabin crew in any order
 	 */
-	@Override
-	public List<CabinCrew> findCabinCrewByHomeBase(String airportCode) {
+	private synchronized void addAll(List<Crew> loaded) {
+		
+		LOADED.add(loaded.size());
+		List<Crew> all = new ArrayList<>(contents.crew.size() + loaded.size());
+		all.addAll(contents.crew);
+		all.addAll(loaded);
+		contents = new Contents(all);
+	}
 	
-		List<CabinCrew> cHomeBaseList = new ArrayList<>();
+	//cabin crew have no rank, so are written with this in place of one
+	private static final byte NO_RANK = -1;
+	
+	private static void writeSnapshot(List<Crew> loaded, DataSnapshot.Writer writer) throws IOException {
+		
+		int n = loaded.size();
+		String[] forenames = new String[n], surnames = new String[n], homeBases = new String[n];
+		byte[] ranks = new byte[n];
+		int[] ratingCounts = new int[n];
+		List<String> ratings = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			Crew member = loaded.get(i);
+			forenames[i] = member.getForename();
+			surnames[i] = member.getSurname();
+			homeBases[i] = member.getHomeBase();
+			ranks[i] = member instanceof Pilot ? (byte) ((Pilot) member).getRank().ordinal() : NO_RANK;
+			ratingCounts[i] = member.getTypeRatings().size();
+			ratings.addAll(member.getTypeRatings());
+		}
 		
-			try {
-				for (int i = 0; i < cabinCrew.size(); i++)
+		writer.count(n);
+		writer.strings(forenames);
+		writer.strings(surnames);
+		writer.strings(homeBases);
+		writer.bytes(ranks);
+		writer.ints(ratingCounts);
+		writer.count(ratings.size());
+		writer.strings(ratings.toArray(new String[0]));
+	}
+	
+	private static List<Crew> readSnapshot(DataSnapshot.Reader reader) {
+		
+		int n = reader.count();
+		String[] forenames = reader.strings(n);
+		String[] surnames = reader.strings(n);
+		String[] homeBases = reader.strings(n);
+		byte[] ranks = reader.bytes(n);
+		int[] ratingCounts = reader.ints(n);
+		String[] ratings = reader.strings(reader.count());
+		
+		Pilot.Rank[] allRanks = Pilot.Rank.values();
+		List<Crew> loaded = new ArrayList<>(n);
+		int rating = 0;
+		for (int i = 0; i < n; i++) {
+			Crew member;
+			if (ranks[i] == NO_RANK) {
+				member = new CabinCrew();
+			}
+			else {
+				Pilot pl = new Pilot();
+				pl.setRank(allRanks[ranks[i]]);
+				member = pl;
+			}
+			member.setForename(forenames[i]);
+			member.setSurname(surnames[i]);
+			member.setHomeBase(homeBases[i]);
+			for (int j = 0; j < ratingCounts[i]; j++) {
+				member.setQualifiedFor(ratings[rating++]);
+			}
+			loaded.add(member);
+		}
+		return loaded;
+	}
+	
+	/**
+	 * Reads a JSON array of crew records from the tokeniser, handing each record on as soon as it is parsed
+	 * @param tokens the tokeniser, positioned just before the array
+	 * @param handler what to do with each record
+	 * @throws JSONException if the array is malformed or holds something other than objects
+	 */
+	private static void readRecords(JSONTokener tokens, Consumer<JSONObject> handler) {
 		
-					if (cabinCrew.get(i).getHomeBase().contains(airportCode))  {
-					cHomeBaseList.add(cabinCrew.get(i));
-					
-				}
+		if (tokens.nextClean() != '[') {
+			throw tokens.syntaxError("Expected an array of crew");
 		}
-			catch (Exception e) {
-				return Collections.emptyList();
+		
+		char c = tokens.nextClean();
+		while (c != ']') {
+			tokens.back();
+			
+			Object record = tokens.nextValue();
+			if (!(record instanceof JSONObject)) {
+				throw tokens.syntaxError("Expected a crew record");
+			}
+			handler.accept((JSONObject) record);
 			
+			c = tokens.nextClean();
+			if (c == ',') {
+				c = tokens.nextClean();
+			}
+			else if (c != ']') {
+				throw tokens.syntaxError("Expected a ',' or ']'");
+			}
 		}
+	}
+	
+	private static Pilot toPilot(JSONObject record) {
+		
+		Pilot pl = new Pilot();
+		
+		pl.setForename(record.getString("forename"));
+		pl.setSurname(record.getString("surname"));
+		pl.setRank(Pilot.Rank.valueOf(record.getString("rank")));
+		pl.setHomeBase(record.getString("home_airport"));
 		
+		JSONArray typeRatings = record.getJSONArray("type_ratings");
+		for(int j = 0; j < typeRatings.length(); j++ ) {
+			pl.setQualifiedFor(typeRatings.getString(j));
+		}
 		
-		return cHomeBaseList;
+		return pl;
+	}
+	
+	private static CabinCrew toCabinCrew(JSONObject record) {
+		
+		CabinCrew cabinC = new CabinCrew();
+		
+		cabinC.setForename(record.getString("forename"));
+		cabinC.setSurname(record.getString("surname"));
+		cabinC.setHomeBase(record.getString("home_airport"));
+		
+		JSONArray typeRatings = record.getJSONArray("type_ratings");
+		for(int j = 0; j < typeRatings.length(); j++ ) {
+			cabinC.setQualifiedFor(typeRatings.getString(j));
+		}
+		
+		return cabinC;
 	}
 
 	/**
-	 * Returns a list of all the cabin crew based at a specific airport AND qualified to fly a specific aircraft type
-	 * @param typeCode the type of plane to find cabin crew for
-	 * @param airportCode the three-letter airport code of the airport to check for
-	 * @return a list of all the cabin crew based at a specific airport AND qualified to fly a specific aircraft type
+	 * Files a crew member under their home base, each of their type ratings, and each
+	 * (home base, type rating) pair in the given indexes
 	 */
-	@Override
-	public List<CabinCrew> findCabinCrewByHomeBaseAndTypeRating(String typeCode, String airportCode) {
+	private static <C extends Crew> void addToIndexes(C member, MultiValueIndex<String, C> byHomeBase,
+			MultiValueIndex<String, C> byTypeRating, Map<String, MultiValueIndex<String, C>> byHomeBaseAndTypeRating) {
 		
-		List<CabinCrew> cabinHomeAndTypeList = new ArrayList<>();
+		byHomeBase.add(member.getHomeBase(), member);
 		
-		try {
-			for (int i = 0; i < cabinCrew.size(); i++)
-				if (cabinCrew.get(i).getHomeBase().contains(airportCode) & (cabinCrew.get(i).getTypeRatings().contains(typeCode))) {
-					cabinHomeAndTypeList.add(cabinCrew.get(i));
-				}
+		MultiValueIndex<String, C> atHomeBase = byHomeBaseAndTypeRating.get(member.getHomeBase());
+		if (atHomeBase == null) {
+			atHomeBase = new MultiValueIndex<>();
+			byHomeBaseAndTypeRating.put(member.getHomeBase(), atHomeBase);
 		}
-		catch (Exception e) {
+		
+		//a rating listed twice in the file should still only file the crew member once
+		for (String typeRating : new LinkedHashSet<>(member.getTypeRatings())) {
+			byTypeRating.add(typeRating, member);
+			atHomeBase.add(typeRating, member);
+		}
+	}
+	
+	private static <C extends Crew> List<C> findByHomeBaseAndTypeRating(Map<String, MultiValueIndex<String, C>> byHomeBaseAndTypeRating,
+			String typeCode, String airportCode) {
+		
+		MultiValueIndex<String, C> atHomeBase = byHomeBaseAndTypeRating.get(airportCode);
+		if (atHomeBase == null) {
 			return Collections.emptyList();
 		}
+		return atHomeBase.get(typeCode);
+	}
+	
+	/**
+	 * Returns a list of all the cabin crew based at the airport with the specified airport code
+	 * @param airportCode the three-letter airport code of the airport to check for
+	 * @return a list of all the cabin crew based at the airport with the specified airport code
+	 */
+	@Override
+	public List<CabinCrew> findCabinCrewByHomeBase(String airportCode) {
 		
+		long start = Metrics.start();
+		List<CabinCrew> found = contents.cabinCrewByHomeBase.get(airportCode);
+		FIND_CABIN_CREW_BY_HOME_BASE.stop(start);
+		return found;
+	}
+
+	/**
+	 * Returns a list of all the cabin crew based at a specific airport AND qualified to fly a specific aircraft type
+	 * @param typeCode the type of plane to find cabin crew for
+	 * @param airportCode the three-letter airport code of the airport to check for
+	 * @return a list of all the cabin crew based at a specific airport AND qualified to fly a specific aircraft type
+	 */
+	@Override
+	public List<CabinCrew> findCabinCrewByHomeBaseAndTypeRating(String typeCode, String airportCode) {
 		
-		return cabinHomeAndTypeList;
+		long start = Metrics.start();
+		List<CabinCrew> found = findByHomeBaseAndTypeRating(contents.cabinCrewByHomeBaseAndTypeRating, typeCode, airportCode);
+		FIND_CABIN_CREW_BY_HOME_BASE_AND_TYPE_RATING.stop(start);
+		return found;
 	}
 
 	/**
@@ -191,26 +441,10 @@ public class CrewDAO implements ICrewDAO {
 	@Override
 	public List<CabinCrew> findCabinCrewByTypeRating(String typeCode) {
 		
-		List<CabinCrew> cabinTypeRatingList = new ArrayList<>();
-		
-		try {
-			for (int i = 0; i < cabinCrew.size(); i++) 
-				
-				if (cabinCrew.get(i).getTypeRatings().contains(typeCode)) {
-		
-				cabinTypeRatingList.add(cabinCrew.get(i));
-				
-			}
-	}
-		catch (Exception e) {
-			return Collections.emptyList();
-		
-	}
-	
-	
-		return cabinTypeRatingList;
-
-		
+		long start = Metrics.start();
+		List<CabinCrew> found = contents.cabinCrewByTypeRating.get(typeCode);
+		FIND_CABIN_CREW_BY_TYPE_RATING.stop(start);
+		return found;
 	}
 
 	/**
@@ -221,24 +455,10 @@ public class CrewDAO implements ICrewDAO {
 	@Override
 	public List<Pilot> findPilotsByHomeBase(String airportCode) {
 		
-		
-	List<Pilot> pHomeBaseList = new ArrayList<>();
-		
-		try {
-			for (int i = 0; i < pilot.size(); i++)
-				if (pilot.get(i).getHomeBase().contains(airportCode))  {
-					pHomeBaseList.add(pilot.get(i));
-				}
-		}
-		catch (Exception e) {
-			return Collections.emptyList();
-			
-		}
-		
-		
-		return pHomeBaseList;
-		
-		
+		long start = Metrics.start();
+		List<Pilot> found = contents.pilotsByHomeBase.get(airportCode);
+		FIND_PILOTS_BY_HOME_BASE.stop(start);
+		return found;
 	}
 
 	/**
@@ -250,22 +470,10 @@ public class CrewDAO implements ICrewDAO {
 	@Override
 	public List<Pilot> findPilotsByHomeBaseAndTypeRating(String typeCode, String airportCode) {
 		
-	List<Pilot> pilotHomeAndTypeList = new ArrayList<>();
-		
-		try {
-			for (int i = 0; i < pilot.size(); i++)
-				if (pilot.get(i).getHomeBase().contains(airportCode) & (pilot.get(i).getTypeRatings().contains(typeCode))) {
-					pilotHomeAndTypeList.add(pilot.get(i));
-				}
-		}
-		catch (Exception e) {
-			return Collections.emptyList();
-		}
-		
-		
-		
-		return pilotHomeAndTypeList;	
-		
+		long start = Metrics.start();
+		List<Pilot> found = findByHomeBaseAndTypeRating(contents.pilotsByHomeBaseAndTypeRating, typeCode, airportCode);
+		FIND_PILOTS_BY_HOME_BASE_AND_TYPE_RATING.stop(start);
+		return found;
 	}
 
 	/**
@@ -276,87 +484,53 @@ public class CrewDAO implements ICrewDAO {
 	@Override
 	public List<Pilot> findPilotsByTypeRating(String typeCode) {
 		
-	List<Pilot> pilotTypeRatingList = new ArrayList<>();
-		
-		try {
-			for (int i = 0; i < pilot.size(); i++) 
-				
-				if (pilot.get(i).getTypeRatings().contains(typeCode)) {
-		
-				pilotTypeRatingList.add(pilot.get(i));
-				
-			}
-	}
-		catch (Exception e) {
-			return Collections.emptyList();
-		
-	}
-	
-		
-		return pilotTypeRatingList;
-		
+		long start = Metrics.start();
+		List<Pilot> found = contents.pilotsByTypeRating.get(typeCode);
+		FIND_PILOTS_BY_TYPE_RATING.stop(start);
+		return found;
 	}
 
 	/**
 	 * Returns a list of all the cabin crew currently loaded
-	 * @return a list of all the cabin crew currently loaded
+	 * @return a read-only list of all the cabin crew currently loaded, which later loads don't change
 	 */
 	@Override
 	public List<CabinCrew> getAllCabinCrew() {
 		
-		List<CabinCrew> copyOfCabinCrew = new ArrayList<>();
-		copyOfCabinCrew.addAll(cabinCrew);
-		
-		try {
-			//System.out.println(cabinCrew);
-			return copyOfCabinCrew;
-		}
-		catch(Exception e) {
-			return Collections.emptyList();
-		}
+		long start = Metrics.start();
+		List<CabinCrew> all = contents.cabinCrew;
+		GET_ALL_CABIN_CREW.stop(start);
+		return all;
 	}
 	/**
 	 * Returns a list of all the crew, regardless of type
-	 * @return a list of all the crew, regardless of type
+	 * @return a read-only list of all the crew, regardless of type, which later loads don't change
 	 */
 	@Override
 	public List<Crew> getAllCrew() {
 		
-		List<Crew> copyOfCrew = new ArrayList<>();
-		copyOfCrew.addAll(crew);
-		
-		try {
-			//System.out.println(crew);
-			return copyOfCrew;
-		}
-		catch(Exception e) {
-			return Collections.emptyList();
-		}
+		long start = Metrics.start();
+		List<Crew> all = contents.crew;
+		GET_ALL_CREW.stop(start);
+		return all;
 	}
 	/**
 	 * Returns a list of all the pilots currently loaded
-	 * @return a list of all the pilots currently loaded
+	 * @return a read-only list of all the pilots currently loaded, which later loads don't change
 	 */
 	@Override
 	public List<Pilot> getAllPilots() {
 		
-		List<Pilot> copyOfPilot = new ArrayList<>();
-		copyOfPilot.addAll(pilot);
-		
-		try {
-			//System.out.println(pilot);
-			return copyOfPilot;
-		}
-		catch(Exception e) {
-			return Collections.emptyList();
-		}
-	
+		long start = Metrics.start();
+		List<Pilot> all = contents.pilot;
+		GET_ALL_PILOTS.stop(start);
+		return all;
 	}
 
 	@Override
 	public int getNumberOfCabinCrew() {
 		
-		int numberOfCabinCrew = cabinCrew.size();
+		int numberOfCabinCrew = contents.cabinCrew.size();
 		return numberOfCabinCrew;
 	}
 
@@ -367,7 +541,7 @@ public class CrewDAO implements ICrewDAO {
 	@Override
 	public int getNumberOfPilots() {
 		
-		int numberOfPilots = pilot.size();
+		int numberOfPilots = contents.pilot.size();
 		
 		return numberOfPilots;
 	}
@@ -376,14 +550,9 @@ public class CrewDAO implements ICrewDAO {
 	 * Unloads all of the crew currently loaded, ready to start again if needed
 	 */
 	@Override
-	public void reset() {
-		
-		crew.clear();
-		cabinCrew.clear();
-		pilot.clear();
+	public synchronized void reset() {
 		
-		// TODO Auto-generated method stub
-
+		contents = Contents.EMPTY;
 	}
 
 }
@@ -0,0 +1,243 @@
+package solution;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import baseclasses.DataLoadingException;
+import baseclasses.IAircraftDAO;
+import baseclasses.ICrewDAO;
+import baseclasses.IPassengerNumbersDAO;
+import baseclasses.IRouteDAO;
+
+/**
+ * Loads several independent data sources at the same time, on a small pool of threads, so
+ * start-up takes about as long as the slowest source rather than the sum of all of them.
+ * The time each source took is kept so it can be reported once everything has loaded.
+ * If any source fails the others are cancelled and the first failure is thrown
+ */
+public class DataBootstrap {
+
+	/**
+	 * One source of data to load, e.g. a call to a DAO's load method with a particular file
+	 */
+	@FunctionalInterface
+	public interface Loader {
+
+		/**
+		 * Loads the data
+		 * @throws DataLoadingException if the data can't be loaded
+		 */
+		void load() throws DataLoadingException;
+	}
+
+	private final int maxThreads;
+	private final Map<String, Loader> loaders = new LinkedHashMap<>();
+	private final Map<String, Duration> timings = new LinkedHashMap<>();
+	private Duration totalTime = Duration.ZERO;
+
+	/**
+	 * Creates a bootstrap that loads every source on its own thread. The loaders spend much of
+	 * their time waiting on files, so this is worthwhile even with fewer cores than sources
+	 */
+	public DataBootstrap() {
+		this(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a bootstrap that runs at most the given number of sources at a time
+	 * @param maxThreads the most threads to load with
+	 */
+	public DataBootstrap(int maxThreads) {
+
+		if (maxThreads < 1) {
+			throw new IllegalArgumentException("maxThreads must be at least 1, was " + maxThreads);
+		}
+		this.maxThreads = maxThreads;
+	}
+
+	/**
+	 * Adds a source to load
+	 * @param name the name to report the source's timing under, which must be unique
+	 * @param loader the work that loads the source
+	 * @return this bootstrap, so calls can be chained
+	 */
+	public DataBootstrap add(String name, Loader loader) {
+
+		if (loaders.containsKey(name)) {
+			throw new IllegalArgumentException("A source called " + name + " has already been added");
+		}
+		loaders.put(name, loader);
+		return this;
+	}
+
+	/**
+	 * Adds the four data files the scheduler needs
+	 * @param aircraft the DAO to load aircraft into
+	 * @param aircraftFile the aircraft CSV file
+	 * @param crew the DAO to load crew into
+	 * @param crewFile the crew JSON file
+	 * @param routes the DAO to load routes into
+	 * @param routesFile the routes XML file
+	 * @param passengers the DAO to load passenger numbers into
+	 * @param passengersFile the passenger numbers SQLite database
+	 * @return this bootstrap, so calls can be chained
+	 */
+	public DataBootstrap addAll(IAircraftDAO aircraft, Path aircraftFile, ICrewDAO crew, Path crewFile,
+			IRouteDAO routes, Path routesFile, IPassengerNumbersDAO passengers, Path passengersFile) {
+
+		add("aircraft", () -> aircraft.loadAircraftData(aircraftFile));
+		add("crew", () -> crew.loadCrewData(crewFile));
+		add("routes", () -> routes.loadRouteData(routesFile));
+		add("passengers", () -> passengers.loadPassengerNumbersData(passengersFile));
+		return this;
+	}
+
+	/**
+	 * Adds the four data files the scheduler needs, restoring each from a snapshot in the given
+	 * directory when it hasn't changed since the snapshot was saved, and saving a snapshot when it has
+	 * @param aircraft the DAO to load aircraft into
+	 * @param aircraftFile the aircraft CSV file
+	 * @param crew the DAO to load crew into
+	 * @param crewFile the crew JSON file
+	 * @param routes the DAO to load routes into
+	 * @param routesFile the routes XML file
+	 * @param passengers the DAO to load passenger numbers into
+	 * @param passengersFile the passenger numbers SQLite database
+	 * @param snapshotDirectory the directory to keep the snapshots in, which is created for its owner only if need be
+	 * @return this bootstrap, so calls can be chained
+	 */
+	public DataBootstrap addAll(AircraftDAO aircraft, Path aircraftFile, CrewDAO crew, Path crewFile,
+			RouteDAO routes, Path routesFile, PassengerNumbersDAO passengers, Path passengersFile, Path snapshotDirectory) {
+
+		add("aircraft", () -> aircraft.loadAircraftData(aircraftFile, DataSnapshot.pathFor(snapshotDirectory, aircraftFile)));
+		add("crew", () -> crew.loadCrewData(crewFile, DataSnapshot.pathFor(snapshotDirectory, crewFile)));
+		add("routes", () -> routes.loadRouteData(routesFile, DataSnapshot.pathFor(snapshotDirectory, routesFile)));
+		add("passengers", () -> passengers.loadPassengerNumbersData(passengersFile, DataSnapshot.pathFor(snapshotDirectory, passengersFile)));
+		return this;
+	}
+
+	/**
+	 * Loads every source that has been added, returning once all of them have loaded.
+	 * As soon as one fails the rest are cancelled; a loader that is part way through and
+	 * does not respond to interruption may still finish in the background
+	 * @throws DataLoadingException the first failure, if any source could not be loaded
+	 */
+	public void loadAll() throws DataLoadingException {
+
+		timings.clear();
+		if (loaders.isEmpty()) {
+			return;
+		}
+
+		long start = System.nanoTime();
+		int threads = Math.min(maxThreads, loaders.size());
+		ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "data-bootstrap");
+			//a loader stuck after cancellation must not keep the program alive
+			t.setDaemon(true);
+			return t;
+		});
+
+		CompletionService<Timing> completion = new ExecutorCompletionService<>(executor);
+		List<Future<Timing>> futures = new ArrayList<>();
+		Map<String, Duration> finished = new LinkedHashMap<>();
+
+		try {
+			for (Map.Entry<String, Loader> e : loaders.entrySet()) {
+				futures.add(completion.submit(timed(e.getKey(), e.getValue())));
+			}
+
+			for (int i = 0; i < futures.size(); i++) {
+				Timing t = completion.take().get();
+				finished.put(t.name, t.elapsed);
+			}
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof DataLoadingException) {
+				throw (DataLoadingException) cause;
+			}
+			throw new DataLoadingException(cause);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DataLoadingException(e);
+		}
+		finally {
+			for (Future<Timing> f : futures) {
+				f.cancel(true);
+			}
+			executor.shutdownNow();
+		}
+
+		//report in the order the sources were added, not the order they finished
+		for (String name : loaders.keySet()) {
+			timings.put(name, finished.get(name));
+		}
+		totalTime = Duration.ofNanos(System.nanoTime() - start);
+	}
+
+	/**
+	 * Returns how long each source took to load in the last successful call to loadAll()
+	 * @return the time taken by each source, in the order they were added
+	 */
+	public Map<String, Duration> getTimings() {
+		return Collections.unmodifiableMap(timings);
+	}
+
+	/**
+	 * Returns how long the last successful call to loadAll() took from start to finish
+	 * @return the wall-clock time for all the sources together
+	 */
+	public Duration getTotalTime() {
+		return totalTime;
+	}
+
+	/**
+	 * Describes the last load, one source per line, for printing at start-up
+	 * @return the time taken by each source and in total
+	 */
+	public String report() {
+
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, Duration> e : timings.entrySet()) {
+			sb.append(String.format("%-12s %8.1f ms%n", e.getKey(), e.getValue().toNanos() / 1e6));
+		}
+		sb.append(String.format("%-12s %8.1f ms on %d threads", "total", totalTime.toNanos() / 1e6,
+				Math.min(maxThreads, loaders.size())));
+		return sb.toString();
+	}
+
+	private static Callable<Timing> timed(String name, Loader loader) {
+
+		return () -> {
+			Thread.currentThread().setName("data-bootstrap-" + name);
+			long start = System.nanoTime();
+			loader.load();
+			return new Timing(name, Duration.ofNanos(System.nanoTime() - start));
+		};
+	}
+
+	private static final class Timing {
+
+		final String name;
+		final Duration elapsed;
+
+		Timing(String name, Duration elapsed) {
+			this.name = name;
+			this.elapsed = elapsed;
+		}
+	}
+
+}
@@ -0,0 +1,451 @@
+package solution;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * A compact binary copy of what a DAO loaded from one data file, so a later run can restore it
+ * without parsing the file again. Each snapshot holds a table of every distinct string, then the
+ * records as columns of primitives, with strings replaced by their place in the table. It is
+ * memory-mapped to be read back, and each column is copied out in one bulk read
+ *
+ * A snapshot records the size, modification time and CRC-32 of the file it was made from. It is
+ * only restored while the file still has that size and either the same modification time or, if
+ * the file has been touched since, the same CRC-32, so a changed file is always parsed again. The
+ * snapshot's own contents are covered by a second CRC-32, so a damaged snapshot is never restored
+ *
+ * Layout, all big-endian: magic, version, kind, source size, source modification time, source CRC,
+ * content CRC, then the content: the string table (count, then each string's UTF-8 length and
+ * bytes) and the columns the kind defines
+ */
+final class DataSnapshot {
+
+	private static final int MAGIC = 0x464C5350; //"FLSP"
+	private static final int VERSION = 1;
+
+	//magic, version, kind, source size, source time, source CRC and content CRC
+	private static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 8 + 8 + 8;
+
+	//what each kind of snapshot holds, so one can't be restored by the wrong DAO
+	static final int AIRCRAFT = 1;
+	static final int CREW = 2;
+	static final int ROUTES = 3;
+	static final int PASSENGER_NUMBERS = 4;
+
+	//written in place of a null string, or a missing time or duration
+	static final int NO_STRING = -1;
+	static final long NO_VALUE = Long.MIN_VALUE;
+
+	//snapshots that couldn't be saved, while metrics are on
+	private static final Metrics.Counter SAVE_FAILED = Metrics.counter("snapshot.saveFailed");
+
+	//how many bytes of the hash of a data file's path go in the name of its snapshot
+	private static final int PATH_HASH_BYTES = 8;
+
+	private DataSnapshot() {
+	}
+
+	/**
+	 * Builds up the content of a snapshot in memory, then saves it in one go
+	 */
+	static final class Writer {
+
+		private final int kind;
+		private final Map<String, Integer> stringIndexes = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+		private final ByteArrayOutputStream columns = new ByteArrayOutputStream();
+		private final DataOutputStream out = new DataOutputStream(columns);
+
+		/**
+		 * Starts an empty snapshot
+		 * @param kind what the snapshot holds, e.g. AIRCRAFT
+		 */
+		Writer(int kind) {
+			this.kind = kind;
+		}
+
+		void count(int n) throws IOException {
+			out.writeInt(n);
+		}
+
+		void ints(int[] column) throws IOException {
+
+			for (int value : column) {
+				out.writeInt(value);
+			}
+		}
+
+		void longs(long[] column) throws IOException {
+
+			for (long value : column) {
+				out.writeLong(value);
+			}
+		}
+
+		void bytes(byte[] column) throws IOException {
+			out.write(column);
+		}
+
+		/**
+		 * Writes a column of strings as their places in the string table, adding any not seen before
+		 * @param column the strings, any of which may be null
+		 */
+		void strings(String[] column) throws IOException {
+
+			for (String s : column) {
+				if (s == null) {
+					out.writeInt(NO_STRING);
+					continue;
+				}
+				Integer index = stringIndexes.get(s);
+				if (index == null) {
+					index = strings.size();
+					stringIndexes.put(s, index);
+					strings.add(s);
+				}
+				out.writeInt(index);
+			}
+		}
+
+		/**
+		 * Saves the snapshot, replacing any earlier one only once the new one is complete
+		 * @param snapshot where to save the snapshot
+		 * @param source the data file the snapshot was made from
+		 * @throws IOException if the source can't be read or the snapshot can't be written
+		 */
+		void save(Path snapshot, Path source) throws IOException {
+
+			ByteArrayOutputStream contentBytes = new ByteArrayOutputStream(columns.size() + 16 * strings.size());
+			DataOutputStream content = new DataOutputStream(contentBytes);
+			content.writeInt(strings.size());
+			for (String s : strings) {
+				byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+				content.writeInt(utf8.length);
+				content.write(utf8);
+			}
+			columns.writeTo(content);
+			content.flush();
+			byte[] body = contentBytes.toByteArray();
+
+			CRC32 crc = new CRC32();
+			crc.update(body);
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			header.putInt(MAGIC).putInt(VERSION).putInt(kind);
+			header.putLong(Files.size(source)).putLong(Files.getLastModifiedTime(source).toMillis()).putLong(checksum(source));
+			header.putLong(crc.getValue());
+
+			Path parent = snapshot.toAbsolutePath().getParent();
+			createDirectories(parent);
+			Path temp = Files.createTempFile(parent, snapshot.getFileName().toString(), ".tmp");
+			try {
+				try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+					header.flip();
+					ByteBuffer bodyBuffer = ByteBuffer.wrap(body);
+					while (header.hasRemaining() || bodyBuffer.hasRemaining()) {
+						channel.write(new ByteBuffer[] {header, bodyBuffer});
+					}
+				}
+				try {
+					Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				}
+				catch (AtomicMoveNotSupportedException e) {
+					Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			finally {
+				Files.deleteIfExists(temp);
+			}
+		}
+	}
+
+	/**
+	 * Reads back the content of a memory-mapped snapshot, column by column in the order it was written
+	 */
+	static final class Reader {
+
+		private final ByteBuffer buffer;
+		private final String[] strings;
+
+		private Reader(ByteBuffer buffer) {
+
+			this.buffer = buffer;
+			strings = new String[count()];
+			byte[] utf8 = new byte[64];
+			for (int i = 0; i < strings.length; i++) {
+				int length = count();
+				if (length > utf8.length) {
+					utf8 = new byte[Math.max(length, utf8.length * 2)];
+				}
+				buffer.get(utf8, 0, length);
+				strings[i] = new String(utf8, 0, length, StandardCharsets.UTF_8);
+			}
+		}
+
+		/**
+		 * Reads a count, checking it could fit in what is left of the snapshot
+		 * @return the count
+		 * @throws IllegalArgumentException if the count is negative or too large
+		 */
+		int count() {
+
+			int n = buffer.getInt();
+			if (n < 0 || n > buffer.remaining()) {
+				throw new IllegalArgumentException("Snapshot count " + n + " is out of range");
+			}
+			return n;
+		}
+
+		int[] ints(int n) {
+
+			int[] column = new int[n];
+			buffer.asIntBuffer().get(column);
+			buffer.position(buffer.position() + 4 * n);
+			return column;
+		}
+
+		long[] longs(int n) {
+
+			long[] column = new long[n];
+			buffer.asLongBuffer().get(column);
+			buffer.position(buffer.position() + 8 * n);
+			return column;
+		}
+
+		byte[] bytes(int n) {
+
+			byte[] column = new byte[n];
+			buffer.get(column);
+			return column;
+		}
+
+		/**
+		 * Reads a column of strings, sharing each one between every record that has it
+		 * @param n the number of strings in the column
+		 * @return the strings, with null wherever null was written
+		 */
+		String[] strings(int n) {
+
+			int[] indexes = ints(n);
+			String[] column = new String[n];
+			for (int i = 0; i < n; i++) {
+				column[i] = indexes[i] == NO_STRING ? null : strings[indexes[i]];
+			}
+			return column;
+		}
+	}
+
+	/**
+	 * What a DAO writes into a snapshot of the records it loaded
+	 */
+	@FunctionalInterface
+	interface Content {
+
+		/**
+		 * Writes the records as columns
+		 * @param writer the snapshot being written
+		 * @throws IOException if the records can't be written
+		 */
+		void writeTo(Writer writer) throws IOException;
+	}
+
+	/**
+	 * Saves a snapshot of records loaded from a data file. A snapshot is only ever a cache, so
+	 * failing to save one is counted in the metrics and otherwise ignored
+	 * @param snapshot where to save the snapshot
+	 * @param source the data file the records were loaded from
+	 * @param kind what the snapshot holds, e.g. AIRCRAFT
+	 * @param content writes the records
+	 */
+	static void save(Path snapshot, Path source, int kind, Content content) {
+
+		try {
+			Writer writer = new Writer(kind);
+			content.writeTo(writer);
+			writer.save(snapshot, source);
+		}
+		catch (IOException e) {
+			SAVE_FAILED.increment();
+		}
+	}
+
+	/**
+	 * Restores records from a snapshot, if there is one of the right kind made from the source as it is now
+	 * @param snapshot the snapshot file
+	 * @param source the data file the snapshot should have been made from
+	 * @param kind what the snapshot should hold, e.g. AIRCRAFT
+	 * @param read turns the snapshot's columns back into records
+	 * @return the records, or null if there is no usable snapshot and the source has to be parsed
+	 * @throws IOException if the source can't be read
+	 */
+	static <T> T restore(Path snapshot, Path source, int kind, Function<Reader, T> read) throws IOException {
+
+		Reader reader = open(snapshot, source, kind);
+		if (reader == null) {
+			return null;
+		}
+		try {
+			return read.apply(reader);
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | DateTimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Opens a snapshot for reading, if it is of the right kind and was made from the source as it is now
+	 * @param snapshot the snapshot file
+	 * @param source the data file the snapshot should have been made from
+	 * @param kind what the snapshot should hold, e.g. AIRCRAFT
+	 * @return a reader positioned at the first column, or null if there is no usable snapshot
+	 * @throws IOException if the source can't be read
+	 */
+	private static Reader open(Path snapshot, Path source, int kind) throws IOException {
+
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+				return null;
+			}
+			//the mapping stays valid after the channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+		catch (NoSuchFileException e) {
+			return null;
+		}
+
+		if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != kind) {
+			return null;
+		}
+		long sourceSize = buffer.getLong();
+		long sourceTime = buffer.getLong();
+		long sourceChecksum = buffer.getLong();
+		long contentChecksum = buffer.getLong();
+
+		//the size and time are enough to trust an untouched file; a touched one has to match byte for byte
+		if (sourceSize != Files.size(source)) {
+			return null;
+		}
+		if (sourceTime != Files.getLastModifiedTime(source).toMillis() && sourceChecksum != checksum(source)) {
+			return null;
+		}
+
+		ByteBuffer content = buffer.slice();
+		CRC32 crc = new CRC32();
+		crc.update(content.duplicate());
+		if (crc.getValue() != contentChecksum) {
+			return null;
+		}
+
+		try {
+			return new Reader(content);
+		}
+		catch (BufferUnderflowException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Calculates the CRC-32 of a whole file, reading it through a memory mapping
+	 * @param p the file
+	 * @return the CRC-32
+	 * @throws IOException if the file can't be read
+	 */
+	static long checksum(Path p) throws IOException {
+
+		CRC32 crc = new CRC32();
+		try (FileChannel channel = FileChannel.open(p, StandardOpenOption.READ)) {
+			long size = channel.size();
+			for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+				MappedByteBuffer part = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(Integer.MAX_VALUE, size - position));
+				crc.update(part);
+			}
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Where to keep the snapshot of a data file in a directory of snapshots. Data files with the same
+	 * name in different folders get different snapshots, as the name ends with a hash of the file's
+	 * full path
+	 * @param directory the directory of snapshots
+	 * @param source the data file
+	 * @return the snapshot's path, named after the data file and its path
+	 */
+	static Path pathFor(Path directory, Path source) {
+
+		byte[] hash;
+		try {
+			hash = MessageDigest.getInstance("SHA-256").digest(source.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+		}
+		catch (NoSuchAlgorithmException e) {
+			//every Java platform has to provide SHA-256
+			throw new IllegalStateException(e);
+		}
+		StringBuilder name = new StringBuilder().append(source.getFileName()).append('-');
+		for (int i = 0; i < PATH_HASH_BYTES; i++) {
+			name.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+		}
+		return directory.resolve(name.append(".snapshot").toString());
+	}
+
+	/**
+	 * Creates a directory of snapshots and any missing parents. Where the file system has POSIX
+	 * permissions the directories created can only be used by their owner, so other users can't
+	 * put snapshots of their own in them. A directory that already exists is left as it is
+	 * @param directory the directory
+	 * @throws IOException if the directory can't be created
+	 */
+	static void createDirectories(Path directory) throws IOException {
+
+		if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+		}
+		else {
+			Files.createDirectories(directory);
+		}
+	}
+
+	//converts between the nullable times and durations of the data classes and columns of longs
+
+	static long nanos(LocalTime time) {
+		return time == null ? NO_VALUE : time.toNanoOfDay();
+	}
+
+	static long nanos(Duration duration) {
+		return duration == null ? NO_VALUE : duration.toNanos();
+	}
+
+	static LocalTime timeOf(long nanos) {
+		return nanos == NO_VALUE ? null : LocalTime.ofNanoOfDay(nanos);
+	}
+
+	static Duration durationOf(long nanos) {
+		return nanos == NO_VALUE ? null : Duration.ofNanos(nanos);
+	}
+
+}
@@ -0,0 +1,299 @@
+package solution;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import baseclasses.Aircraft;
+import baseclasses.CabinCrew;
+import baseclasses.FlightInfo;
+import baseclasses.IAircraftDAO;
+import baseclasses.ICrewDAO;
+import baseclasses.IRouteDAO;
+import baseclasses.Pilot;
+import baseclasses.Schedule;
+import baseclasses.Utilities;
+
+/**
+ * Checks before scheduling whether the aircraft and crew can cover the flights at all, so a
+ * data set that can't be crewed is reported straight away instead of being searched for the
+ * whole time limit. Finding a day with more flights in the air at once than there are aircraft,
+ * pairs of pilots or sets of cabin crew means the schedule can never be completed. Types with
+ * no rated crew, and bases with fewer crew than flights leaving them, only cost penalties, so
+ * they are reported as warnings
+ *
+ * The analyser also works out which aircraft each flight could ever be given: an aircraft
+ * needing more cabin crew than a flight has, or than there are in total, is never tried
+ */
+public class FeasibilityAnalyser {
+
+	private final ICrewDAO crewDAO;
+
+	//the aircraft that could ever be crewed, in order of the cabin crew they need, and those
+	//needing at most each number of cabin crew up to the most any of them needs
+	private final List<Aircraft> usable = new ArrayList<>();
+	private final List<List<Aircraft>> usableWithCabinCrew = new ArrayList<>();
+
+	private final List<String> problems = new ArrayList<>();
+	private final List<String> warnings = new ArrayList<>();
+
+	//how many of each were found from the aircraft and crew alone, before any horizon was analysed
+	private final int fleetProblems;
+	private final int fleetWarnings;
+
+	/**
+	 * Works out which aircraft could be crewed, and checks every aircraft type and base for crew rated for it
+	 * @param aircraftDAO the aircraft
+	 * @param crewDAO the crew
+	 */
+	public FeasibilityAnalyser(IAircraftDAO aircraftDAO, ICrewDAO crewDAO) {
+
+		this.crewDAO = crewDAO;
+
+		int cabinCrew = crewDAO.getNumberOfCabinCrew();
+		if (crewDAO.getNumberOfPilots() < 2) {
+			problems.add("There are " + crewDAO.getNumberOfPilots() + " pilots, so no flight can have two");
+		}
+		else {
+			for (Aircraft a : aircraftDAO.getAllAircraft()) {
+				if (a.getCabinCrewRequired() <= cabinCrew) {
+					usable.add(a);
+				}
+				else {
+					warnings.add(a.getTailCode() + " needs " + a.getCabinCrewRequired() + " cabin crew but there are only " + cabinCrew
+							+ ", so it is never used");
+				}
+			}
+			if (usable.isEmpty()) {
+				problems.add("No aircraft can be crewed");
+			}
+		}
+		usable.sort(Comparator.comparingInt(Aircraft::getCabinCrewRequired));
+		int count = 0;
+		for (int n = 0; count < usable.size(); n++) {
+			while (count < usable.size() && usable.get(count).getCabinCrewRequired() <= n) {
+				count++;
+			}
+			usableWithCabinCrew.add(Collections.unmodifiableList(usable.subList(0, count)));
+		}
+
+		checkTypes();
+		fleetProblems = problems.size();
+		fleetWarnings = warnings.size();
+	}
+
+	/**
+	 * Checks each day of a horizon for more flights in the air at once than there are aircraft and
+	 * crew, and each base for more flights leaving it than there are crew based there. What the
+	 * last call found about its horizon is replaced
+	 * @param routeDAO the routes to schedule
+	 * @param startDate the start of the scheduling horizon
+	 * @param endDate the end of the scheduling horizon
+	 * @return true if nothing was found that stops the schedule being completed
+	 */
+	public boolean analyse(IRouteDAO routeDAO, LocalDate startDate, LocalDate endDate) {
+
+		problems.subList(fleetProblems, problems.size()).clear();
+		warnings.subList(fleetWarnings, warnings.size()).clear();
+		List<FlightInfo> flights = new Schedule(routeDAO, startDate, endDate).getRemainingAllocations();
+
+		//flights that land as another departs can share an aircraft and crew, so landings come first
+		Comparator<Event> order = Comparator.comparing((Event e) -> e.time).thenComparingInt(e -> e.change);
+		List<Event> all = new ArrayList<>();
+		Map<String, List<Event>> byBase = new TreeMap<>();
+		for (FlightInfo f : flights) {
+			Event departs = new Event(f.getDepartureDateTime(), 1);
+			Event lands = new Event(f.getLandingDateTime(), -1);
+			all.add(departs);
+			all.add(lands);
+			String base = f.getFlight().getDepartureAirportCode();
+			if (Utilities.airportIsInUK(base)) {
+				List<Event> events = byBase.computeIfAbsent(base, b -> new ArrayList<>());
+				events.add(departs);
+				events.add(lands);
+			}
+		}
+
+		int aircraft = usable.size();
+		int pilotPairs = crewDAO.getNumberOfPilots() / 2;
+		int fewest = usable.isEmpty() ? 0 : usable.get(0).getCabinCrewRequired();
+		int cabinCrewSets = usable.isEmpty() ? 0 : fewest == 0 ? Integer.MAX_VALUE : crewDAO.getNumberOfCabinCrew() / fewest;
+		int supply = Math.min(aircraft, Math.min(pilotPairs, cabinCrewSets));
+		for (Map.Entry<LocalDate, Peak> e : peaks(all, order).entrySet()) {
+			Peak peak = e.getValue();
+			if (peak.flights > supply) {
+				problems.add(e.getKey() + ": " + peak.flights + " flights in the air at " + peak.at.toLocalTime() + ", but only "
+						+ aircraft + " aircraft, " + pilotPairs + " pairs of pilots and " + cabinCrewSets + " sets of cabin crew");
+			}
+		}
+
+		for (Map.Entry<String, List<Event>> base : byBase.entrySet()) {
+			int basedPilotPairs = crewDAO.findPilotsByHomeBase(base.getKey()).size() / 2;
+			for (Map.Entry<LocalDate, Peak> e : peaks(base.getValue(), order).entrySet()) {
+				Peak peak = e.getValue();
+				if (peak.flights > basedPilotPairs) {
+					warnings.add(e.getKey() + " " + base.getKey() + ": " + peak.flights + " flights from here in the air at "
+							+ peak.at.toLocalTime() + ", but only " + basedPilotPairs + " pairs of pilots based here");
+				}
+			}
+		}
+		return isFeasible();
+	}
+
+	/**
+	 * Checks that each type of aircraft has crew rated for it, first anywhere and then based where the aircraft start
+	 */
+	private void checkTypes() {
+
+		Map<String, List<Aircraft>> byType = new LinkedHashMap<>();
+		for (Aircraft a : usable) {
+			byType.computeIfAbsent(a.getTypeCode(), t -> new ArrayList<>()).add(a);
+		}
+
+		for (Map.Entry<String, List<Aircraft>> e : byType.entrySet()) {
+			String type = e.getKey();
+			int required = e.getValue().get(0).getCabinCrewRequired();
+			int[] ranks = countRanks(crewDAO.findPilotsByTypeRating(type));
+			int cabinCrew = crewDAO.findCabinCrewByTypeRating(type).size();
+			if (ranks[0] == 0 || ranks[1] == 0 || cabinCrew < required) {
+				warnings.add(type + ": " + describeCrew(ranks, cabinCrew) + " rated, so every flight with one has unqualified crew");
+				continue;
+			}
+
+			TreeSet<String> bases = new TreeSet<>();
+			for (Aircraft a : e.getValue()) {
+				bases.add(a.getStartingPosition());
+			}
+			for (String base : bases) {
+				int[] based = countRanks(crewDAO.findPilotsByHomeBaseAndTypeRating(type, base));
+				List<CabinCrew> basedCabinCrew = crewDAO.findCabinCrewByHomeBaseAndTypeRating(type, base);
+				if (based[0] == 0 || based[1] == 0 || basedCabinCrew.size() < required) {
+					warnings.add(type + " at " + base + ": " + describeCrew(based, basedCabinCrew.size())
+							+ " based there and rated, so its crew have to come from other bases");
+				}
+			}
+		}
+	}
+
+	//the number of captains, then of first officers
+	private static int[] countRanks(List<Pilot> pilots) {
+
+		int[] ranks = new int[2];
+		for (Pilot p : pilots) {
+			ranks[p.getRank() == Pilot.Rank.CAPTAIN ? 0 : 1]++;
+		}
+		return ranks;
+	}
+
+	private static String describeCrew(int[] ranks, int cabinCrew) {
+		return ranks[0] + " captains, " + ranks[1] + " first officers and " + cabinCrew + " cabin crew";
+	}
+
+	/**
+	 * Finds the most flights in the air at once on each day
+	 * @param events the departures and landings of the flights
+	 * @param order the order to apply them in
+	 * @return the peak of each day with any flights, in date order
+	 */
+	private static Map<LocalDate, Peak> peaks(List<Event> events, Comparator<Event> order) {
+
+		events.sort(order);
+		Map<LocalDate, Peak> peaks = new TreeMap<>();
+		int inTheAir = 0;
+		for (Event e : events) {
+			inTheAir += e.change;
+			Peak peak = peaks.computeIfAbsent(e.time.toLocalDate(), d -> new Peak());
+			if (inTheAir > peak.flights) {
+				peak.flights = inTheAir;
+				peak.at = e.time;
+			}
+		}
+		return peaks;
+	}
+
+	/**
+	 * Returns whether the last analysis found anything that stops the schedule being completed
+	 * @return true if every flight could be given an aircraft and crew
+	 */
+	public boolean isFeasible() {
+		return problems.isEmpty();
+	}
+
+	/**
+	 * Returns what stops the schedule being completed, such as days with too few aircraft or crew
+	 * @return one line per problem, empty if the schedule can be completed
+	 */
+	public List<String> getProblems() {
+		return Collections.unmodifiableList(problems);
+	}
+
+	/**
+	 * Returns what will cost penalties whatever the schedule, such as bases without crew rated for their aircraft
+	 * @return one line per warning
+	 */
+	public List<String> getWarnings() {
+		return Collections.unmodifiableList(warnings);
+	}
+
+	/**
+	 * Describes the problems and warnings, one per line, for printing before scheduling
+	 * @return the problems, then the warnings
+	 */
+	public String report() {
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(isFeasible() ? "Feasible" : "Infeasible").append(String.format(", %d problems and %d warnings", problems.size(), warnings.size()));
+		for (String p : problems) {
+			sb.append(String.format("%n  problem: ")).append(p);
+		}
+		for (String w : warnings) {
+			sb.append(String.format("%n  warning: ")).append(w);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns every aircraft that could be crewed
+	 * @return the aircraft, in order of the cabin crew they need
+	 */
+	List<Aircraft> getUsableAircraft() {
+		return Collections.unmodifiableList(usable);
+	}
+
+	/**
+	 * Finds the aircraft a flight could be moved to without needing more cabin crew than it has
+	 * @param cabinCrew the number of cabin crew on the flight
+	 * @return the usable aircraft needing that many cabin crew or fewer
+	 */
+	List<Aircraft> aircraftFor(int cabinCrew) {
+
+		if (usableWithCabinCrew.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return usableWithCabinCrew.get(Math.min(cabinCrew, usableWithCabinCrew.size() - 1));
+	}
+
+	private static final class Event {
+
+		final LocalDateTime time;
+		final int change;
+
+		Event(LocalDateTime time, int change) {
+			this.time = time;
+			this.change = change;
+		}
+	}
+
+	private static final class Peak {
+
+		int flights;
+		LocalDateTime at;
+	}
+
+}
@@ -0,0 +1,703 @@
+package solution;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import baseclasses.Aircraft;
+import baseclasses.CabinCrew;
+import baseclasses.Crew;
+import baseclasses.DoubleBookedException;
+import baseclasses.FlightInfo;
+import baseclasses.IAircraftDAO;
+import baseclasses.ICrewDAO;
+import baseclasses.IPassengerNumbersDAO;
+import baseclasses.InvalidAllocationException;
+import baseclasses.Pilot;
+import baseclasses.QualityScoreCalculator;
+import baseclasses.Schedule;
+import baseclasses.Utilities;
+
+/**
+ * Keeps the quality score of a complete schedule up to date as its allocations change, without
+ * rerunning the QualityScoreCalculator over the whole schedule. Every rule the calculator applies
+ * is mirrored here: the ones about a single flight (aircraft capacity, pilots in the wrong seat,
+ * unqualified crew) are worked out from the flight's allocation, and the rest only look at each
+ * aircraft's or crew member's flights in order, so they are worked out from a timeline per resource.
+ * A change to some flights then only needs the neighbouring flights, weeks and months of the
+ * resources that gain or lose a flight to be looked at again
+ *
+ * The scorer assumes, as the rest of the solution makes sure, that no aircraft or crew member
+ * has overlapping flights and that a pilot only ever flies in one seat. Schedule keeps a pilot's
+ * flights in each seat in a separate list, so the rules would see them out of order otherwise.
+ * Verification mode checks the score against the QualityScoreCalculator, to catch the two
+ * drifting apart
+ */
+class IncrementalScorer {
+
+	//penalties the schedule builder doesn't use, as applied by the quality score rules
+	private static final long CAPTAIN_IN_WRONG_SEAT = 50000;
+	private static final long FIRST_OFFICER_IN_WRONG_SEAT = 1000;
+	private static final long WEEKLY_REST = 10000;
+
+	//the rules compare whole hours and minutes, which come to these numbers of seconds
+	private static final long SECONDS_PER_HOUR = 3600;
+	private static final long TURNAROUND_15_MINUTES = 15 * 60;
+	private static final long TURNAROUND_30_MINUTES = 30 * 60;
+	private static final long NIGHTLY_REST_SECONDS = 12 * SECONDS_PER_HOUR;
+	private static final long REST_AWAY_FROM_BASE_SECONDS = 24 * SECONDS_PER_HOUR;
+	private static final long WEEKLY_REST_SECONDS = 36 * SECONDS_PER_HOUR;
+	private static final long AWAY_WITHOUT_RETURN_SECONDS = 48 * SECONDS_PER_HOUR;
+	//more than 4 whole hours on the ground counts as not turning straight round
+	private static final long TURN_ROUND_SECONDS = 5 * SECONDS_PER_HOUR;
+	private static final long MONTHLY_LIMIT_SECONDS = 100 * SECONDS_PER_HOUR;
+	private static final long WEEK_SECONDS = 7 * 24 * SECONDS_PER_HOUR;
+
+	private final Schedule schedule;
+	private final QualityScoreCalculator calculator;
+	private final IPassengerNumbersDAO passengerNumbersDAO;
+	private boolean verifying;
+
+	//the completed flights the scorer has been told about, numbered in the order it was told
+	private final Map<FlightInfo, Integer> ids = new HashMap<>();
+	private int count;
+	private final FlightInfo[] flights;
+	private final long[] departs;
+	private final long[] lands;
+	private final String[] departureAirports;
+	private final String[] arrivalAirports;
+	private final boolean[] departsUK;
+	private final boolean[] arrivesUK;
+	private final long[] durations;
+	private final int[] passengers;
+	private final int[] months;
+	private final Allocation[] allocations;
+
+	//start of each week and month the rules look at, in epoch seconds, with the end of the last one after it
+	private final long firstWeekStart;
+	private final int weeks;
+	private final long[] monthStarts;
+
+	private final Map<Object, Timeline> timelines = new HashMap<>();
+
+	private long score;
+
+	/**
+	 * Creates a scorer for the completed allocations of a schedule and works out their score. Flights
+	 * completed later can be added to the score with add()
+	 * @param aircraftDAO the aircraft the schedule uses
+	 * @param crewDAO the crew the schedule uses
+	 * @param passengerNumbersDAO the passenger forecasts to score with
+	 * @param schedule the schedule
+	 */
+	IncrementalScorer(IAircraftDAO aircraftDAO, ICrewDAO crewDAO, IPassengerNumbersDAO passengerNumbersDAO, Schedule schedule) {
+
+		this.schedule = schedule;
+		this.calculator = new QualityScoreCalculator(aircraftDAO, crewDAO, passengerNumbersDAO, schedule);
+		this.passengerNumbersDAO = passengerNumbersDAO;
+
+		LocalDateTime start = schedule.getStartDate().atTime(LocalTime.MIDNIGHT);
+		LocalDateTime end = schedule.getEndDate().atTime(LocalTime.MIDNIGHT);
+		firstWeekStart = seconds(start);
+		int w = 0;
+		for (LocalDateTime week = start; week.isBefore(end); week = week.plusDays(7)) {
+			w++;
+		}
+		weeks = w;
+		List<Long> starts = new ArrayList<>();
+		LocalDateTime month = start;
+		while (month.isBefore(end)) {
+			starts.add(seconds(month));
+			month = month.plusMonths(1);
+		}
+		starts.add(seconds(month));
+		monthStarts = new long[starts.size()];
+		for (int i = 0; i < monthStarts.length; i++) {
+			monthStarts[i] = starts.get(i);
+		}
+
+		//room for every flight of the horizon, so the scorer can follow a schedule being built
+		List<FlightInfo> completed = schedule.getCompletedAllocations();
+		completed.sort(Comparator.comparing(FlightInfo::getDepartureDateTime));
+		int n = completed.size() + schedule.getRemainingAllocations().size();
+		flights = new FlightInfo[n];
+		departs = new long[n];
+		lands = new long[n];
+		departureAirports = new String[n];
+		arrivalAirports = new String[n];
+		departsUK = new boolean[n];
+		arrivesUK = new boolean[n];
+		durations = new long[n];
+		passengers = new int[n];
+		months = new int[n];
+		allocations = new Allocation[n];
+
+		for (FlightInfo f : completed) {
+			add(f);
+		}
+	}
+
+	/**
+	 * Adds a flight whose allocation has just been completed to the score
+	 * @param f the flight
+	 */
+	void add(FlightInfo f) {
+
+		if (ids.containsKey(f)) {
+			throw new IllegalArgumentException("Flight " + f.getFlight().getFlightNumber() + " has already been added");
+		}
+		int id = count++;
+		flights[id] = f;
+		ids.put(f, id);
+		departs[id] = seconds(f.getDepartureDateTime());
+		lands[id] = seconds(f.getLandingDateTime());
+		departureAirports[id] = f.getFlight().getDepartureAirportCode();
+		arrivalAirports[id] = f.getFlight().getArrivalAirportCode();
+		departsUK[id] = Utilities.airportIsInUK(departureAirports[id]);
+		arrivesUK[id] = Utilities.airportIsInUK(arrivalAirports[id]);
+		durations[id] = f.getFlight().getDuration().getSeconds();
+		LocalDate date = f.getDepartureDateTime().toLocalDate();
+		passengers[id] = passengerNumbersDAO.getPassengerNumbersFor(f.getFlight().getFlightNumber(), date);
+		months[id] = monthOf(id);
+		allocations[id] = Allocation.of(schedule, f);
+
+		long delta = flightCost(id, allocations[id]);
+		for (Object resource : allocations[id].resources()) {
+			Timeline timeline = timelineOf(resource);
+			Edit edit = new Edit();
+			edit.added.add(id);
+			edit.region(this);
+
+			delta -= timeline.cost(edit);
+			if (!timeline.insert(id)) {
+				throw new IllegalStateException("Flight " + f.getFlight().getFlightNumber() + " overlaps another flight of the same resource");
+			}
+			delta += timeline.cost(edit);
+		}
+		score += delta;
+	}
+
+	/**
+	 * Sets whether every change is checked against the QualityScoreCalculator, which is as slow
+	 * as not scoring incrementally at all, but shows straight away if the two disagree
+	 * @param verifying true to check every change
+	 */
+	void setVerifying(boolean verifying) {
+		this.verifying = verifying;
+	}
+
+	/**
+	 * Returns the score of the schedule as of the last change the scorer was told about
+	 * @return the quality score
+	 */
+	long getScore() {
+		return score;
+	}
+
+	/**
+	 * Returns the flights of an aircraft or crew member as of the last change the scorer was told about
+	 * @param resource the aircraft or crew member
+	 * @return their flights, in departure order
+	 */
+	List<FlightInfo> flightsOf(Object resource) {
+
+		Timeline timeline = timelines.get(resource);
+		if (timeline == null) {
+			return Collections.emptyList();
+		}
+		List<FlightInfo> theirs = new ArrayList<>(timeline.size);
+		for (int i = 0; i < timeline.size; i++) {
+			theirs.add(flights[timeline.ids[i]]);
+		}
+		return theirs;
+	}
+
+	/**
+	 * Works out how the score would change if some flights were given new allocations, leaving
+	 * the scorer as it was
+	 * @param changed the flights to change
+	 * @param after the new allocation of each flight, in the same order
+	 * @return the change in quality score, negative for an improvement
+	 * @throws DoubleBookedException if an aircraft or crew member would have overlapping flights
+	 * @throws InvalidAllocationException if a flight would be missing any of its aircraft and crew
+	 */
+	long delta(List<FlightInfo> changed, List<Allocation> after) throws DoubleBookedException, InvalidAllocationException {
+		return change(changed, after, false);
+	}
+
+	/**
+	 * Updates the score for a change that has been made to the schedule. In verification mode the
+	 * schedule is rescored in full afterwards, and must agree
+	 * @param changed the flights that changed
+	 * @param after the new allocation of each flight, in the same order
+	 * @throws DoubleBookedException if an aircraft or crew member would have overlapping flights
+	 * @throws InvalidAllocationException if a flight would be missing any of its aircraft and crew
+	 */
+	void apply(List<FlightInfo> changed, List<Allocation> after) throws DoubleBookedException, InvalidAllocationException {
+
+		score += change(changed, after, true);
+		if (verifying) {
+			verify();
+		}
+	}
+
+	/**
+	 * Checks the score against a full run of the QualityScoreCalculator over the schedule, which
+	 * must have had every change the scorer was told about made to it. The calculator only scores
+	 * complete schedules, so until the schedule is complete the score is checked against the
+	 * scorer's own total instead
+	 * @throws IllegalStateException if the two scores differ
+	 */
+	void verify() {
+
+		long expected = schedule.isCompleted() ? calculator.calculateQualityScore() : total();
+		if (expected != score || total() != score) {
+			throw new IllegalStateException("The incremental score is " + score + " and its own total " + total()
+					+ ", but the schedule scores " + expected + ": " + String.join(", ", calculator.describeQualityScore()));
+		}
+	}
+
+	/**
+	 * Makes a change to the timelines, works out the difference it makes to the score and then,
+	 * unless it is to be kept, undoes it
+	 */
+	private long change(List<FlightInfo> changed, List<Allocation> after, boolean keep)
+			throws DoubleBookedException, InvalidAllocationException {
+
+		int[] changedIds = new int[changed.size()];
+		long delta = 0;
+		Map<Object, Edit> edits = new LinkedHashMap<>();
+
+		for (int i = 0; i < changedIds.length; i++) {
+			Integer id = ids.get(changed.get(i));
+			if (id == null) {
+				throw new InvalidAllocationException("Only flights that were completed can be changed");
+			}
+			changedIds[i] = id;
+			Allocation before = allocations[id];
+			Allocation allocation = after.get(i);
+			if (allocation.aircraft == null || allocation.captain == null || allocation.firstOfficer == null
+					|| allocation.cabinCrew.size() < allocation.aircraft.getCabinCrewRequired()) {
+				throw new InvalidAllocationException("Flight " + changed.get(i).getFlight().getFlightNumber() + " would not be fully allocated");
+			}
+
+			delta += flightCost(id, allocation) - flightCost(id, before);
+			for (Object resource : before.resources()) {
+				if (!allocation.contains(resource)) {
+					edits.computeIfAbsent(resource, r -> new Edit()).removed.add(id);
+				}
+			}
+			for (Object resource : allocation.resources()) {
+				if (!before.contains(resource)) {
+					edits.computeIfAbsent(resource, r -> new Edit()).added.add(id);
+				}
+			}
+		}
+
+		//make every edit, keeping track of the ones made so they can be undone
+		List<Map.Entry<Object, Edit>> made = new ArrayList<>();
+		try {
+			for (Map.Entry<Object, Edit> e : edits.entrySet()) {
+				Timeline timeline = timelineOf(e.getKey());
+				Edit edit = e.getValue();
+				edit.region(this);
+
+				delta -= timeline.cost(edit);
+				for (int id : edit.removed) {
+					timeline.remove(id);
+				}
+				for (int i = 0; i < edit.added.size(); i++) {
+					if (!timeline.insert(edit.added.get(i))) {
+						edit.added.subList(i, edit.added.size()).clear();
+						undo(timeline, edit);
+						throw new DoubleBookedException("Already working an overlapping flight");
+					}
+				}
+				made.add(e);
+				delta += timeline.cost(edit);
+			}
+		}
+		catch (DoubleBookedException e) {
+			undoAll(made);
+			throw e;
+		}
+
+		if (!keep) {
+			undoAll(made);
+			return delta;
+		}
+		for (int i = 0; i < changedIds.length; i++) {
+			allocations[changedIds[i]] = after.get(i);
+		}
+		return delta;
+	}
+
+	private void undoAll(List<Map.Entry<Object, Edit>> made) {
+
+		for (int i = made.size() - 1; i >= 0; i--) {
+			undo(timelines.get(made.get(i).getKey()), made.get(i).getValue());
+		}
+	}
+
+	private void undo(Timeline timeline, Edit edit) {
+
+		for (int id : edit.added) {
+			timeline.remove(id);
+		}
+		for (int id : edit.removed) {
+			if (!timeline.insert(id)) {
+				//these flights were all in the timeline together before
+				throw new IllegalStateException("Could not restore the timeline");
+			}
+		}
+	}
+
+	//the score from scratch, from the allocations and timelines
+	private long total() {
+
+		long total = 0;
+		for (int id = 0; id < count; id++) {
+			total += flightCost(id, allocations[id]);
+		}
+		for (Timeline timeline : timelines.values()) {
+			total += timeline.cost(null);
+		}
+		return total;
+	}
+
+	/**
+	 * Works out the penalties that only depend on one flight's allocation: aircraft capacity,
+	 * pilots in the wrong seat and unqualified crew
+	 */
+	private long flightCost(int id, Allocation allocation) {
+
+		long cost = 0;
+		Aircraft aircraft = allocation.aircraft;
+		int seats = aircraft.getSeats();
+		int forecast = passengers[id];
+		if (seats < forecast) {
+			cost += (forecast - seats) * (departsUK[id] ? ScheduleBuilder.OVER_CAPACITY_PER_PASSENGER_UK : ScheduleBuilder.OVER_CAPACITY_PER_PASSENGER_ABROAD);
+		}
+		else if (seats > forecast) {
+			cost += (seats - forecast) * ScheduleBuilder.EMPTY_SEAT;
+		}
+
+		if (allocation.captain.getRank() == Pilot.Rank.FIRST_OFFICER) {
+			cost += CAPTAIN_IN_WRONG_SEAT;
+		}
+		if (allocation.firstOfficer.getRank() == Pilot.Rank.CAPTAIN) {
+			cost += FIRST_OFFICER_IN_WRONG_SEAT;
+		}
+
+		if (!allocation.captain.isQualifiedFor(aircraft)) {
+			cost += ScheduleBuilder.UNQUALIFIED;
+		}
+		if (!allocation.firstOfficer.isQualifiedFor(aircraft)) {
+			cost += ScheduleBuilder.UNQUALIFIED;
+		}
+		for (CabinCrew c : allocation.cabinCrew) {
+			if (!c.isQualifiedFor(aircraft)) {
+				cost += ScheduleBuilder.UNQUALIFIED;
+			}
+		}
+		return cost;
+	}
+
+	/**
+	 * Works out the penalties for an aircraft flying one flight and then the next: a short turnaround,
+	 * or a positioning flight if it has to move between them
+	 */
+	private long aircraftCost(int previous, int next) {
+
+		long cost = 0;
+		long turnaround = departs[next] - lands[previous];
+		if (turnaround < TURNAROUND_15_MINUTES) {
+			cost += ScheduleBuilder.TURNAROUND_UNDER_15;
+		}
+		else if (turnaround < TURNAROUND_30_MINUTES) {
+			cost += ScheduleBuilder.TURNAROUND_UNDER_30;
+		}
+		if (!arrivalAirports[previous].equals(departureAirports[next])) {
+			cost += ScheduleBuilder.POSITIONING_FLIGHT;
+		}
+		return cost;
+	}
+
+	/**
+	 * Works out the penalties for a crew member working one flight and then the next: too little rest,
+	 * resting away from their home base, and being left abroad
+	 */
+	private long crewCost(String homeBase, int previous, int next) {
+
+		long cost = 0;
+		long rest = departs[next] - lands[previous];
+		if (departsUK[next] && arrivesUK[previous] && rest < NIGHTLY_REST_SECONDS) {
+			cost += ScheduleBuilder.NIGHTLY_REST;
+		}
+		if (rest < REST_AWAY_FROM_BASE_SECONDS) {
+			if (departsUK[next] && !departureAirports[next].equals(homeBase)) {
+				cost += ScheduleBuilder.REST_AWAY_FROM_BASE;
+			}
+			if (arrivesUK[previous] && !arrivalAirports[previous].equals(homeBase)) {
+				cost += ScheduleBuilder.REST_AWAY_FROM_BASE;
+			}
+		}
+
+		//flying in from abroad, and flying out to abroad, are each penalised unless it was a quick turn round
+		if (!arrivalAirports[previous].equals(departureAirports[next]) || rest >= TURN_ROUND_SECONDS) {
+			long away = ScheduleBuilder.AWAY_WITHOUT_RETURN + (rest < AWAY_WITHOUT_RETURN_SECONDS ? ScheduleBuilder.AWAY_WITHOUT_RETURN_UNDER_48H : 0);
+			if (!departsUK[next]) {
+				cost += away;
+			}
+			if (!arrivesUK[previous]) {
+				cost += away;
+			}
+		}
+		return cost;
+	}
+
+	private int monthOf(int id) {
+
+		for (int i = 0; i < monthStarts.length - 1; i++) {
+			if (departs[id] > monthStarts[i] && lands[id] < monthStarts[i + 1]) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	//the week and month a time falls in, clamped to the ones the rules look at
+	private int weekAt(long t) {
+		return (int) Math.max(0, Math.min(weeks - 1, Math.floorDiv(t - firstWeekStart, WEEK_SECONDS)));
+	}
+
+	private int monthAt(long t) {
+
+		int i = 0;
+		while (i < monthStarts.length - 2 && monthStarts[i + 1] <= t) {
+			i++;
+		}
+		return i;
+	}
+
+	private Timeline timelineOf(Object resource) {
+		return timelines.computeIfAbsent(resource, r -> r instanceof Crew ? new Timeline(((Crew) r).getHomeBase()) : new Timeline());
+	}
+
+	private static long seconds(LocalDateTime t) {
+		return t.toEpochSecond(ZoneOffset.UTC);
+	}
+
+	/**
+	 * The flights one resource gains and loses in a change, and the part of their timeline that covers
+	 */
+	private static final class Edit {
+
+		final List<Integer> removed = new ArrayList<>(2);
+		final List<Integer> added = new ArrayList<>(2);
+
+		//first and last departures changed, and the weeks and months they fall in
+		long from = Long.MAX_VALUE;
+		long to = Long.MIN_VALUE;
+		int firstWeek = Integer.MAX_VALUE;
+		int lastWeek = Integer.MIN_VALUE;
+		int firstMonth = Integer.MAX_VALUE;
+		int lastMonth = Integer.MIN_VALUE;
+
+		void region(IncrementalScorer scorer) {
+
+			for (List<Integer> list : Arrays.asList(removed, added)) {
+				for (int id : list) {
+					from = Math.min(from, scorer.departs[id]);
+					to = Math.max(to, scorer.departs[id]);
+					firstWeek = Math.min(firstWeek, scorer.weekAt(scorer.departs[id]));
+					lastWeek = Math.max(lastWeek, scorer.weekAt(scorer.lands[id]));
+					firstMonth = Math.min(firstMonth, scorer.monthAt(scorer.departs[id]));
+					lastMonth = Math.max(lastMonth, scorer.monthAt(scorer.lands[id]));
+				}
+			}
+		}
+	}
+
+	/**
+	 * The flights of one aircraft or crew member in departure order. As none of them overlap,
+	 * they are in landing order too
+	 */
+	private final class Timeline {
+
+		final boolean crew;
+		final String homeBase;
+		final long[] monthSeconds;
+
+		int[] ids = new int[16];
+		int size;
+
+		//an aircraft's timeline
+		Timeline() {
+
+			this.crew = false;
+			this.homeBase = null;
+			this.monthSeconds = null;
+		}
+
+		//a crew member's timeline, which also keeps their working time in each month
+		Timeline(String homeBase) {
+
+			this.crew = true;
+			this.homeBase = homeBase;
+			this.monthSeconds = new long[monthStarts.length - 1];
+		}
+
+		/**
+		 * Puts a flight in its place in departure order
+		 * @return false, leaving the timeline as it was, if the flight overlaps one already there
+		 */
+		boolean insert(int id) {
+
+			int i = firstDepartingAfter(departs[id]);
+			if ((i > 0 && departs[id] < lands[ids[i - 1]]) || (i < size && departs[ids[i]] < lands[id])) {
+				return false;
+			}
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			System.arraycopy(ids, i, ids, i + 1, size - i);
+			ids[i] = id;
+			size++;
+			worked(id, 1);
+			return true;
+		}
+
+		void remove(int id) {
+
+			int i = firstDepartingAfter(departs[id] - 1);
+			while (ids[i] != id) {
+				i++;
+			}
+			System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+			size--;
+			worked(id, -1);
+		}
+
+		private void worked(int id, int sign) {
+
+			if (crew && months[id] >= 0) {
+				monthSeconds[months[id]] += sign * durations[id];
+			}
+		}
+
+		/**
+		 * Works out the penalties for this resource's flights in the region of an edit, which is
+		 * the same before and after the edit is made, or for all of them
+		 * @param edit the edit, or null for the whole timeline
+		 */
+		long cost(Edit edit) {
+
+			long cost = 0;
+
+			//every pair of flights next to each other that involves a changed flight
+			int first = 0;
+			int last = size - 1;
+			if (edit != null) {
+				first = Math.max(0, firstDepartingAfter(edit.from - 1) - 1);
+				last = Math.min(size - 1, firstDepartingAfter(edit.to));
+			}
+			for (int i = first; i < last; i++) {
+				cost += crew ? crewCost(homeBase, ids[i], ids[i + 1]) : aircraftCost(ids[i], ids[i + 1]);
+			}
+			if (!crew) {
+				return cost;
+			}
+
+			int firstWeek = edit == null ? 0 : edit.firstWeek;
+			int lastWeek = edit == null ? weeks - 1 : edit.lastWeek;
+			for (int w = firstWeek; w <= lastWeek && w < weeks; w++) {
+				if (!restedDuring(weekStart(w))) {
+					cost += WEEKLY_REST;
+				}
+			}
+
+			int firstMonth = edit == null ? 0 : edit.firstMonth;
+			int lastMonth = edit == null ? monthSeconds.length - 1 : edit.lastMonth;
+			for (int m = firstMonth; m <= lastMonth && m < monthSeconds.length; m++) {
+				long over = monthSeconds[m] - MONTHLY_LIMIT_SECONDS;
+				if (over > 0) {
+					cost += ScheduleBuilder.MONTHLY_HOURS_PER_HOUR * (over / SECONDS_PER_HOUR);
+				}
+			}
+			return cost;
+		}
+
+		/**
+		 * Checks for a long enough break in a week, between its start, each departure and landing
+		 * inside it, and its end
+		 */
+		private boolean restedDuring(long start) {
+
+			long end = start + WEEK_SECONDS;
+			long previous = start;
+			for (int i = firstLandingAfter(start); i < size && departs[ids[i]] < end; i++) {
+				int id = ids[i];
+				if (departs[id] > start) {
+					if (departs[id] - previous >= WEEKLY_REST_SECONDS) {
+						return true;
+					}
+					previous = departs[id];
+				}
+				if (lands[id] < end) {
+					if (lands[id] - previous >= WEEKLY_REST_SECONDS) {
+						return true;
+					}
+					previous = lands[id];
+				}
+			}
+			return end - previous >= WEEKLY_REST_SECONDS;
+		}
+
+		private long weekStart(int w) {
+			return firstWeekStart + w * WEEK_SECONDS;
+		}
+
+		//index of the first flight departing after a time, or size if there is none
+		private int firstDepartingAfter(long t) {
+
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (departs[ids[mid]] > t) {
+					high = mid;
+				}
+				else {
+					low = mid + 1;
+				}
+			}
+			return low;
+		}
+
+		private int firstLandingAfter(long t) {
+
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (lands[ids[mid]] > t) {
+					high = mid;
+				}
+				else {
+					low = mid + 1;
+				}
+			}
+			return low;
+		}
+	}
+
+}
@@ -0,0 +1,569 @@
+package solution;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import baseclasses.Aircraft;
+import baseclasses.DoubleBookedException;
+import baseclasses.FlightInfo;
+import baseclasses.IAircraftDAO;
+import baseclasses.ICrewDAO;
+import baseclasses.IPassengerNumbersDAO;
+import baseclasses.InvalidAllocationException;
+import baseclasses.Pilot;
+import baseclasses.Schedule;
+import baseclasses.Utilities;
+
+/**
+ * Improves a complete schedule by simulated annealing. Each step proposes a small change - another
+ * aircraft or crew member for a flight, or an exchange between two flights - and works out what it
+ * would do to the quality score with an IncrementalScorer, so only the changes that are kept are
+ * made to the schedule. Changes that improve the score are kept, and ones that make it worse are
+ * sometimes kept while the temperature is high, so the search can climb out of a local minimum.
+ * The best schedule seen is published as a snapshot every time it improves, so the search can be
+ * stopped at any moment without losing what it has found
+ */
+class LocalSearch {
+
+	//the temperature falls geometrically from the first to the second over the time allowed
+	private static final double START_TEMPERATURE = 5000;
+	private static final double END_TEMPERATURE = 10;
+
+	//how far either side of a flight, in departure order, to look for a flight to exchange with
+	private static final int EXCHANGE_WINDOW = 200;
+
+	//how many random candidates to try when looking for a replacement
+	private static final int CANDIDATE_TRIES = 8;
+
+	private final ICrewDAO crewDAO;
+	private final Schedule schedule;
+	private final IncrementalScorer scorer;
+	private final Random random;
+
+	//the completed flights, in departure order
+	private final List<FlightInfo> flights;
+
+	//when each aircraft and crew member is busy on the completed flights, kept in step with the schedule
+	private final AvailabilityIndex availability = new AvailabilityIndex();
+
+	//the flights that may be changed: departing from the first to the second time, which are null
+	//when the search is not limited to a window, and their positions in the list of flights
+	private LocalDateTime windowStart;
+	private LocalDateTime windowEnd;
+	private int first;
+	private int last;
+
+	private ChangeListener listener;
+
+	private final Map<String, List<Pilot>> captainsByType = new HashMap<>();
+	private final Map<String, List<Pilot>> firstOfficersByType = new HashMap<>();
+
+	//which aircraft each flight could be given, so aircraft it could never have aren't tried
+	private final FeasibilityAnalyser domains;
+
+	private volatile boolean stopped;
+
+	private long currentScore;
+	private long steps;
+	private long accepted;
+
+	/**
+	 * Told about every change the search makes to the schedule
+	 */
+	@FunctionalInterface
+	interface ChangeListener {
+
+		/**
+		 * Called after some flights have been given new aircraft or crew
+		 * @param changed the flights
+		 * @param before the allocation of each flight as it was
+		 * @param after the allocation of each flight as it is now
+		 */
+		void reallocated(List<FlightInfo> changed, List<Allocation> before, List<Allocation> after);
+	}
+
+	/**
+	 * Creates a search that will change the given schedule in place
+	 * @param aircraftDAO the aircraft that can be used
+	 * @param crewDAO the crew that can be used
+	 * @param passengerNumbersDAO the passenger forecasts to score with
+	 * @param feasibility the analysis of the same aircraft and crew, for which aircraft a flight can move to
+	 * @param schedule the schedule, whose completed allocations will be searched
+	 * @param random the source of the search's random choices
+	 */
+	LocalSearch(IAircraftDAO aircraftDAO, ICrewDAO crewDAO, IPassengerNumbersDAO passengerNumbersDAO, FeasibilityAnalyser feasibility,
+			Schedule schedule, Random random) {
+
+		this.domains = feasibility;
+		this.crewDAO = crewDAO;
+		this.schedule = schedule;
+		this.scorer = new IncrementalScorer(aircraftDAO, crewDAO, passengerNumbersDAO, schedule);
+		this.random = random;
+
+		flights = schedule.getCompletedAllocations();
+		flights.sort(Comparator.comparing(FlightInfo::getDepartureDateTime));
+		for (FlightInfo f : flights) {
+			record(Allocation.of(schedule, f), f);
+		}
+
+		for (Pilot p : crewDAO.getAllPilots()) {
+			Map<String, List<Pilot>> byType = p.getRank() == Pilot.Rank.CAPTAIN ? captainsByType : firstOfficersByType;
+			for (String type : p.getTypeRatings()) {
+				byType.computeIfAbsent(type, t -> new ArrayList<>()).add(p);
+			}
+		}
+	}
+
+	/**
+	 * Sets whether the quality score is checked in full after every change that is kept, which
+	 * is much slower but shows straight away if the incremental score goes wrong
+	 * @param verifying true to check every change
+	 */
+	void setVerifying(boolean verifying) {
+		scorer.setVerifying(verifying);
+	}
+
+	/**
+	 * Sets something to tell about every change the search makes, such as the builder of a
+	 * schedule that is still being built
+	 * @param listener the listener, or null for none
+	 */
+	void setChangeListener(ChangeListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Adds flights that have been completed since the search was created, so they can be searched too
+	 * @param completed the flights, which may depart before some the search already has
+	 */
+	void add(List<FlightInfo> completed) {
+
+		for (FlightInfo f : completed) {
+			scorer.add(f);
+			record(Allocation.of(schedule, f), f);
+			flights.add(countDepartingBefore(f.getDepartureDateTime().plusNanos(1)), f);
+		}
+		currentScore = scorer.getScore();
+	}
+
+	/**
+	 * Searches until the deadline passes, the thread is interrupted or the search is stopped. The
+	 * schedule is left as the search last had it, which may not be the best it found
+	 * @param deadline when to stop, as a System.nanoTime() value
+	 * @param onImprovement told about the starting schedule, then about each better one found
+	 * @return the best schedule found, which is the starting one if nothing better was found
+	 */
+	ScheduleSnapshot improve(long deadline, Consumer<ScheduleSnapshot> onImprovement) {
+
+		ScheduleSnapshot[] best = {ScheduleSnapshot.of(schedule, scorer.getScore())};
+		onImprovement.accept(best[0]);
+
+		search(null, null, deadline, () -> {
+			best[0] = ScheduleSnapshot.of(schedule, currentScore);
+			onImprovement.accept(best[0]);
+		}, null);
+
+		schedule.sort();
+		return best[0];
+	}
+
+	/**
+	 * Searches only the flights departing in a window, leaving everything before and after it as it
+	 * is. Flights with the other half of their trip outside the window keep their aircraft and crew.
+	 * No snapshots are taken, so the time a step takes depends on the window and not on the size of
+	 * the schedule. Instead the changes kept since the best score are remembered and undone at the
+	 * end, so the window is left as the best the search found
+	 * @param from the earliest departure to search
+	 * @param to the departure to search up to, but not including
+	 * @param deadline when to stop, as a System.nanoTime() value
+	 */
+	void improveWindow(LocalDateTime from, LocalDateTime to, long deadline) {
+		List<Move> sinceBest = new ArrayList<>();
+		search(from, to, deadline, sinceBest::clear, sinceBest);
+
+		for (int i = sinceBest.size() - 1; i >= 0; i--) {
+			sinceBest.get(i).undo();
+		}
+		currentScore = scorer.getScore();
+	}
+
+	/**
+	 * Runs the search over the flights departing in a window
+	 * @param onImprovement run each time the score is better than it has been
+	 * @param kept every change that is kept is added to this, if it isn't null
+	 */
+	private void search(LocalDateTime from, LocalDateTime to, long deadline, Runnable onImprovement, List<Move> kept) {
+
+		windowStart = from;
+		windowEnd = to;
+		first = from == null ? 0 : countDepartingBefore(from);
+		last = to == null ? flights.size() : countDepartingBefore(to);
+
+		currentScore = scorer.getScore();
+		long bestScore = currentScore;
+
+		long start = System.nanoTime();
+		while (first < last && System.nanoTime() < deadline && !stopped && !Thread.currentThread().isInterrupted()) {
+
+			double progress = (double) (System.nanoTime() - start) / (deadline - start);
+			double temperature = START_TEMPERATURE * Math.pow(END_TEMPERATURE / START_TEMPERATURE, progress);
+
+			steps++;
+			Move move = propose();
+			if (move == null) {
+				continue;
+			}
+
+			long delta;
+			try {
+				delta = scorer.delta(move.changed, move.after);
+			}
+			catch (DoubleBookedException | InvalidAllocationException e) {
+				continue;
+			}
+
+			if (delta <= 0 || random.nextDouble() < Math.exp(-delta / temperature)) {
+				move.apply();
+				currentScore = scorer.getScore();
+				accepted++;
+				if (kept != null) {
+					kept.add(move);
+				}
+				if (currentScore < bestScore) {
+					bestScore = currentScore;
+					onImprovement.run();
+				}
+			}
+		}
+	}
+
+	//the number of searchable flights departing before a time
+	private int countDepartingBefore(LocalDateTime time) {
+
+		int low = 0;
+		int high = flights.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (flights.get(mid).getDepartureDateTime().isBefore(time)) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private boolean inWindow(FlightInfo f) {
+
+		LocalDateTime departs = f.getDepartureDateTime();
+		return (windowStart == null || !departs.isBefore(windowStart)) && (windowEnd == null || departs.isBefore(windowEnd));
+	}
+
+	/**
+	 * Asks the search to stop as soon as it can. This is for stopping a search running on another
+	 * thread, which can't be interrupted directly
+	 */
+	void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Returns the quality score of the schedule as the search left it
+	 * @return the current score
+	 */
+	long getCurrentScore() {
+		return currentScore;
+	}
+
+	/**
+	 * Returns the number of changes proposed so far, including ones that could not be made
+	 * @return the number of steps taken
+	 */
+	long getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Returns the number of changes kept so far
+	 * @return the number of accepted changes
+	 */
+	long getAccepted() {
+		return accepted;
+	}
+
+	private Move propose() {
+
+		int i = first + random.nextInt(last - first);
+		FlightInfo f = flights.get(i);
+		Allocation current = Allocation.of(schedule, f);
+
+		switch (random.nextInt(4)) {
+		case 0:
+			Object member = current.crewMember(random.nextInt(current.crewSize()));
+			return replace(member, f, replacementFor(member, current));
+		case 1:
+			FlightInfo g = flights.get(Math.max(first, Math.min(last - 1, i + random.nextInt(2 * EXCHANGE_WINDOW + 1) - EXCHANGE_WINDOW)));
+			int role = random.nextInt(current.crewSize());
+			Allocation other = Allocation.of(schedule, g);
+			if (g == f || role >= other.crewSize()) {
+				return null;
+			}
+			return exchange(current.crewMember(role), f, other.crewMember(role), g);
+		case 2:
+			List<Aircraft> usable = domains.aircraftFor(current.cabinCrew.size());
+			if (usable.isEmpty()) {
+				return null;
+			}
+			return replace(current.aircraft, f, usable.get(random.nextInt(usable.size())));
+		default:
+			FlightInfo h = flights.get(Math.max(first, Math.min(last - 1, i + random.nextInt(2 * EXCHANGE_WINDOW + 1) - EXCHANGE_WINDOW)));
+			Aircraft theirs = schedule.getAircraftFor(h);
+			if (h == f || theirs.getCabinCrewRequired() > current.cabinCrew.size()
+					|| current.aircraft.getCabinCrewRequired() > schedule.getCabinCrewOf(h).size()) {
+				return null;
+			}
+			return exchange(current.aircraft, f, theirs, h);
+		}
+	}
+
+	/**
+	 * Picks a crew member who could take over from another on a flight: a pilot of the same rank
+	 * type rated for the aircraft, or a cabin crew member rated for it
+	 */
+	private Object replacementFor(Object member, Allocation current) {
+
+		String type = current.aircraft.getTypeCode();
+		List<? extends Object> candidates;
+		if (member instanceof Pilot) {
+			Map<String, List<Pilot>> byType = ((Pilot) member).getRank() == Pilot.Rank.CAPTAIN ? captainsByType : firstOfficersByType;
+			candidates = byType.getOrDefault(type, Collections.emptyList());
+		}
+		else {
+			candidates = crewDAO.findCabinCrewByTypeRating(type);
+		}
+
+		for (int i = 0; i < CANDIDATE_TRIES && !candidates.isEmpty(); i++) {
+			Object candidate = candidates.get(random.nextInt(candidates.size()));
+			if (!current.contains(candidate)) {
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+	private Move replace(Object from, FlightInfo f, Object to) {
+
+		if (to == null || from == to || !keepsSeat(from, f, to)) {
+			return null;
+		}
+		Move move = new Move();
+		for (FlightInfo g : rotation(from, f)) {
+			if (!move.change(g, Allocation.of(schedule, g).replace(from, to))) {
+				return null;
+			}
+		}
+		return move;
+	}
+
+	private Move exchange(Object a, FlightInfo f, Object b, FlightInfo g) {
+
+		if (a == null || b == null || a == b || !keepsSeat(a, f, b) || !keepsSeat(b, g, a)) {
+			return null;
+		}
+		List<FlightInfo> ofA = rotation(a, f);
+		List<FlightInfo> ofB = rotation(b, g);
+		for (FlightInfo x : ofA) {
+			if (ofB.contains(x)) {
+				return null;
+			}
+		}
+
+		Move move = new Move();
+		for (FlightInfo x : ofA) {
+			if (!move.change(x, Allocation.of(schedule, x).replace(a, b))) {
+				return null;
+			}
+		}
+		for (FlightInfo x : ofB) {
+			if (!move.change(x, Allocation.of(schedule, x).replace(b, a))) {
+				return null;
+			}
+		}
+		return move;
+	}
+
+	/**
+	 * Checks that a pilot taking over from another on a flight won't end up in both seats across the
+	 * schedule, which Schedule can't report in order
+	 */
+	private boolean keepsSeat(Object from, FlightInfo f, Object to) {
+
+		if (!(to instanceof Pilot)) {
+			return true;
+		}
+		Pilot pilot = (Pilot) to;
+		boolean captain = schedule.getCaptainOf(f) == from;
+		for (FlightInfo g : schedule.getCompletedAllocationsFor(pilot)) {
+			if ((captain ? schedule.getFirstOfficerOf(g) : schedule.getCaptainOf(g)) == pilot) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds a flight together with the other half of its there-and-back trip for the same aircraft or
+	 * crew member, so both halves can be changed together and the trip isn't broken
+	 * @param resource the aircraft or crew member
+	 * @param f one of their flights
+	 * @return the flight, and the flight before or after it when that is the other half of the trip
+	 */
+	private List<FlightInfo> rotation(Object resource, FlightInfo f) {
+
+		List<FlightInfo> theirs = scorer.flightsOf(resource);
+		int i = theirs.indexOf(f);
+		List<FlightInfo> rotation = new ArrayList<>(2);
+		rotation.add(f);
+
+		String arrival = f.getFlight().getArrivalAirportCode();
+		String departure = f.getFlight().getDepartureAirportCode();
+		if (!Utilities.airportIsInUK(arrival) && i + 1 < theirs.size()
+				&& theirs.get(i + 1).getFlight().getDepartureAirportCode().equals(arrival)) {
+			rotation.add(theirs.get(i + 1));
+		}
+		else if (!Utilities.airportIsInUK(departure) && i > 0
+				&& theirs.get(i - 1).getFlight().getArrivalAirportCode().equals(departure)) {
+			rotation.add(theirs.get(i - 1));
+		}
+		return rotation;
+	}
+
+	/**
+	 * Checks that an aircraft and crew have no flight overlapping the given one. Schedule.hasConflict()
+	 * misses some overlaps, such as two flights landing at the same time, depending on which was allocated first
+	 */
+	private boolean isFree(Allocation allocation, FlightInfo f) {
+
+		long departs = ScheduleBuilder.minutes(f.getDepartureDateTime());
+		long lands = ScheduleBuilder.minutes(f.getLandingDateTime());
+		for (Object resource : allocation.resources()) {
+			if (!availability.isFree(resource, departs, lands)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void record(Allocation allocation, FlightInfo f) {
+
+		for (Object resource : allocation.resources()) {
+			availability.add(resource, f);
+		}
+	}
+
+	private void forget(Allocation allocation, FlightInfo f) {
+
+		for (Object resource : allocation.resources()) {
+			availability.remove(resource, f);
+		}
+	}
+
+	/**
+	 * A change to the allocations of one or more flights, which is made to the schedule and the scorer together
+	 */
+	private final class Move {
+
+		private final List<FlightInfo> changed = new ArrayList<>();
+		private final List<Allocation> before = new ArrayList<>();
+		private final List<Allocation> after = new ArrayList<>();
+
+		boolean change(FlightInfo f, Allocation allocation) {
+
+			if (allocation == null || !inWindow(f)) {
+				return false;
+			}
+			if (changed.contains(f)) {
+				return false;
+			}
+			changed.add(f);
+			before.add(Allocation.of(schedule, f));
+			after.add(allocation);
+			return true;
+		}
+
+		void apply() {
+			make(before, after);
+		}
+
+		void undo() {
+			make(after, before);
+		}
+
+		private void make(List<Allocation> from, List<Allocation> to) {
+
+			//the scorer has already checked the change, so the schedule should take it too
+			if (!write(from, to)) {
+				if (!write(null, from)) {
+					throw new IllegalStateException("Could not restore allocations that were valid before");
+				}
+				throw new IllegalStateException("The schedule would not take a change the scorer allowed");
+			}
+			try {
+				scorer.apply(changed, to);
+			}
+			catch (DoubleBookedException | InvalidAllocationException e) {
+				throw new IllegalStateException(e);
+			}
+			if (listener != null) {
+				listener.reallocated(changed, from, to);
+			}
+		}
+
+		/**
+		 * Gives the changed flights new allocations, leaving them with none if that can't be done
+		 * @param held the allocations the flights have now, or null if they have none
+		 * @param allocations the allocations to give them
+		 * @return true if every flight took its new allocation
+		 */
+		private boolean write(List<Allocation> held, List<Allocation> allocations) {
+
+			//take everything off first, so resources moving between the changed flights don't clash
+			for (int i = 0; i < changed.size(); i++) {
+				ScheduleBuilder.unAllocate(schedule, changed.get(i));
+				if (held != null) {
+					forget(held.get(i), changed.get(i));
+				}
+			}
+			int written = 0;
+			try {
+				for (; written < changed.size(); written++) {
+					Allocation allocation = allocations.get(written);
+					FlightInfo f = changed.get(written);
+					if (!isFree(allocation, f)) {
+						throw new DoubleBookedException("Already working an overlapping flight");
+					}
+					allocation.allocateTo(schedule, f);
+					record(allocation, f);
+				}
+				return true;
+			}
+			catch (DoubleBookedException | InvalidAllocationException e) {
+				for (int i = 0; i < changed.size(); i++) {
+					ScheduleBuilder.unAllocate(schedule, changed.get(i));
+					if (i < written) {
+						forget(allocations.get(i), changed.get(i));
+					}
+				}
+				return false;
+			}
+		}
+	}
+
+}
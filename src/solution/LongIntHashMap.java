@@ -0,0 +1,204 @@
+package solution;
+import java.util.Arrays;
+
+/**
+ * A small open-addressing hash map from primitive long keys to primitive int values.
+ * Lookups and updates never box or allocate, which makes it suitable for indexing
+ * data by composite keys packed into a single long (see {@link #pack(int, int)})
+ */
+public class LongIntHashMap {
+
+	//the key used to mark a free slot; a real entry with this key is stored on the side
+	private static final long FREE_KEY = 0L;
+
+	private static final float LOAD_FACTOR = 0.5f;
+
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size;
+	private int resizeAt;
+
+	private boolean hasFreeKey;
+	private int freeKeyValue;
+
+	/**
+	 * Creates an empty map with a small default capacity
+	 */
+	public LongIntHashMap() {
+		this(16);
+	}
+
+	/**
+	 * Creates an empty map able to hold the given number of entries before it needs to grow
+	 * @param expectedSize the number of entries the map is expected to hold
+	 */
+	public LongIntHashMap(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+
+	/**
+	 * Creates a map holding the same entries as another, able to hold more before it needs to grow
+	 * @param other the map to copy, which is left unchanged
+	 * @param extraEntries the number of entries expected to be added to the copy
+	 */
+	public LongIntHashMap(LongIntHashMap other, int extraEntries) {
+
+		allocate(capacityFor(other.size + extraEntries));
+		if (other.hasFreeKey) {
+			put(FREE_KEY, other.freeKeyValue);
+		}
+		for (int i = 0; i < other.keys.length; i++) {
+			if (other.keys[i] != FREE_KEY) {
+				put(other.keys[i], other.values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Packs two ints into a single long key, the first in the high 32 bits
+	 * @param high the value for the high 32 bits, e.g. a flight number
+	 * @param low the value for the low 32 bits, e.g. an epoch day
+	 * @return the packed key
+	 */
+	public static long pack(int high, int low) {
+		return ((long) high << 32) | (low & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the value stored for the given key, or the default value if there is none
+	 * @param key the key to look up
+	 * @param defaultValue the value to return if the key is not present
+	 * @return the value stored for the key, or defaultValue
+	 */
+	public int get(long key, int defaultValue) {
+
+		if (key == FREE_KEY) {
+			return hasFreeKey ? freeKeyValue : defaultValue;
+		}
+
+		int slot = mix(key) & mask;
+		long k;
+		while ((k = keys[slot]) != FREE_KEY) {
+			if (k == key) {
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Returns whether a value is stored for the given key
+	 * @param key the key to look up
+	 * @return true if the key is present
+	 */
+	public boolean containsKey(long key) {
+
+		if (key == FREE_KEY) {
+			return hasFreeKey;
+		}
+
+		int slot = mix(key) & mask;
+		long k;
+		while ((k = keys[slot]) != FREE_KEY) {
+			if (k == key) {
+				return true;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+
+	/**
+	 * Stores a value for the given key, overwriting any previous value
+	 * @param key the key to store the value under
+	 * @param value the value to store
+	 */
+	public void put(long key, int value) {
+
+		if (key == FREE_KEY) {
+			if (!hasFreeKey) {
+				size++;
+			}
+			hasFreeKey = true;
+			freeKeyValue = value;
+			return;
+		}
+
+		int slot = mix(key) & mask;
+		long k;
+		while ((k = keys[slot]) != FREE_KEY) {
+			if (k == key) {
+				values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		keys[slot] = key;
+		values[slot] = value;
+
+		if (++size >= resizeAt) {
+			rehash(keys.length * 2);
+		}
+	}
+
+	/**
+	 * Returns the number of entries in the map
+	 * @return the number of entries in the map
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all entries from the map, keeping its current capacity
+	 */
+	public void clear() {
+
+		Arrays.fill(keys, FREE_KEY);
+		size = 0;
+		hasFreeKey = false;
+	}
+
+	private void rehash(int newCapacity) {
+
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+
+		allocate(newCapacity);
+		size = hasFreeKey ? 1 : 0;
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE_KEY) {
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+
+		keys = new long[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+		resizeAt = (int) (capacity * LOAD_FACTOR);
+	}
+
+	private static int capacityFor(int expectedSize) {
+
+		int capacity = 16;
+		while (capacity * LOAD_FACTOR <= expectedSize) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	//spreads the key bits so that packed keys differing only in the high word still land apart
+	private static int mix(long key) {
+
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+}
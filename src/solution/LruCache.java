@@ -0,0 +1,108 @@
+package solution;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A map of query results that holds at most a fixed number of entries, dropping the least
+ * recently used one to make room, and counts how often a result was found or had to be worked
+ * out. It is safe to share between threads: the lock is only held to look up and store a
+ * result, never while working one out, so a slow query doesn't hold up other threads
+ * @param <K> the type of the key, e.g. a query and its arguments
+ * @param <V> the type of the results, which may be null
+ */
+final class LruCache<K, V> {
+
+	private final String name;
+	private final int capacity;
+	private final LinkedHashMap<K, V> entries;
+
+	//bumped by every clear(), so a result worked out from data that has since changed is never stored
+	private long generation;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder invalidations = new LongAdder();
+
+	/**
+	 * Creates an empty cache
+	 * @param name the name to report the cache's statistics under
+	 * @param capacity the most entries to hold
+	 */
+	LruCache(String name, int capacity) {
+
+		if (capacity < 1) {
+			throw new IllegalArgumentException("A cache must be able to hold at least one entry, was " + capacity);
+		}
+		this.name = name;
+		this.capacity = capacity;
+		entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+
+				if (size() > LruCache.this.capacity) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the result stored for a key, working it out and storing it if there isn't one
+	 * @param key the key
+	 * @param query works out the result on a miss
+	 * @return the result
+	 */
+	V get(K key, Supplier<V> query) {
+
+		long seen;
+		synchronized (this) {
+			V value = entries.get(key);
+			if (value != null || entries.containsKey(key)) {
+				hits.increment();
+				return value;
+			}
+			seen = generation;
+		}
+
+		misses.increment();
+		V value = query.get();
+		synchronized (this) {
+			if (generation == seen) {
+				entries.put(key, value);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Drops every entry, because the data the results were worked out from has changed
+	 */
+	synchronized void clear() {
+
+		entries.clear();
+		generation++;
+		invalidations.increment();
+	}
+
+	/**
+	 * Returns how well the cache has done so far
+	 * @return the cache's counts and size
+	 */
+	CacheStatistics statistics() {
+
+		int size;
+		synchronized (this) {
+			size = entries.size();
+		}
+		return new CacheStatistics(name, hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), size, capacity);
+	}
+
+}
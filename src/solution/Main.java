@@ -1,14 +1,11 @@
 package solution;
 
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 
 import baseclasses.DataLoadingException;
-import baseclasses.IAircraftDAO;
-import baseclasses.ICrewDAO;
-import baseclasses.IRouteDAO;
 import baseclasses.IScheduler;
-import baseclasses.IPassengerNumbersDAO;
 
 /**
  * This class allows you to run the code in your classes yourself, for testing and development
@@ -16,19 +13,30 @@ import baseclasses.IPassengerNumbersDAO;
 public class Main {
 	
 	public static void main(String[] args) throws DataLoadingException {	
-		IAircraftDAO aircraft = new AircraftDAO();
-		ICrewDAO  crew = new CrewDAO();
-		IRouteDAO route = new RouteDAO();
-		IPassengerNumbersDAO passengers = new PassengerNumbersDAO();
+		AircraftDAO aircraft = new AircraftDAO();
+		CrewDAO  crew = new CrewDAO();
+		RouteDAO route = new RouteDAO();
+		PassengerNumbersDAO passengers = new PassengerNumbersDAO();
 		IScheduler scheduler = new Scheduler();
 		
 				
 		try {
-			//Tells your Aircraft DAO to load this particular data file
-			aircraft.loadAircraftData(Paths.get("./data/mini_aircraft.csv"));
-			crew.loadCrewData(Paths.get("./data/mini_crew.json"));
-			route.loadRouteData(Paths.get("./data/mini_routes.xml"));
-			passengers.loadPassengerNumbersData(Paths.get("./data/mini_passengers.db"));
+			//Tells each DAO to load its data file, all four at the same time, from snapshots of the files when they haven't changed.
+			//The snapshots are kept in ./snapshots unless -Dsolution.snapshots names another directory
+			Path snapshots = Paths.get(System.getProperty("solution.snapshots", "./snapshots"));
+			DataBootstrap bootstrap = new DataBootstrap().addAll(
+					aircraft, Paths.get("./data/mini_aircraft.csv"),
+					crew, Paths.get("./data/mini_crew.json"),
+					route, Paths.get("./data/mini_routes.xml"),
+					passengers, Paths.get("./data/mini_passengers.db"),
+					snapshots);
+			bootstrap.loadAll();
+			System.out.println(bootstrap.report());
+			
+			//run with -Dsolution.metrics=true to see what each load did
+			if (Metrics.isEnabled()) {
+				System.out.print(Metrics.dumpText());
+			}
 	
 			
 		}
@@ -37,7 +45,7 @@ public class Main {
 			throw new DataLoadingException(e);
 		}
 		catch (DataLoadingException  dle) {
-			System.err.println("Error loading aircraft data");
+			System.err.println("Error loading data");
 			dle.printStackTrace();
 		}
 		
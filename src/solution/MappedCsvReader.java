@@ -0,0 +1,259 @@
+package solution;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a simple comma separated file (no quoting) straight out of a memory-mapped buffer.
+ * Each call to nextRow() finds the field boundaries of one line without copying it; fields are
+ * then parsed where they lie, so numbers never become Strings and repeated short values such as
+ * codes and names can be shared through a small intern table instead of being allocated per row
+ */
+public class MappedCsvReader {
+
+	private final MappedByteBuffer buffer;
+	private final int limit;
+	private int position;
+	private int lineNumber;
+
+	private int fieldCount;
+	private int[] fieldStarts = new int[16];
+	private int[] fieldEnds = new int[16];
+
+	private byte[] scratch = new byte[64];
+
+	//open-addressing intern table keyed on field bytes
+	private String[] pooled = new String[64];
+	private byte[][] pooledBytes = new byte[64][];
+	private int pooledCount;
+
+	/**
+	 * Maps the given file into memory, ready to read its first row
+	 * @param p the file to read
+	 * @throws IOException if the file can't be opened or mapped, or is too large to map in one piece
+	 */
+	public MappedCsvReader(Path p) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(p, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(p + " is too large to map: " + size + " bytes");
+			}
+			//the mapping stays valid after the channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			limit = (int) size;
+		}
+
+		//skip a UTF-8 byte order mark if there is one
+		if (limit >= 3 && (buffer.get(0) & 0xFF) == 0xEF && (buffer.get(1) & 0xFF) == 0xBB && (buffer.get(2) & 0xFF) == 0xBF) {
+			position = 3;
+		}
+	}
+
+	/**
+	 * Moves on to the next non-blank line, splitting it into fields
+	 * @return false if there are no more lines
+	 */
+	public boolean nextRow() {
+
+		while (position < limit) {
+			lineNumber++;
+			fieldCount = 0;
+			int fieldStart = position;
+			int i = position;
+
+			while (i < limit) {
+				byte b = buffer.get(i);
+				if (b == '\n') {
+					break;
+				}
+				if (b == ',') {
+					addField(fieldStart, i);
+					fieldStart = i + 1;
+				}
+				i++;
+			}
+
+			int lineEnd = i;
+			if (lineEnd > fieldStart && buffer.get(lineEnd - 1) == '\r') {
+				lineEnd--;
+			}
+			addField(fieldStart, lineEnd);
+			position = i + 1;
+
+			//a blank line is a single empty field; skip it
+			if (fieldCount > 1 || fieldEnds[0] > fieldStarts[0]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of fields on the current line
+	 * @return the number of fields on the current line
+	 */
+	public int fieldCount() {
+		return fieldCount;
+	}
+
+	/**
+	 * Returns the line number of the current line, counting from 1
+	 * @return the line number of the current line
+	 */
+	public int lineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Parses a field of the current line as a decimal int, without creating a String
+	 * @param field the index of the field on the line
+	 * @return the value of the field
+	 * @throws NumberFormatException if the field is not a valid int
+	 */
+	public int intField(int field) {
+
+		int start = fieldStarts[field];
+		int end = fieldEnds[field];
+		if (start == end) {
+			throw new NumberFormatException("Empty number on line " + lineNumber);
+		}
+
+		boolean negative = buffer.get(start) == '-';
+		if (negative || buffer.get(start) == '+') {
+			start++;
+			if (start == end) {
+				throw new NumberFormatException("Invalid number on line " + lineNumber);
+			}
+		}
+
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9) {
+				throw new NumberFormatException("For input string: \"" + stringField(field) + "\" on line " + lineNumber);
+			}
+			value = value * 10 + digit;
+			if (value > (long) Integer.MAX_VALUE + 1) {
+				throw new NumberFormatException("Number out of range on line " + lineNumber);
+			}
+		}
+
+		value = negative ? -value : value;
+		if (value > Integer.MAX_VALUE) {
+			throw new NumberFormatException("Number out of range on line " + lineNumber);
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Decodes a field of the current line as a new String
+	 * @param field the index of the field on the line
+	 * @return the text of the field
+	 */
+	public String stringField(int field) {
+
+		int length = copyToScratch(field);
+		return new String(scratch, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Decodes a field of the current line, returning the same String instance every time the
+	 * same text is seen by this reader. Meant for small vocabularies such as codes and names
+	 * @param field the index of the field on the line
+	 * @return the text of the field, shared with earlier rows holding the same text
+	 */
+	public String internedField(int field) {
+
+		int length = copyToScratch(field);
+
+		int hash = 1;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + scratch[i];
+		}
+
+		int mask = pooled.length - 1;
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		while (pooled[slot] != null) {
+			byte[] candidate = pooledBytes[slot];
+			if (candidate.length == length && sameBytes(candidate, length)) {
+				return pooled[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		String value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+		pooled[slot] = value;
+		pooledBytes[slot] = Arrays.copyOf(scratch, length);
+		if (++pooledCount * 2 > pooled.length) {
+			growPool();
+		}
+		return value;
+	}
+
+	//whether the first bytes of the scratch buffer match a pooled field's bytes
+	private boolean sameBytes(byte[] candidate, int length) {
+
+		for (int i = 0; i < length; i++) {
+			if (candidate[i] != scratch[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int copyToScratch(int field) {
+
+		int start = fieldStarts[field];
+		int length = fieldEnds[field] - start;
+		if (length > scratch.length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		for (int i = 0; i < length; i++) {
+			scratch[i] = buffer.get(start + i);
+		}
+		return length;
+	}
+
+	private void addField(int start, int end) {
+
+		if (fieldCount == fieldStarts.length) {
+			fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+			fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+		}
+		fieldStarts[fieldCount] = start;
+		fieldEnds[fieldCount] = end;
+		fieldCount++;
+	}
+
+	private void growPool() {
+
+		String[] oldPooled = pooled;
+		byte[][] oldBytes = pooledBytes;
+		pooled = new String[oldPooled.length * 2];
+		pooledBytes = new byte[oldPooled.length * 2][];
+		int mask = pooled.length - 1;
+
+		for (int i = 0; i < oldPooled.length; i++) {
+			if (oldPooled[i] == null) {
+				continue;
+			}
+			byte[] bytes = oldBytes[i];
+			int hash = 1;
+			for (byte b : bytes) {
+				hash = 31 * hash + b;
+			}
+			int slot = (hash ^ (hash >>> 16)) & mask;
+			while (pooled[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+			pooled[slot] = oldPooled[i];
+			pooledBytes[slot] = bytes;
+		}
+	}
+
+}
@@ -0,0 +1,415 @@
+package solution;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts and times what the DAOs and the scheduler do, so it can be seen where the time goes.
+ * Counters are LongAdders and timers keep a histogram of their latencies, so many threads can
+ * record at once without contending. Metrics are off unless enabled, with setEnabled() or by
+ * starting the JVM with -Dsolution.metrics=true, and while they are off recording costs one read
+ * of a flag: Metrics.start() doesn't even read the clock
+ *
+ * What has been recorded can be printed as text or JSON, now or every so often with dumpEvery(),
+ * or watched over JMX once registerMBean() has been called
+ */
+public final class Metrics {
+
+	private static volatile boolean enabled = Boolean.getBoolean("solution.metrics");
+
+	//returned by start() while metrics are off, so the matching stop() records nothing
+	private static final long NOT_TIMING = Long.MIN_VALUE;
+
+	private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+	private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+	private Metrics() {
+	}
+
+	/**
+	 * Turns recording on or off. What has already been recorded is kept either way
+	 * @param on true to record
+	 */
+	public static void setEnabled(boolean on) {
+		enabled = on;
+	}
+
+	/**
+	 * Returns whether metrics are being recorded
+	 * @return true if they are
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Returns the counter with a name, creating it the first time it is asked for
+	 * @param name the name, e.g. "aircraft.loaded"
+	 * @return the counter
+	 */
+	public static Counter counter(String name) {
+		return counters.computeIfAbsent(name, n -> new Counter());
+	}
+
+	/**
+	 * Returns the timer with a name, creating it the first time it is asked for
+	 * @param name the name, e.g. "aircraft.findAircraftByType"
+	 * @return the timer
+	 */
+	public static Timer timer(String name) {
+		return timers.computeIfAbsent(name, n -> new Timer());
+	}
+
+	/**
+	 * Starts timing something, to be passed to Timer.stop() when it finishes
+	 * @return the time now, or a marker that stop() ignores if metrics are off
+	 */
+	public static long start() {
+		return enabled ? System.nanoTime() : NOT_TIMING;
+	}
+
+	/**
+	 * Sets every counter and timer back to zero
+	 */
+	public static void reset() {
+
+		for (Counter c : counters.values()) {
+			c.reset();
+		}
+		for (Timer t : timers.values()) {
+			t.reset();
+		}
+	}
+
+	/**
+	 * A count of something, such as records loaded
+	 */
+	public static final class Counter {
+
+		private final LongAdder count = new LongAdder();
+
+		private Counter() {
+		}
+
+		/**
+		 * Adds to the count, if metrics are on
+		 * @param n how much to add
+		 */
+		public void add(long n) {
+
+			if (enabled) {
+				count.add(n);
+			}
+		}
+
+		/**
+		 * Adds one to the count, if metrics are on
+		 */
+		public void increment() {
+			add(1);
+		}
+
+		/**
+		 * Returns the count
+		 * @return the count since the last reset
+		 */
+		public long get() {
+			return count.sum();
+		}
+
+		private void reset() {
+			count.reset();
+		}
+	}
+
+	/**
+	 * The latencies of something, such as a DAO query, kept as a count, a total and a histogram.
+	 * The histogram has eight buckets for every power of two nanoseconds, so any percentile it
+	 * reports is within an eighth of the true value, however long the latencies are
+	 */
+	public static final class Timer {
+
+		//values below this have a bucket each
+		private static final int LINEAR = 16;
+		private static final int SUB_BUCKET_BITS = 3;
+		private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+		private static final int BUCKETS = LINEAR + (63 - 4) * SUB_BUCKETS;
+
+		//the count is the sum of the buckets, so recording updates one less cell
+		private final LongAdder total = new LongAdder();
+		private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+		private Timer() {
+		}
+
+		/**
+		 * Records the time since a call to Metrics.start(), unless metrics were off when it was made
+		 * @param start what Metrics.start() returned
+		 */
+		public void stop(long start) {
+
+			if (start != NOT_TIMING) {
+				record(System.nanoTime() - start);
+			}
+		}
+
+		/**
+		 * Records a latency
+		 * @param nanos the latency in nanoseconds
+		 */
+		public void record(long nanos) {
+
+			long value = Math.max(0, nanos);
+			total.add(value);
+			max.accumulate(value);
+			buckets.incrementAndGet(bucketOf(value));
+		}
+
+		private static int bucketOf(long value) {
+
+			if (value < LINEAR) {
+				return (int) value;
+			}
+			int exponent = 63 - Long.numberOfLeadingZeros(value);
+			int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+			return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+		}
+
+		//the largest value that falls in a bucket
+		private static long highestIn(int bucket) {
+
+			if (bucket < LINEAR) {
+				return bucket;
+			}
+			int exponent = (bucket - LINEAR) / SUB_BUCKETS + 4;
+			int sub = (bucket - LINEAR) % SUB_BUCKETS;
+			long width = 1L << (exponent - SUB_BUCKET_BITS);
+			return (SUB_BUCKETS + sub) * width + width - 1;
+		}
+
+		/**
+		 * Returns how many latencies have been recorded
+		 * @return the count since the last reset
+		 */
+		public long getCount() {
+
+			long n = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				n += buckets.get(i);
+			}
+			return n;
+		}
+
+		/**
+		 * Returns the total of the latencies recorded
+		 * @return the total in nanoseconds
+		 */
+		public long getTotalNanos() {
+			return total.sum();
+		}
+
+		/**
+		 * Returns the longest latency recorded
+		 * @return the longest in nanoseconds, or 0 if none has been recorded
+		 */
+		public long getMaxNanos() {
+			return max.get();
+		}
+
+		/**
+		 * Returns a percentile of the latencies recorded
+		 * @param percentile the percentile, from 0 to 100
+		 * @return the latency in nanoseconds that that percentage of latencies were no longer than, or 0 if none has been recorded
+		 */
+		public long getPercentileNanos(double percentile) {
+
+			long n = 0;
+			long[] counts = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++) {
+				counts[i] = buckets.get(i);
+				n += counts[i];
+			}
+			long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return Math.min(highestIn(i), getMaxNanos());
+				}
+			}
+			return 0;
+		}
+
+		private void reset() {
+
+			total.reset();
+			max.reset();
+			for (int i = 0; i < BUCKETS; i++) {
+				buckets.set(i, 0);
+			}
+		}
+	}
+
+	/**
+	 * Describes every counter, then every timer that has recorded anything, one per line in name order
+	 * @return the counts, and each timer's count, mean, percentiles and maximum in microseconds
+	 */
+	public static String dumpText() {
+
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, Counter> e : new TreeMap<>(counters).entrySet()) {
+			sb.append(String.format("%-48s %,14d%n", e.getKey(), e.getValue().get()));
+		}
+		for (Map.Entry<String, Timer> e : new TreeMap<>(timers).entrySet()) {
+			Timer t = e.getValue();
+			long n = t.getCount();
+			if (n == 0) {
+				continue;
+			}
+			sb.append(String.format("%-48s %,14d calls  mean %10.1f  p50 %10.1f  p99 %10.1f  max %10.1f us%n", e.getKey(), n,
+					t.getTotalNanos() / 1e3 / n, t.getPercentileNanos(50) / 1e3, t.getPercentileNanos(99) / 1e3, t.getMaxNanos() / 1e3));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Describes every counter and every timer that has recorded anything as a JSON object
+	 * @return an object with a "counters" object of counts and a "timers" object with each timer's
+	 * count and its total, mean, percentiles and maximum in nanoseconds
+	 */
+	public static String dumpJson() {
+
+		StringBuilder sb = new StringBuilder("{\"enabled\":").append(enabled).append(",\"counters\":{");
+		String separator = "";
+		for (Map.Entry<String, Counter> e : new TreeMap<>(counters).entrySet()) {
+			sb.append(separator).append('"').append(e.getKey()).append("\":").append(e.getValue().get());
+			separator = ",";
+		}
+		sb.append("},\"timers\":{");
+		separator = "";
+		for (Map.Entry<String, Timer> e : new TreeMap<>(timers).entrySet()) {
+			Timer t = e.getValue();
+			long n = t.getCount();
+			if (n == 0) {
+				continue;
+			}
+			sb.append(separator).append('"').append(e.getKey()).append("\":{\"count\":").append(n)
+					.append(",\"totalNanos\":").append(t.getTotalNanos())
+					.append(",\"meanNanos\":").append(t.getTotalNanos() / n)
+					.append(",\"p50Nanos\":").append(t.getPercentileNanos(50))
+					.append(",\"p90Nanos\":").append(t.getPercentileNanos(90))
+					.append(",\"p99Nanos\":").append(t.getPercentileNanos(99))
+					.append(",\"maxNanos\":").append(t.getMaxNanos()).append('}');
+			separator = ",";
+		}
+		return sb.append("}}").toString();
+	}
+
+	/**
+	 * Hands a dump of the metrics to something every so often, on a daemon thread, until closed
+	 * @param period how long to wait between dumps
+	 * @param json true for dumpJson(), false for dumpText()
+	 * @param out what to hand each dump to, e.g. System.out::println
+	 * @return something to close to stop the dumps
+	 */
+	public static Closeable dumpEvery(Duration period, boolean json, Consumer<String> out) {
+
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "metrics-dump");
+			t.setDaemon(true);
+			return t;
+		});
+		long nanos = period.toNanos();
+		executor.scheduleAtFixedRate(() -> out.accept(json ? dumpJson() : dumpText()), nanos, nanos, TimeUnit.NANOSECONDS);
+		return executor::shutdownNow;
+	}
+
+	/**
+	 * What the metrics show over JMX, e.g. in JConsole
+	 */
+	public interface MetricsMXBean {
+
+		boolean isEnabled();
+
+		void setEnabled(boolean enabled);
+
+		Map<String, Long> getCounters();
+
+		String getText();
+
+		String getJson();
+
+		void reset();
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server as solution:type=Metrics, if they aren't already
+	 * @throws IllegalStateException if they can't be registered
+	 */
+	public static void registerMBean() {
+
+		MetricsMXBean bean = new MetricsMXBean() {
+
+			@Override
+			public boolean isEnabled() {
+				return Metrics.isEnabled();
+			}
+
+			@Override
+			public void setEnabled(boolean on) {
+				Metrics.setEnabled(on);
+			}
+
+			@Override
+			public Map<String, Long> getCounters() {
+
+				Map<String, Long> counts = new TreeMap<>();
+				for (Map.Entry<String, Counter> e : counters.entrySet()) {
+					counts.put(e.getKey(), e.getValue().get());
+				}
+				return counts;
+			}
+
+			@Override
+			public String getText() {
+				return dumpText();
+			}
+
+			@Override
+			public String getJson() {
+				return dumpJson();
+			}
+
+			@Override
+			public void reset() {
+				Metrics.reset();
+			}
+		};
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(bean, new ObjectName("solution:type=Metrics"));
+		}
+		catch (InstanceAlreadyExistsException e) {
+			//registered by an earlier call
+		}
+		catch (JMException e) {
+			throw new IllegalStateException("Couldn't register the metrics MBean", e);
+		}
+	}
+
+}
@@ -0,0 +1,249 @@
+package solution;
+import java.util.Arrays;
+
+/**
+ * Finds a flow of least cost through a directed graph, by sending one unit at a time along the
+ * cheapest path that still has room, found with Dijkstra's algorithm on costs adjusted by each
+ * node's potential so they never go negative. This is exact for assignment problems, such as
+ * choosing which crew member covers each seat, where every unit of flow is one choice
+ *
+ * The edges are kept in primitive arrays, as a linked list per node with each edge's reverse
+ * next to it, so a graph with hundreds of nodes and thousands of edges is solved without
+ * creating an object per edge. Costs must not be negative
+ */
+final class MinCostFlow {
+
+	private final int nodes;
+
+	//edge e goes to to[e], with the next edge from the same node at next[e], and e ^ 1 is its reverse
+	private final int[] head;
+	private int[] next;
+	private int[] to;
+	private int[] capacity;
+	private long[] cost;
+	private int edges;
+
+	private long totalCost;
+
+	/**
+	 * Creates a graph with no edges
+	 * @param nodes the number of nodes, which are numbered from 0
+	 * @param expectedEdges roughly how many edges will be added, so the arrays rarely need to grow
+	 */
+	MinCostFlow(int nodes, int expectedEdges) {
+
+		this.nodes = nodes;
+		head = new int[nodes];
+		Arrays.fill(head, -1);
+		int size = Math.max(2, 2 * expectedEdges);
+		next = new int[size];
+		to = new int[size];
+		capacity = new int[size];
+		cost = new long[size];
+	}
+
+	/**
+	 * Adds an edge
+	 * @param from the node the edge leaves
+	 * @param into the node the edge enters
+	 * @param units the most flow the edge can take
+	 * @param unitCost the cost of each unit sent along the edge, which must not be negative
+	 * @return the edge's number, for finding the flow along it afterwards
+	 */
+	int addEdge(int from, int into, int units, long unitCost) {
+
+		if (unitCost < 0) {
+			throw new IllegalArgumentException("Edge costs can't be negative, was " + unitCost);
+		}
+		if (edges + 2 > to.length) {
+			int size = to.length * 2;
+			next = Arrays.copyOf(next, size);
+			to = Arrays.copyOf(to, size);
+			capacity = Arrays.copyOf(capacity, size);
+			cost = Arrays.copyOf(cost, size);
+		}
+		int e = edges;
+		link(e, from, into, units, unitCost);
+		link(e + 1, into, from, 0, -unitCost);
+		edges += 2;
+		return e;
+	}
+
+	private void link(int e, int from, int into, int units, long unitCost) {
+
+		to[e] = into;
+		capacity[e] = units;
+		cost[e] = unitCost;
+		next[e] = head[from];
+		head[from] = e;
+	}
+
+	/**
+	 * Returns the flow sent along an edge by the last call to solve()
+	 * @param edge the edge's number, as returned by addEdge()
+	 * @return the units of flow along the edge
+	 */
+	int flowOn(int edge) {
+		return capacity[edge ^ 1];
+	}
+
+	/**
+	 * Returns the total cost of the flow found by the last call to solve()
+	 * @return the sum over every edge of its flow times its cost
+	 */
+	long getTotalCost() {
+		return totalCost;
+	}
+
+	/**
+	 * Sends as much flow as possible, up to a limit, from one node to another at the least total cost
+	 * @param source the node the flow starts from
+	 * @param sink the node the flow ends at
+	 * @param limit the most flow to send
+	 * @return the flow sent, which is less than the limit if the graph can't take any more
+	 */
+	int solve(int source, int sink, int limit) {
+
+		long[] potential = new long[nodes];
+		long[] distance = new long[nodes];
+		int[] via = new int[nodes];
+		Heap heap = new Heap(nodes, distance);
+
+		int flow = 0;
+		totalCost = 0;
+		while (flow < limit) {
+			Arrays.fill(distance, Long.MAX_VALUE);
+			Arrays.fill(via, -1);
+			distance[source] = 0;
+			heap.offer(source);
+
+			while (!heap.isEmpty()) {
+				int u = heap.poll();
+				for (int e = head[u]; e != -1; e = next[e]) {
+					if (capacity[e] == 0) {
+						continue;
+					}
+					int v = to[e];
+					long d = distance[u] + cost[e] + potential[u] - potential[v];
+					if (d < distance[v]) {
+						distance[v] = d;
+						via[v] = e;
+						heap.offer(v);
+					}
+				}
+			}
+			if (distance[sink] == Long.MAX_VALUE) {
+				break;
+			}
+
+			for (int v = 0; v < nodes; v++) {
+				if (distance[v] != Long.MAX_VALUE) {
+					potential[v] += distance[v];
+				}
+			}
+
+			//every edge out of the source is one unit in the problems this is used for, but send as much as the path takes
+			int units = limit - flow;
+			for (int v = sink; v != source; v = to[via[v] ^ 1]) {
+				units = Math.min(units, capacity[via[v]]);
+			}
+			for (int v = sink; v != source; v = to[via[v] ^ 1]) {
+				capacity[via[v]] -= units;
+				capacity[via[v] ^ 1] += units;
+				totalCost += units * cost[via[v]];
+			}
+			flow += units;
+		}
+		return flow;
+	}
+
+	/**
+	 * A binary heap of nodes ordered by their distance, which moves a node up when its distance
+	 * falls rather than adding it again
+	 */
+	private static final class Heap {
+
+		private final int[] nodes;
+		private final int[] position;
+		private final long[] key;
+		private int size;
+
+		Heap(int capacity, long[] key) {
+
+			nodes = new int[capacity];
+			position = new int[capacity];
+			Arrays.fill(position, -1);
+			this.key = key;
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		//adds a node, or moves it up if it is already in the heap and its key has fallen
+		void offer(int node) {
+
+			int i = position[node];
+			if (i == -1) {
+				i = size++;
+				nodes[i] = node;
+				position[node] = i;
+			}
+			up(i);
+		}
+
+		int poll() {
+
+			int top = nodes[0];
+			position[top] = -1;
+			size--;
+			if (size > 0) {
+				nodes[0] = nodes[size];
+				position[nodes[0]] = 0;
+				down(0);
+			}
+			return top;
+		}
+
+		private void up(int i) {
+
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (key[nodes[parent]] <= key[nodes[i]]) {
+					break;
+				}
+				swap(i, parent);
+				i = parent;
+			}
+		}
+
+		private void down(int i) {
+
+			while (true) {
+				int smallest = i;
+				int left = 2 * i + 1;
+				if (left < size && key[nodes[left]] < key[nodes[smallest]]) {
+					smallest = left;
+				}
+				if (left + 1 < size && key[nodes[left + 1]] < key[nodes[smallest]]) {
+					smallest = left + 1;
+				}
+				if (smallest == i) {
+					return;
+				}
+				swap(i, smallest);
+				i = smallest;
+			}
+		}
+
+		private void swap(int i, int j) {
+
+			int a = nodes[i];
+			nodes[i] = nodes[j];
+			nodes[j] = a;
+			position[nodes[i]] = i;
+			position[nodes[j]] = j;
+		}
+	}
+
+}
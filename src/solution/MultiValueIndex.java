@@ -0,0 +1,109 @@
+package solution;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A secondary index from keys to the list of values filed under them, used by the DAOs
+ * to answer their find methods without scanning everything they have loaded.
+ * The lists handed out are read-only views that are created once per key, so a lookup
+ * costs one hash probe and allocates nothing. An index isn't safe to add to while other threads
+ * read it: the DAOs build each index in full before sharing it
+ * @param <K> the type of the key, e.g. an airport code
+ * @param <V> the type of the indexed values
+ */
+public class MultiValueIndex<K, V> {
+
+	private final Map<K, Bucket<V>> buckets = new HashMap<>();
+
+	//buckets shared with the index this one was copied from, copied themselves before they are added to
+	private final Set<Bucket<V>> shared = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/**
+	 * Creates an empty index
+	 */
+	public MultiValueIndex() {
+	}
+
+	/**
+	 * Creates an index holding the same values as another. The two share their lists until a key is
+	 * added to in this one, so copying costs one entry per key rather than one per value, and the
+	 * other index must not be added to afterwards
+	 * @param base the index to copy
+	 */
+	public MultiValueIndex(MultiValueIndex<K, V> base) {
+
+		buckets.putAll(base.buckets);
+		shared.addAll(base.buckets.values());
+	}
+
+	/**
+	 * Files a value under the given key, after any values already filed there
+	 * @param key the key to file the value under
+	 * @param value the value to add
+	 */
+	public void add(K key, V value) {
+
+		Bucket<V> bucket = buckets.get(key);
+		if (bucket == null) {
+			bucket = new Bucket<>();
+			buckets.put(key, bucket);
+		}
+		else if (shared.remove(bucket)) {
+			bucket = new Bucket<>(bucket);
+			buckets.put(key, bucket);
+		}
+		bucket.values.add(value);
+	}
+
+	/**
+	 * Returns the values filed under the given key, in the order they were added
+	 * @param key the key to look up
+	 * @return a read-only list of the values filed under the key, empty if there are none
+	 */
+	public List<V> get(K key) {
+
+		Bucket<V> bucket = buckets.get(key);
+		if (bucket == null) {
+			return Collections.emptyList();
+		}
+		return bucket.view;
+	}
+
+	/**
+	 * Returns the keys that have at least one value filed under them
+	 * @return the keys in the index
+	 */
+	public Set<K> keys() {
+		return Collections.unmodifiableSet(buckets.keySet());
+	}
+
+	/**
+	 * Removes everything from the index
+	 */
+	public void clear() {
+		buckets.clear();
+		shared.clear();
+	}
+
+	private static final class Bucket<V> {
+
+		final List<V> values;
+		final List<V> view;
+
+		Bucket() {
+			this.values = new ArrayList<>();
+			this.view = Collections.unmodifiableList(values);
+		}
+
+		Bucket(Bucket<V> from) {
+			this.values = new ArrayList<>(from.values);
+			this.view = Collections.unmodifiableList(values);
+		}
+	}
+
+}
@@ -1,4 +1,5 @@
 package solution;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -6,8 +7,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
-import java.util.HashMap;
-import java.util.Set;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 
 import baseclasses.DataLoadingException;
 import baseclasses.IPassengerNumbersDAO;
@@ -15,10 +18,34 @@ import baseclasses.IPassengerNumbersDAO;
 /**
  * The PassengerNumbersDAO is responsible for loading an SQLite database
  * containing forecasts of passenger numbers for flights on dates
+ *
+ * It is safe to share between threads. The map of forecasts is never changed once built: each
+ * load copies it, adds to the copy and swaps the copy in, so lookups take no locks and see the
+ * forecasts from before a load or after it, never part of one
  */
 public class PassengerNumbersDAO implements IPassengerNumbersDAO {
 	
-	HashMap<String, Integer> passengerNumbers = new HashMap<String, Integer>();
+	//forecasts keyed on the flight number and epoch day of the flight, packed into a single long,
+	//replaced whole by each load and reset
+	private volatile LongIntHashMap passengerNumbers = new LongIntHashMap();
+	
+	//how many forecasts the map made by a load starts with room for
+	private static final int INITIAL_CAPACITY = 16384;
+	
+	//rows fetched from SQLite per round trip
+	private static final int FETCH_SIZE = 4096;
+	
+	private static final String SELECT_ALL = "SELECT Date, FlightNumber, LoadEstimate FROM PassengerNumbers";
+	
+	//dates are stored as ISO-8601 text, so they compare correctly as strings
+	private static final String SELECT_RANGE = SELECT_ALL + " WHERE Date >= ? AND Date < ?";
+	
+	//how long each load and lookup takes, and how many forecasts are loaded, while metrics are on
+	private static final Metrics.Timer LOAD = Metrics.timer("passengers.loadPassengerNumbersData");
+	private static final Metrics.Counter LOADED = Metrics.counter("passengers.loaded");
+	private static final Metrics.Counter RESTORED = Metrics.counter("passengers.restoredFromSnapshot");
+	private static final Metrics.Timer GET = Metrics.timer("passengers.getPassengerNumbersFor");
+	private static final Metrics.Counter MISSING = Metrics.counter("passengers.noForecast");
 
 
 	/**
@@ -42,24 +69,24 @@ public class PassengerNumbersDAO implements IPassengerNumbersDAO {
 	@Override
 	public int getPassengerNumbersFor(int flightNumber, LocalDate date) {
 		
-		String number = String.valueOf(flightNumber);
-	
-		for (String i : passengerNumbers.keySet()) {
-			
-	
-			int passengerNumber = passengerNumbers.get(i);
-			
-				if (i.toString().contains(date.toString()) & i.toString().contains(number)) {
-					
-					
-					System.out.println(passengerNumber);
-					
-					return passengerNumber;
-				}	
-					}
-			return -1;
-			
-	
+		long start = Metrics.start();
+		int found = passengerNumbers.get(key(flightNumber, date.toEpochDay()), -1);
+		GET.stop(start);
+		if (found == -1) {
+			MISSING.increment();
+		}
+		return found;
+	}
+
+	/**
+	 * Builds the cache key for a flight number on a given day
+	 * @param flightNumber the flight number
+	 * @param epochDay the day of the flight, as returned by LocalDate.toEpochDay()
+	 * @return the packed key
+	 */
+	static long key(int flightNumber, long epochDay) {
+		
+		return LongIntHashMap.pack(flightNumber, (int) epochDay);
 	}
 
 	/**
@@ -72,49 +99,220 @@ public class PassengerNumbersDAO implements IPassengerNumbersDAO {
 	@Override
 	public void loadPassengerNumbersData(Path p) throws DataLoadingException {
 		
-		Connection c = null;
+		load(p, null, null);
+	}
+
+	/**
+	 * Loads the passenger numbers data from the specified SQLite database like loadPassengerNumbersData(Path),
+	 * but restores it from a snapshot instead if one has been saved since the database last changed.
+	 * Otherwise the database is read and a snapshot of it saved, ready for the next time it is loaded
+	 * @param p The path of the SQLite database to load data from
+	 * @param snapshot The path of the snapshot of the database, which need not exist yet
+	 * @throws DataLoadingException If there is a problem loading from the database
+	 */
+	public void loadPassengerNumbersData(Path p, Path snapshot) throws DataLoadingException {
+		
+		long start = Metrics.start();
+		Rows rows;
+		try {
+			rows = DataSnapshot.restore(snapshot, p, DataSnapshot.PASSENGER_NUMBERS, PassengerNumbersDAO::readSnapshot);
+		}
+		catch (IOException ioe) {
+			throw new DataLoadingException(ioe);
+		}
+		
+		if (rows == null) {
+			Rows read = query(p, null, null);
+			DataSnapshot.save(snapshot, p, DataSnapshot.PASSENGER_NUMBERS, writer -> writeSnapshot(read, writer));
+			rows = read;
+		}
+		else {
+			RESTORED.increment();
+		}
+		addAll(rows);
+		LOAD.stop(start);
+	}
+
+	/**
+	 * Loads only the passenger numbers for flights between two dates, such as the dates being scheduled,
+	 * from the specified SQLite database into the cache. Otherwise behaves like loadPassengerNumbersData(Path)
+	 * @param p The path of the SQLite database to load data from
+	 * @param startDate the first date to load, inclusive
+	 * @param endDate the date to stop loading at, exclusive - the same convention as a Schedule
+	 * @throws DataLoadingException If there is a problem loading from the database
+	 */
+	public void loadPassengerNumbersData(Path p, LocalDate startDate, LocalDate endDate) throws DataLoadingException {
+		
+		if (startDate == null || endDate == null) {
+			throw new DataLoadingException(new NullPointerException("startDate and endDate must both be given"));
+		}
+		load(p, startDate, endDate);
+	}
+	
+	private void load(Path p, LocalDate startDate, LocalDate endDate) throws DataLoadingException {
+		
+		long start = Metrics.start();
+		addAll(query(p, startDate, endDate));
+		LOAD.stop(start);
+	}
+	
+	/**
+	 * Forecasts read from the database but not yet cached, as keys and their load estimates
+	 */
+	private static final class Rows {
+		
+		final long[] keys;
+		final int[] loadEstimates;
+		final int count;
+		
+		Rows(long[] keys, int[] loadEstimates, int count) {
+			this.keys = keys;
+			this.loadEstimates = loadEstimates;
+			this.count = count;
+		}
+	}
+	
+	/**
+	 * Loads the passenger numbers data from the specified SQLite database in place of all of the
+	 * forecasts currently loaded. Unlike reset() followed by loadPassengerNumbersData(), other threads
+	 * looking up forecasts meanwhile see either the old forecasts or the new, never none, and if the
+	 * database can't be loaded the old forecasts are kept
+	 * @param p The path of the SQLite database to load data from
+	 * @throws DataLoadingException If there is a problem loading from the database
+	 */
+	public void reloadPassengerNumbersData(Path p) throws DataLoadingException {
+		
+		long start = Metrics.start();
+		Rows rows = query(p, null, null);
+		LongIntHashMap reloaded = new LongIntHashMap(Math.max(INITIAL_CAPACITY, rows.count));
+		for (int i = 0; i < rows.count; i++) {
+			reloaded.put(rows.keys[i], rows.loadEstimates[i]);
+		}
+		synchronized (this) {
+			LOADED.add(rows.count);
+			passengerNumbers = reloaded;
+		}
+		LOAD.stop(start);
+	}
+	
+	private synchronized void addAll(Rows rows) {
+		
+		LOADED.add(rows.count);
+		LongIntHashMap added = new LongIntHashMap(passengerNumbers, Math.max(INITIAL_CAPACITY, rows.count));
+		for (int i = 0; i < rows.count; i++) {
+			added.put(rows.keys[i], rows.loadEstimates[i]);
+		}
+		passengerNumbers = added;
+	}
+	
+	/**
+	 * Reads forecasts from the database without caching them
+	 * @param startDate the first date to read, or null to read every date
+	 * @param endDate the date to stop reading at, exclusive, or null to read every date
+	 * @throws DataLoadingException If there is a problem reading from the database
+	 */
+	private static Rows query(Path p, LocalDate startDate, LocalDate endDate) throws DataLoadingException {
 		
 		String path = p.toString();
+		String sql = startDate == null ? SELECT_ALL : SELECT_RANGE;
+		
+		//rows are staged in primitive arrays and only cached once the whole table has been read
+		long[] keys = new long[FETCH_SIZE];
+		int[] loadEstimates = new int[FETCH_SIZE];
+		int count = 0;
 	
-		try {
-			
-			c = DriverManager.getConnection("jdbc:sqlite:" + path);
-			
-			PreparedStatement s = c.prepareStatement("SELECT * FROM PassengerNumbers");
-			
-			ResultSet rs = s.executeQuery();
+		try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + path);
+				PreparedStatement s = c.prepareStatement(sql)) {
 			
-			while(rs.next()) {
-				
-				String key = (rs.getString("Date") + " " +  rs.getInt("flightNumber"));
-				int loadEstimate = rs.getInt("LoadEstimate");
-				
+			if (startDate != null) {
+				s.setString(1, startDate.toString());
+				s.setString(2, endDate.toString());
+			}
+			s.setFetchSize(FETCH_SIZE);
 			
-				
-				passengerNumbers.put(key, loadEstimate);
-				
-				
+			try (ResultSet rs = s.executeQuery()) {
+				while(rs.next()) {
+					
+					if (count == keys.length) {
+						keys = Arrays.copyOf(keys, count * 2);
+						loadEstimates = Arrays.copyOf(loadEstimates, count * 2);
+					}
+					
+					//columns by index, in the order of the SELECT
+					keys[count] = key(rs.getInt(2), parseEpochDay(rs.getString(1)));
+					loadEstimates[count] = rs.getInt(3);
+					count++;
+				}
 			}
+		}
 		
+		catch(SQLException | NullPointerException | DateTimeParseException se) {
+			throw new DataLoadingException(se);
 		}
+		
+		return new Rows(keys, loadEstimates, count);
+	}
 	
+	private static void writeSnapshot(Rows rows, DataSnapshot.Writer writer) throws IOException {
 		
+		writer.count(rows.count);
+		writer.longs(Arrays.copyOf(rows.keys, rows.count));
+		writer.ints(Arrays.copyOf(rows.loadEstimates, rows.count));
+	}
+	
+	private static Rows readSnapshot(DataSnapshot.Reader reader) {
 		
-		catch(SQLException | NullPointerException se) {
-			throw new DataLoadingException(se);
+		int count = reader.count();
+		return new Rows(reader.longs(count), reader.ints(count), count);
+	}
+
+	/**
+	 * Converts an ISO-8601 date such as 2020-07-01 to its epoch day without creating a LocalDate
+	 * @param date the date text from the database
+	 * @return the number of days since 1970-01-01
+	 * @throws DateTimeParseException if the text is not a valid yyyy-MM-dd date
+	 */
+	static long parseEpochDay(String date) {
+		
+		if (date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+			throw new DateTimeParseException("Date is not in yyyy-MM-dd form", date, 0);
+		}
+		int year = digits(date, 0, 4);
+		int month = digits(date, 5, 7);
+		int day = digits(date, 8, 10);
+		if (month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+			throw new DateTimeParseException("Date does not exist", date, 0);
 		}
 		
+		//days from the civil calendar, counting years from March so the leap day comes last
+		int y = month <= 2 ? year - 1 : year;
+		int era = Math.floorDiv(y, 400);
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097L + dayOfEra - 719468;
+	}
+	
+	private static int digits(String s, int start, int end) {
+		
+		int value = 0;
+		for (int i = start; i < end; i++) {
+			int digit = s.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				throw new DateTimeParseException("Date is not in yyyy-MM-dd form", s, i);
+			}
+			value = value * 10 + digit;
+		}
+		return value;
 	}
 
 	/**
 	 * Removes all data from the DAO, ready to start again if needed
 	 */
 	@Override
-	public void reset() {
-
-		passengerNumbers.clear();
-		
+	public synchronized void reset() {
 
+		passengerNumbers = new LongIntHashMap();
 	}
 
 }
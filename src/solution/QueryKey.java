@@ -0,0 +1,44 @@
+package solution;
+import java.util.Objects;
+
+/**
+ * The key a caching DAO stores a query's result under: which of its queries it was, and the
+ * query's arguments
+ */
+final class QueryKey {
+
+	private final int query;
+	private final Object first;
+	private final Object second;
+	private final int hash;
+
+	/**
+	 * Creates the key for a query with up to two arguments
+	 * @param query which query, numbered by the DAO
+	 * @param first the first argument, or null if there isn't one
+	 * @param second the second argument, or null if there isn't one
+	 */
+	QueryKey(int query, Object first, Object second) {
+
+		this.query = query;
+		this.first = first;
+		this.second = second;
+		hash = (query * 31 + Objects.hashCode(first)) * 31 + Objects.hashCode(second);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+
+		if (!(o instanceof QueryKey)) {
+			return false;
+		}
+		QueryKey k = (QueryKey) o;
+		return query == k.query && Objects.equals(first, k.first) && Objects.equals(second, k.second);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+}
@@ -0,0 +1,151 @@
+package solution;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import baseclasses.FlightInfo;
+import baseclasses.IRouteDAO;
+import baseclasses.Route;
+import baseclasses.Utilities;
+
+/**
+ * Chains the flights of a schedule into rotations: a flight out of the UK followed by the flight
+ * back to the airport it left from. The quality score penalises an aircraft or crew member flown
+ * out who isn't flown straight back, so giving both flights of a rotation the same aircraft and crew
+ * avoids those penalties before anything is allocated, and leaves half as many units to allocate
+ *
+ * The routes that could bring each outbound route back are found once from the route data, and then
+ * each outbound flight is given the earliest of their flights that departs after a minimum turnaround
+ * and soon enough after landing not to count as a break in the rotation
+ */
+final class RotationChainer {
+
+	//shorter turnarounds are penalised, longer gaps count as breaking the rotation
+	static final Duration MIN_TURNAROUND = Duration.ofMinutes(30);
+	static final Duration MAX_GAP = Duration.ofMinutes(4 * 60 + 59);
+
+	//for each route out of the UK, the routes flying back to where it left from
+	private final Map<Route, List<Route>> returns = new HashMap<>();
+
+	/**
+	 * Finds the routes that can bring each route out of the UK back
+	 * @param routeDAO the routes
+	 */
+	RotationChainer(IRouteDAO routeDAO) {
+
+		for (Route out : routeDAO.getAllRoutes()) {
+			if (!isOutbound(out)) {
+				continue;
+			}
+			List<Route> back = new ArrayList<>();
+			for (Route r : routeDAO.findRoutesDepartingAirport(out.getArrivalAirportCode())) {
+				if (r.getArrivalAirportCode().equals(out.getDepartureAirportCode())) {
+					back.add(r);
+				}
+			}
+			if (!back.isEmpty()) {
+				returns.put(out, back);
+			}
+		}
+	}
+
+	/**
+	 * Chains flights into rotations. Flights that can't be paired are rotations of their own
+	 * @param flights the flights, in any order
+	 * @return the rotations in order of their first departure, each one or two flights in order of departure
+	 */
+	List<List<FlightInfo>> chain(List<FlightInfo> flights) {
+
+		List<FlightInfo> sorted = new ArrayList<>(flights);
+		sorted.sort(Comparator.comparing(FlightInfo::getDepartureDateTime));
+
+		//each route's flights in order of departure, for finding the next one back
+		Map<Route, List<FlightInfo>> byRoute = new HashMap<>();
+		for (FlightInfo f : sorted) {
+			byRoute.computeIfAbsent(f.getFlight(), r -> new ArrayList<>()).add(f);
+		}
+
+		Set<FlightInfo> paired = new HashSet<>();
+		List<List<FlightInfo>> rotations = new ArrayList<>();
+		for (FlightInfo f : sorted) {
+			if (paired.contains(f)) {
+				continue;
+			}
+			FlightInfo back = returnFor(f, byRoute, paired);
+			if (back == null) {
+				rotations.add(Collections.singletonList(f));
+			}
+			else {
+				paired.add(back);
+				rotations.add(Arrays.asList(f, back));
+			}
+		}
+		return rotations;
+	}
+
+	/**
+	 * Finds the earliest unpaired flight back from an outbound flight's destination
+	 * @return the flight, or null if the flight isn't outbound or none departs within the gap allowed
+	 */
+	private FlightInfo returnFor(FlightInfo out, Map<Route, List<FlightInfo>> byRoute, Set<FlightInfo> paired) {
+
+		List<Route> back = returns.get(out.getFlight());
+		if (back == null) {
+			return null;
+		}
+
+		FlightInfo best = null;
+		LocalDateTime earliest = out.getLandingDateTime().plus(MIN_TURNAROUND);
+		for (Route r : back) {
+			List<FlightInfo> flights = byRoute.getOrDefault(r, Collections.emptyList());
+			for (int i = firstDepartingFrom(flights, earliest); i < flights.size(); i++) {
+				FlightInfo f = flights.get(i);
+				Duration gap = Duration.between(out.getLandingDateTime(), f.getDepartureDateTime());
+				if (gap.compareTo(MAX_GAP) > 0) {
+					break;
+				}
+				if (!paired.contains(f)) {
+					if (best == null || f.getDepartureDateTime().isBefore(best.getDepartureDateTime())) {
+						best = f;
+					}
+					break;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Binary searches a route's flights for the first to depart at or after a time
+	 * @param flights the flights, in order of departure
+	 * @param time the time
+	 * @return the index of the flight, or the number of flights if they all depart before the time
+	 */
+	private static int firstDepartingFrom(List<FlightInfo> flights, LocalDateTime time) {
+
+		int low = 0, high = flights.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (flights.get(mid).getDepartureDateTime().isBefore(time)) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static boolean isOutbound(Route r) {
+		return Utilities.airportIsInUK(r.getDepartureAirportCode()) && !Utilities.airportIsInUK(r.getArrivalAirportCode());
+	}
+
+}
@@ -1,27 +1,21 @@
 package solution;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.DayOfWeek;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.DuplicateFormatFlagsException;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import baseclasses.DataLoadingException;
 import baseclasses.IRouteDAO;
@@ -30,38 +24,120 @@ import baseclasses.Route;
 /**
  * The RouteDAO parses XML files of route information, each route specifying
  * where the airline flies from, to, and on which day of the week
+ *
+ * It is safe to share between threads. The routes and their indexes are never changed once built:
+ * each load or reset builds new ones and swaps them in at once, so queries take no locks and see
+ * the routes from before a load or after it, never part of one
  */
 public class RouteDAO implements IRouteDAO {
 	
-	List<Route> routes = new ArrayList<>();
-
+	//the loaded routes, replaced whole by each load and reset
+	private volatile Contents contents = Contents.EMPTY;
+	
 	/**
-	 * Finds all flights that depart on the specified day of the week
-	 * @param dayOfWeek A three letter day of the week, e.g. "Tue"
-	 * @return A list of all routes that depart on this day
+	 * The loaded routes and the indexes over them, none of which change once built
 	 */
-	@Override
-	public List<Route> findRoutesByDayOfWeek(String dayOfWeek) {
+	private static final class Contents {
 		
-		List<Route> routesByDay = new ArrayList<>();
+		static final Contents EMPTY = new Contents(Collections.emptyList());
 		
-		try {
-			for (int i = 0; i < routes.size(); i++) 
-				
-				if (routes.get(i).getDayOfWeek().contains(dayOfWeek)) {
+		//a read-only list handed out by getAllRoutes(), so callers share one list instead of each getting a copy
+		final List<Route> routes;
 		
-				routesByDay.add(routes.get(i));
-				
+		//the routes bucketed by the day they fly, indexed by DayOfWeek.ordinal()
+		final DayBucket[] routesByDay = newDayBuckets();
+		final MultiValueIndex<String, Route> routesByDepartureAirport = new MultiValueIndex<>();
+		
+		/**
+		 * Indexes some routes
+		 * @param routes the routes, in the order they were loaded
+		 */
+		Contents(List<Route> routes) {
+			
+			this.routes = Collections.unmodifiableList(new ArrayList<>(routes));
+			for (Route r : routes) {
+				index(r);
 			}
+		}
+		
+		/**
+		 * Files a route in the day and departure airport indexes
+		 * @param r the route to index
+		 */
+		private void index(Route r) {
+			
+			routesByDepartureAirport.add(r.getDepartureAirportCode(), r);
+			
+			DayOfWeek day = parseDayOfWeek(r.getDayOfWeek());
+			if (day != null) {
+				DayBucket bucket = routesByDay[day.ordinal()];
+				bucket.routes.add(r);
+				bucket.byDepartureAirport.add(r.getDepartureAirportCode(), r);
+			}
+		}
 	}
-		catch (Exception e) {
-			return Collections.emptyList();
+	
+	//how long each load and query takes, and how many routes are loaded, while metrics are on
+	private static final Metrics.Timer LOAD = Metrics.timer("routes.loadRouteData");
+	private static final Metrics.Counter LOADED = Metrics.counter("routes.loaded");
+	private static final Metrics.Counter RESTORED = Metrics.counter("routes.restoredFromSnapshot");
+	private static final Metrics.Timer FIND_BY_DAY_OF_WEEK = Metrics.timer("routes.findRoutesByDayOfWeek");
+	private static final Metrics.Timer FIND_BY_DEPARTURE_AIRPORT_AND_DAY = Metrics.timer("routes.findRoutesByDepartureAirportAndDay");
+	private static final Metrics.Timer FIND_DEPARTING_AIRPORT = Metrics.timer("routes.findRoutesDepartingAirport");
+	private static final Metrics.Timer FIND_BY_DATE = Metrics.timer("routes.findRoutesbyDate");
+	private static final Metrics.Timer GET_ALL = Metrics.timer("routes.getAllRoutes");
+	
+	/**
+	 * The routes flying on one day of the week, with those routes also indexed by departure airport
+	 */
+	static final class DayBucket {
 		
+		final List<Route> routes = new ArrayList<>();
+		final List<Route> view = Collections.unmodifiableList(routes);
+		final MultiValueIndex<String, Route> byDepartureAirport = new MultiValueIndex<>();
 	}
 	
+	private static DayBucket[] newDayBuckets() {
+		
+		DayBucket[] buckets = new DayBucket[DayOfWeek.values().length];
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new DayBucket();
+		}
+		return buckets;
+	}
 	
-		return routesByDay;
+	/**
+	 * Works out which day of the week a route file's day refers to
+	 * @param dayOfWeek a day of the week as written in the route files, e.g. "Tue"
+	 * @return the matching day, or null if it isn't a day of the week
+	 */
+	static DayOfWeek parseDayOfWeek(String dayOfWeek) {
+		
+		if (dayOfWeek == null || dayOfWeek.length() < 3) {
+			return null;
+		}
+		
+		for (DayOfWeek day : DayOfWeek.values()) {
+			if (day.name().regionMatches(true, 0, dayOfWeek, 0, 3)) {
+				return day;
+			}
+		}
+		return null;
+	}
 	
+	/**
+	 * Finds all flights that depart on the specified day of the week
+	 * @param dayOfWeek A three letter day of the week, e.g. "Tue"
+	 * @return A list of all routes that depart on this day
+	 */
+	@Override
+	public List<Route> findRoutesByDayOfWeek(String dayOfWeek) {
+		
+		long start = Metrics.start();
+		DayOfWeek day = parseDayOfWeek(dayOfWeek);
+		List<Route> found = day == null ? Collections.emptyList() : contents.routesByDay[day.ordinal()].view;
+		FIND_BY_DAY_OF_WEEK.stop(start);
+		return found;
 	}
 
 	/**
@@ -73,24 +149,11 @@ public class RouteDAO implements IRouteDAO {
 	@Override
 	public List<Route> findRoutesByDepartureAirportAndDay(String airportCode, String dayOfWeek) {
 		
-	List<Route> routesByDepartingAirportDay= new ArrayList<>();
-		
-		try {
-			for (int i = 0; i < routes.size(); i++) 
-				if (routes.get(i).getDepartureAirportCode().contains(airportCode) & routes.get(i).getDayOfWeek().contains(dayOfWeek)) {
-				routesByDepartingAirportDay.add(routes.get(i));
-				
-			}
-	}
-		catch (Exception e) {
-			return Collections.emptyList();
-		
-	}
-	
-		
-		return routesByDepartingAirportDay;
-		
-
+		long start = Metrics.start();
+		DayOfWeek day = parseDayOfWeek(dayOfWeek);
+		List<Route> found = day == null ? Collections.emptyList() : contents.routesByDay[day.ordinal()].byDepartureAirport.get(airportCode);
+		FIND_BY_DEPARTURE_AIRPORT_AND_DAY.stop(start);
+		return found;
 	}
 
 	/**
@@ -101,26 +164,10 @@ public class RouteDAO implements IRouteDAO {
 	@Override
 	public List<Route> findRoutesDepartingAirport(String airportCode) {
 		
-	List<Route> routesByDepartingAirport = new ArrayList<>();
-		
-		try {
-			for (int i = 0; i < routes.size(); i++) 
-				
-				if (routes.get(i).getDepartureAirportCode().contains(airportCode)) {
-		
-				routesByDepartingAirport.add(routes.get(i));
-				
-			}
-	}
-		catch (Exception e) {
-			return Collections.emptyList();
-		
-	}
-	
-		
-		
-		return routesByDepartingAirport;
-		
+		long start = Metrics.start();
+		List<Route> found = contents.routesByDepartureAirport.get(airportCode);
+		FIND_DEPARTING_AIRPORT.stop(start);
+		return found;
 	}
 
 	/**
@@ -131,46 +178,23 @@ public class RouteDAO implements IRouteDAO {
 	@Override
 	public List<Route> findRoutesbyDate(LocalDate date) {
 		
-	List<Route> routesByDate = new ArrayList<>();
-			
-		try {
-				for (int i = 0; i < routes.size(); i++) {
-					if(date.getDayOfWeek().toString().startsWith(routes.get(i).getDayOfWeek().toString().toUpperCase())) {	
-				routesByDate.add(routes.get(i));
-					
-					}
-			}
-		}
-		catch (Exception e) {
-			
-			return Collections.emptyList();
-			
-		
-	}
-		
-		return routesByDate;
+		long start = Metrics.start();
+		List<Route> found = date == null ? Collections.emptyList() : contents.routesByDay[date.getDayOfWeek().ordinal()].view;
+		FIND_BY_DATE.stop(start);
+		return found;
 	}
 
 	/**
 	 * Returns The full list of all currently loaded routes
-	 * @return The full list of all currently loaded routes
+	 * @return The full read-only list of all currently loaded routes, which later loads don't change
 	 */
 	@Override
 	public List<Route> getAllRoutes() {
 		
-		List<Route> copyOfRoutes = new ArrayList<>();
-		copyOfRoutes.addAll(routes);
-		
-		
-		try {
-			return copyOfRoutes;
-		}
-		catch(Exception e) {
-			return Collections.emptyList();
-		}
-		
-		
-		
+		long start = Metrics.start();
+		List<Route> all = contents.routes;
+		GET_ALL.stop(start);
+		return all;
 	}
 
 	/**
@@ -180,7 +204,7 @@ public class RouteDAO implements IRouteDAO {
 	@Override
 	public int getNumberOfRoutes() {
 		
-		int numberOfRoutes = routes.size();
+		int numberOfRoutes = contents.routes.size();
 		
 		
 		return numberOfRoutes;
@@ -195,128 +219,241 @@ public class RouteDAO implements IRouteDAO {
 	@Override
 	public void loadRouteData(Path p) throws DataLoadingException {
 		
+		long start = Metrics.start();
+		addAll(parse(p));
+		LOAD.stop(start);
+	}
+	
+	/**
+	 * Loads the route data from the specified file like loadRouteData(Path), but restores it from a
+	 * snapshot instead if one has been saved since the file last changed. Otherwise the file is
+	 * parsed and a snapshot of it saved, ready for the next time it is loaded
+	 * @param p A Path pointing to the file from which data could be loaded
+	 * @param snapshot A Path pointing to the snapshot of the file, which need not exist yet
+	 * @throws DataLoadingException if anything goes wrong. The exception's "cause" indicates the underlying exception
+	 */
+	public void loadRouteData(Path p, Path snapshot) throws DataLoadingException {
+		
+		long start = Metrics.start();
+		List<Route> loaded;
 		try {
+			loaded = DataSnapshot.restore(snapshot, p, DataSnapshot.ROUTES, RouteDAO::readSnapshot);
+		}
+		catch (IOException ioe) {
+			throw new DataLoadingException(ioe);
+		}
+		
+		if (loaded == null) {
+			List<Route> parsed = parse(p);
+			DataSnapshot.save(snapshot, p, DataSnapshot.ROUTES, writer -> writeSnapshot(parsed, writer));
+			loaded = parsed;
+		}
+		else {
+			RESTORED.increment();
+		}
+		addAll(loaded);
+		LOAD.stop(start);
+	}
 	
-			DocumentBuilder db = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-			String path = p.toString();
-			File file = new File(path);
-			InputStream inputStream = new FileInputStream(file);
-			Document doc = db.parse(inputStream);
-			
+	/**
+	 * Loads the route data from the specified file in place of all of the currently loaded routes.
+	 * Unlike reset() followed by loadRouteData(), other threads querying meanwhile see either the
+	 * old routes or the new, never none, and if the file can't be loaded the old routes are kept
+	 * @param p A Path pointing to the file from which data could be loaded
+	 * @throws DataLoadingException if anything goes wrong. The exception's "cause" indicates the underlying exception
+	 */
+	public void reloadRouteData(Path p) throws DataLoadingException {
 		
-			Element root = doc.getDocumentElement();
+		long start = Metrics.start();
+		List<Route> loaded = parse(p);
+		synchronized (this) {
+			LOADED.add(loaded.size());
+			contents = new Contents(loaded);
+		}
+		LOAD.stop(start);
+	}
+	
+	/**
+	 * Adds newly loaded routes to those already loaded, rebuilding the indexes over them all
+	 * @param loaded the routes to add, in file order
+	 */
+	private synchronized void addAll(List<Route> loaded) {
+		
+		LOADED.add(loaded.size());
+		List<Route> all = new ArrayList<>(contents.routes.size() + loaded.size());
+		all.addAll(contents.routes);
+		all.addAll(loaded);
+		contents = new Contents(all);
+	}
+	
+	/**
+	 * Reads the routes from a file without adding them to the DAO
+	 * @param p the file to read
+	 * @return the routes, in file order
+	 * @throws DataLoadingException if the file can't be read or parsed
+	 */
+	private static List<Route> parse(Path p) throws DataLoadingException {
+		
+		//stream through the file rather than building a DOM of it, so memory use doesn't grow with the file
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		
+		try (InputStream inputStream = Files.newInputStream(p)) {
 			
-			NodeList children = root.getChildNodes();
+			XMLStreamReader xml = factory.createXMLStreamReader(inputStream);
 			
-			for(int i = 0; i < children.getLength(); i++) {
-				
-				Route r = new Route();
+			//only add this file's routes once it has all been read, so a bad file leaves the DAO as it was
+			List<Route> loaded = new ArrayList<>();
 			
-				Node c = children.item(i);
+			try {
+				Route r = null;
+				int depth = 0;
 				
-				if(c.getNodeName().equals("Route")) {
+				while (xml.hasNext()) {
 					
-					NodeList grandChildren = c.getChildNodes();
-					for(int j = 0; j < grandChildren.getLength(); j++ ) {
+					int event = xml.next();
 					
-						Node d = grandChildren.item(j);
-						
-						if(d.getNodeName().equals("FlightNumber")) {
-							
-							int flightNumber = Integer.parseInt(d.getChildNodes().item(0).getNodeValue());
-							
-							r.setFlightNumber(flightNumber);
+					if (event == XMLStreamConstants.START_ELEMENT) {
+						depth++;
 						
-							
-							
-						}else if(d.getNodeName().equals("DayOfWeek")) {
-								
-								String dayOfWeek = d.getChildNodes().item(0).getNodeValue();
+						//<Routes> is depth 1, each <Route> depth 2 and its fields depth 3
+						if (depth == 2 && xml.getLocalName().equals("Route")) {
+							r = new Route();
+						}
+						else if (depth == 3 && r != null) {
+							//reading the text consumes the field's end tag too
+							setRouteField(r, xml.getLocalName(), xml.getElementText());
+							depth--;
+						}
+					}
+					else if (event == XMLStreamConstants.END_ELEMENT) {
 						
-								r.setDayOfWeek(dayOfWeek);
-								
-								
-	
-								
-							}else if(d.getNodeName().equals("DepartureTime")) {
-								
-								LocalTime departureTime = LocalTime.parse(d.getChildNodes().item(0).getNodeValue());
-								
-								r.setDepartureTime(departureTime);
-								
-								
-								
-								
-							}else if(d.getNodeName().equals("DepartureAirport")) {
-								
-								String departureAirport = d.getChildNodes().item(0).getNodeValue();
-								
-								r.setDepartureAirport(departureAirport);
-								
-								
-								
-							}else if(d.getNodeName().equals("DepartureAirportIATACode")) {
-								
-								String departureAirportCode  = d.getChildNodes().item(0).getNodeValue();
-								
-								r.setDepartureAirportCode(departureAirportCode);
-								
-								
-							}else if(d.getNodeName().equals("ArrivalTime")) {
-								
-								LocalTime arrivalTime = LocalTime.parse(d.getChildNodes().item(0).getNodeValue());
-								
-								r.setArrivalTime(arrivalTime);
-								
-								
-							}else if (d.getNodeName().equals("ArrivalAirport")) {
-								
-								String arrivalAirport = d.getChildNodes().item(0).getNodeValue();
-								
-								r.setArrivalAirport(arrivalAirport);
-								
-								
-							}else if (d.getNodeName().equals("ArrivalAirportIATACode")) {
-								
-								String arrivalAirportCode  = d.getChildNodes().item(0).getNodeValue();
-								
-								r.setArrivalAirportCode(arrivalAirportCode);
-								
-								
-							}else if (d.getNodeName().equals("Duration")) {
-								
-								Duration duration = Duration.parse(d.getChildNodes().item(0).getNodeValue());
-								
-								r.setDuration(duration);
-								
-							
-							}
-					
+						if (depth == 2 && r != null) {
+							loaded.add(r);
+							r = null;
 						}
-					
-						routes.add(r);
-				
+						depth--;
 					}
-					
-				}	
+				}
+			}
+			finally {
+				xml.close();
+			}
+			
+			return loaded;
 		}
 		
-		
-		catch (ParserConfigurationException | SAXException | IOException  | IllegalArgumentException | DateTimeParseException | NullPointerException  e) {
+		catch (XMLStreamException | IOException  | IllegalArgumentException | DateTimeParseException | NullPointerException  e) {
 			throw new DataLoadingException (e);
 		}
 		
 	}
-
+	
+	private static void writeSnapshot(List<Route> loaded, DataSnapshot.Writer writer) throws IOException {
+		
+		int n = loaded.size();
+		int[] flightNumbers = new int[n];
+		String[] days = new String[n], departureAirports = new String[n], departureCodes = new String[n];
+		String[] arrivalAirports = new String[n], arrivalCodes = new String[n];
+		long[] departureTimes = new long[n], arrivalTimes = new long[n], durations = new long[n];
+		for (int i = 0; i < n; i++) {
+			Route r = loaded.get(i);
+			flightNumbers[i] = r.getFlightNumber();
+			days[i] = r.getDayOfWeek();
+			departureAirports[i] = r.getDepartureAirport();
+			departureCodes[i] = r.getDepartureAirportCode();
+			arrivalAirports[i] = r.getArrivalAirport();
+			arrivalCodes[i] = r.getArrivalAirportCode();
+			departureTimes[i] = DataSnapshot.nanos(r.getDepartureTime());
+			arrivalTimes[i] = DataSnapshot.nanos(r.getArrivalTime());
+			durations[i] = DataSnapshot.nanos(r.getDuration());
+		}
+		
+		writer.count(n);
+		writer.ints(flightNumbers);
+		writer.strings(days);
+		writer.strings(departureAirports);
+		writer.strings(departureCodes);
+		writer.strings(arrivalAirports);
+		writer.strings(arrivalCodes);
+		writer.longs(departureTimes);
+		writer.longs(arrivalTimes);
+		writer.longs(durations);
+	}
+	
+	private static List<Route> readSnapshot(DataSnapshot.Reader reader) {
+		
+		int n = reader.count();
+		int[] flightNumbers = reader.ints(n);
+		String[] days = reader.strings(n);
+		String[] departureAirports = reader.strings(n);
+		String[] departureCodes = reader.strings(n);
+		String[] arrivalAirports = reader.strings(n);
+		String[] arrivalCodes = reader.strings(n);
+		long[] departureTimes = reader.longs(n);
+		long[] arrivalTimes = reader.longs(n);
+		long[] durations = reader.longs(n);
+		
+		List<Route> loaded = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			Route r = new Route();
+			r.setFlightNumber(flightNumbers[i]);
+			r.setDayOfWeek(days[i]);
+			r.setDepartureAirport(departureAirports[i]);
+			r.setDepartureAirportCode(departureCodes[i]);
+			r.setArrivalAirport(arrivalAirports[i]);
+			r.setArrivalAirportCode(arrivalCodes[i]);
+			r.setDepartureTime(DataSnapshot.timeOf(departureTimes[i]));
+			r.setArrivalTime(DataSnapshot.timeOf(arrivalTimes[i]));
+			r.setDuration(DataSnapshot.durationOf(durations[i]));
+			loaded.add(r);
+		}
+		return loaded;
+	}
+	
 	/**
-	 * Unloads all of the crew currently loaded, ready to start again if needed
+	 * Sets the property of a route named by one of the route file's field elements
+	 * @param r the route being loaded
+	 * @param field the name of the field element, e.g. "FlightNumber"
+	 * @param value the text of the field element
+	 * @throws IllegalArgumentException if the field is empty or can't be parsed
+	 * @throws DateTimeParseException if a time or duration field can't be parsed
 	 */
-	@Override
-	public void reset() {
+	private static void setRouteField(Route r, String field, String value) {
 		
+		if (value.isEmpty()) {
+			throw new IllegalArgumentException("Empty " + field + " in route file");
+		}
 		
-		routes.clear();
+		if(field.equals("FlightNumber")) {
+			r.setFlightNumber(Integer.parseInt(value));
+		}else if(field.equals("DayOfWeek")) {
+			r.setDayOfWeek(value);
+		}else if(field.equals("DepartureTime")) {
+			r.setDepartureTime(LocalTime.parse(value));
+		}else if(field.equals("DepartureAirport")) {
+			r.setDepartureAirport(value);
+		}else if(field.equals("DepartureAirportIATACode")) {
+			r.setDepartureAirportCode(value);
+		}else if(field.equals("ArrivalTime")) {
+			r.setArrivalTime(LocalTime.parse(value));
+		}else if (field.equals("ArrivalAirport")) {
+			r.setArrivalAirport(value);
+		}else if (field.equals("ArrivalAirportIATACode")) {
+			r.setArrivalAirportCode(value);
+		}else if (field.equals("Duration")) {
+			r.setDuration(Duration.parse(value));
+		}
+	}
 
+	/**
+	 * Unloads all of the routes currently loaded, ready to start again if needed
+	 */
+	@Override
+	public synchronized void reset() {
+		
+		contents = Contents.EMPTY;
 	}
 
 }
@@ -0,0 +1,808 @@
+package solution;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import baseclasses.Aircraft;
+import baseclasses.CabinCrew;
+import baseclasses.Crew;
+import baseclasses.DoubleBookedException;
+import baseclasses.FlightInfo;
+import baseclasses.IAircraftDAO;
+import baseclasses.ICrewDAO;
+import baseclasses.IPassengerNumbersDAO;
+import baseclasses.IRouteDAO;
+import baseclasses.InvalidAllocationException;
+import baseclasses.Pilot;
+import baseclasses.Schedule;
+import baseclasses.Utilities;
+
+/**
+ * Builds a schedule in a single pass, taking the flights in order of departure and giving each
+ * one the cheapest free aircraft, captain, first officer and cabin crew. The cost of a candidate
+ * is estimated from where it was last seen and when, using the penalties the QualityScoreCalculator
+ * applies, so most of them are avoided as the schedule is built rather than repaired afterwards.
+ * Flights are chained into rotations first, and the flights of a rotation are given the same
+ * aircraft and crew together, falling back to allocating them apart if no one set is free for both
+ *
+ * A builder keeps its own state and is used for one schedule only. It can build the whole horizon
+ * at once, or a window at a time with the schedule improved in between, as long as it is told about
+ * every change made to the flights it has already allocated
+ */
+class ScheduleBuilder {
+
+	//penalties, as applied by the quality score rules
+	static final long POSITIONING_FLIGHT = 20000;
+	static final long TURNAROUND_UNDER_15 = 500;
+	static final long TURNAROUND_UNDER_30 = 100;
+	static final long UNQUALIFIED = 50000;
+	static final long NIGHTLY_REST = 20000;
+	static final long REST_AWAY_FROM_BASE = 500;
+	static final long AWAY_WITHOUT_RETURN = 1000;
+	static final long AWAY_WITHOUT_RETURN_UNDER_48H = 5000;
+	static final long MONTHLY_HOURS_PER_HOUR = 10;
+	static final long OVER_CAPACITY_PER_PASSENGER_UK = 50;
+	static final long OVER_CAPACITY_PER_PASSENGER_ABROAD = 100;
+	static final long EMPTY_SEAT = 1;
+
+	//no rule scores these, but leaving aircraft and crew where they are needed keeps later flights cheap
+	private static final long AWAY_FROM_START = 1000;
+	private static final long AWAY_FROM_BASE = 300;
+
+	//the most noise added to a candidate's cost when building randomly, which is less than any penalty
+	private static final int JITTER = 50;
+
+	private static final long MINUTES_PER_HOUR = 60;
+	private static final long MONTHLY_LIMIT_MINUTES = 100 * MINUTES_PER_HOUR;
+
+	private final IAircraftDAO aircraftDAO;
+	private final ICrewDAO crewDAO;
+	private final Schedule schedule;
+
+	//start of each month of the horizon in epoch minutes, with the end of the last one after it
+	private final long[] monthStarts;
+
+	//the minutes a rotation being costed flies in each month, reused for every candidate rather than allocated
+	private final long[] rotationMinutes;
+
+	//when each aircraft and crew member is busy and where they are, for checking candidates without going through the schedule
+	private final AvailabilityIndex availability = new AvailabilityIndex();
+
+	private final Map<Crew, CrewState> crewStates = new HashMap<>();
+
+	//the rotations still to allocate, in order of departure, and the next one to look at
+	private final List<List<FlightInfo>> pending;
+	private int next;
+
+	//the forecast passengers on each flight of each pending rotation, looked up once for the whole horizon
+	private final int[][] forecasts;
+
+	//the aircraft that could be crewed, from fewest seats to most, so the smallest big enough for a flight is found first
+	private final List<Aircraft> fleetBySeats;
+
+	//pilots split by rank, per type rating and in total
+	private final Map<String, List<Pilot>> captainsByType = new HashMap<>();
+	private final Map<String, List<Pilot>> firstOfficersByType = new HashMap<>();
+	private final List<Pilot> captains = new ArrayList<>();
+	private final List<Pilot> firstOfficers = new ArrayList<>();
+
+	private int unallocated;
+	private Random random;
+
+	//when set, the rotations starting within each slice of this length have their cabin crew chosen together
+	private Duration matchingSlice;
+
+	/**
+	 * Creates a builder for the flights between two dates
+	 * @param aircraftDAO the aircraft to choose from
+	 * @param crewDAO the crew to choose from
+	 * @param routeDAO the routes to schedule
+	 * @param passengerNumbersDAO the forecasts to size aircraft by
+	 * @param feasibility the analysis of the same aircraft and crew, for which aircraft could ever be crewed
+	 * @param startDate the start of the scheduling horizon
+	 * @param endDate the end of the scheduling horizon
+	 */
+	ScheduleBuilder(IAircraftDAO aircraftDAO, ICrewDAO crewDAO, IRouteDAO routeDAO, IPassengerNumbersDAO passengerNumbersDAO,
+			FeasibilityAnalyser feasibility, LocalDate startDate, LocalDate endDate) {
+
+		this.aircraftDAO = aircraftDAO;
+		this.crewDAO = crewDAO;
+		this.schedule = new Schedule(routeDAO, startDate, endDate);
+
+		List<Long> starts = new ArrayList<>();
+		LocalDateTime end = endDate.atTime(LocalTime.MIDNIGHT);
+		LocalDateTime month = startDate.atTime(LocalTime.MIDNIGHT);
+		while (month.isBefore(end)) {
+			starts.add(minutes(month));
+			month = month.plusMonths(1);
+		}
+		starts.add(minutes(month));
+		monthStarts = new long[starts.size()];
+		for (int i = 0; i < monthStarts.length; i++) {
+			monthStarts[i] = starts.get(i);
+		}
+		rotationMinutes = new long[monthStarts.length];
+
+		for (Aircraft a : aircraftDAO.getAllAircraft()) {
+			availability.start(a, a.getStartingPosition());
+		}
+		for (Crew c : crewDAO.getAllCrew()) {
+			crewStates.put(c, new CrewState(c.getHomeBase(), monthStarts.length));
+			availability.start(c, c.getHomeBase());
+		}
+		for (Pilot p : crewDAO.getAllPilots()) {
+			boolean captain = p.getRank() == Pilot.Rank.CAPTAIN;
+			(captain ? captains : firstOfficers).add(p);
+			for (String type : p.getTypeRatings()) {
+				(captain ? captainsByType : firstOfficersByType).computeIfAbsent(type, t -> new ArrayList<>()).add(p);
+			}
+		}
+
+		pending = new RotationChainer(routeDAO).chain(schedule.getRemainingAllocations());
+		forecasts = new int[pending.size()][];
+		for (int i = 0; i < forecasts.length; i++) {
+			List<FlightInfo> rotation = pending.get(i);
+			forecasts[i] = new int[rotation.size()];
+			for (int j = 0; j < rotation.size(); j++) {
+				FlightInfo f = rotation.get(j);
+				forecasts[i][j] = passengerNumbersDAO.getPassengerNumbersFor(f.getFlight().getFlightNumber(), f.getDepartureDateTime().toLocalDate());
+			}
+		}
+
+		fleetBySeats = new ArrayList<>(feasibility.getUsableAircraft());
+		fleetBySeats.sort(Comparator.comparingInt(Aircraft::getSeats));
+	}
+
+	/**
+	 * Makes the builder add a little random noise to the cost of each candidate, so that builders
+	 * given different seeds choose differently between candidates that cost about the same
+	 * @param random the source of the noise, or null to build the same schedule every time
+	 */
+	void setRandom(Random random) {
+		this.random = random;
+	}
+
+	/**
+	 * Makes the builder choose the cabin crew of all the rotations starting within a slice of time
+	 * together, as an assignment of crew to seats at the least total estimated cost, rather than
+	 * giving each rotation the cheapest crew left in turn. Aircraft and pilots are still chosen
+	 * one rotation at a time. A crew member is given at most one rotation of each slice
+	 * @param slice the length of each slice, or null to choose every rotation's crew in turn
+	 */
+	void setCabinCrewMatching(Duration slice) {
+		this.matchingSlice = slice;
+	}
+
+	/**
+	 * Allocates every flight in the horizon that can be allocated, in order of departure
+	 * @return the schedule, with as many allocations completed as there were resources for
+	 */
+	Schedule build() {
+
+		buildUntil(LocalDateTime.MAX);
+		schedule.sort();
+		return schedule;
+	}
+
+	/**
+	 * Allocates the rotations starting before a given time that haven't been looked at yet, in order
+	 * of departure. Each call carries on from where the last one finished, starting from wherever the
+	 * aircraft and crew were left
+	 * @param until the time to stop at
+	 * @return the flights whose allocations were completed, which may include flights back departing after the time
+	 */
+	List<FlightInfo> buildUntil(LocalDateTime until) {
+
+		List<FlightInfo> completed = new ArrayList<>();
+		while (next < pending.size() && startOf(next).isBefore(until)) {
+			if (matchingSlice == null) {
+				allocateAlone(next++, completed);
+				continue;
+			}
+			int from = next;
+			LocalDateTime end = startOf(from).plus(matchingSlice);
+			while (next < pending.size() && startOf(next).isBefore(end) && startOf(next).isBefore(until)) {
+				next++;
+			}
+			allocateTogether(from, next, completed);
+		}
+		return completed;
+	}
+
+	private LocalDateTime startOf(int rotation) {
+		return pending.get(rotation).get(0).getDepartureDateTime();
+	}
+
+	/**
+	 * Allocates one pending rotation, or if no one aircraft and crew can fly all of it, each of its flights apart
+	 * @param index the rotation's position in the pending rotations
+	 * @param completed where to add the flights that are completed
+	 */
+	private void allocateAlone(int index, List<FlightInfo> completed) {
+
+		List<FlightInfo> rotation = pending.get(index);
+		int[] forecast = forecasts[index];
+		if (allocate(rotation, forecast)) {
+			completed.addAll(rotation);
+			return;
+		}
+		for (int i = 0; i < rotation.size(); i++) {
+			if (rotation.size() > 1 && allocate(Collections.singletonList(rotation.get(i)), new int[] {forecast[i]})) {
+				completed.add(rotation.get(i));
+			}
+			else {
+				unallocated++;
+			}
+		}
+	}
+
+	/**
+	 * Allocates a run of pending rotations, choosing the aircraft and pilots of each in turn and then
+	 * matching cabin crew to all of them at once. Rotations left without enough of any of them are
+	 * allocated alone afterwards
+	 * @param from the position of the first rotation in the pending rotations
+	 * @param to the position after the last one
+	 * @param completed where to add the flights that are completed
+	 */
+	private void allocateTogether(int from, int to, List<FlightInfo> completed) {
+
+		List<Integer> chosen = new ArrayList<>();
+		List<Allocation> pilots = new ArrayList<>();
+		List<Integer> left = new ArrayList<>();
+		for (int i = from; i < to; i++) {
+			List<FlightInfo> rotation = pending.get(i);
+			Aircraft aircraft = chooseAircraft(rotation, forecasts[i]);
+			Set<Crew> taken = new HashSet<>();
+			Pilot captain = aircraft == null ? null : choosePilot(rotation, aircraft, Pilot.Rank.CAPTAIN, taken);
+			Pilot firstOfficer = captain == null ? null : choosePilot(rotation, aircraft, Pilot.Rank.FIRST_OFFICER, taken);
+			if (firstOfficer == null) {
+				left.add(i);
+				continue;
+			}
+
+			//hold the aircraft and pilots while the rest of the slice is chosen, so no other rotation takes them
+			Allocation allocation = new Allocation(aircraft, captain, firstOfficer, Collections.emptyList());
+			for (FlightInfo f : rotation) {
+				for (Object resource : allocation.resources()) {
+					availability.add(resource, f);
+				}
+			}
+			chosen.add(i);
+			pilots.add(allocation);
+		}
+
+		List<List<CabinCrew>> cabinCrew = matchCabinCrew(chosen, pilots);
+
+		for (int k = 0; k < chosen.size(); k++) {
+			for (FlightInfo f : pending.get(chosen.get(k))) {
+				for (Object resource : pilots.get(k).resources()) {
+					availability.remove(resource, f);
+				}
+			}
+		}
+		for (int k = 0; k < chosen.size(); k++) {
+			List<FlightInfo> rotation = pending.get(chosen.get(k));
+			Allocation a = pilots.get(k);
+			if (cabinCrew.get(k) != null && complete(rotation, new Allocation(a.aircraft, a.captain, a.firstOfficer, cabinCrew.get(k)))) {
+				completed.addAll(rotation);
+			}
+			else {
+				left.add(chosen.get(k));
+			}
+		}
+
+		Collections.sort(left);
+		for (int i : left) {
+			allocateAlone(i, completed);
+		}
+	}
+
+	/**
+	 * Chooses the cabin crew of several rotations at the least total cost, as a minimum cost flow from
+	 * each rotation's seats to the cabin crew free for the whole of it
+	 * @param rotations the positions of the rotations in the pending rotations
+	 * @param allocations the aircraft and pilots chosen for each rotation
+	 * @return each rotation's cabin crew, or null where there weren't enough free
+	 */
+	private List<List<CabinCrew>> matchCabinCrew(List<Integer> rotations, List<Allocation> allocations) {
+
+		List<CabinCrew> all = crewDAO.getAllCabinCrew();
+		int source = 0;
+		int sink = 1;
+		int firstCrewNode = 2 + rotations.size();
+		MinCostFlow flow = new MinCostFlow(firstCrewNode + all.size(), rotations.size() * (all.size() + 1) + all.size());
+
+		int seats = 0;
+		int[][] edges = new int[rotations.size()][];
+		for (int k = 0; k < rotations.size(); k++) {
+			List<FlightInfo> rotation = pending.get(rotations.get(k));
+			Aircraft aircraft = allocations.get(k).aircraft;
+			long departs = minutes(rotation.get(0).getDepartureDateTime());
+			long lands = minutes(rotation.get(rotation.size() - 1).getLandingDateTime());
+
+			int required = aircraft.getCabinCrewRequired();
+			flow.addEdge(source, 2 + k, required, 0);
+			seats += required;
+
+			edges[k] = new int[all.size()];
+			Arrays.fill(edges[k], -1);
+			for (int c = 0; c < all.size(); c++) {
+				CabinCrew crew = all.get(c);
+				if (availability.isFree(crew, departs, lands)) {
+					edges[k][c] = flow.addEdge(2 + k, firstCrewNode + c, 1, crewCost(crew, crewStates.get(crew), rotation, aircraft, null));
+				}
+			}
+		}
+		for (int c = 0; c < all.size(); c++) {
+			flow.addEdge(firstCrewNode + c, sink, 1, 0);
+		}
+		flow.solve(source, sink, seats);
+
+		List<List<CabinCrew>> matched = new ArrayList<>();
+		for (int k = 0; k < rotations.size(); k++) {
+			List<CabinCrew> crew = new ArrayList<>();
+			for (int c = 0; c < all.size(); c++) {
+				if (edges[k][c] != -1 && flow.flowOn(edges[k][c]) > 0) {
+					crew.add(all.get(c));
+				}
+			}
+			matched.add(crew.size() == allocations.get(k).aircraft.getCabinCrewRequired() ? crew : null);
+		}
+		return matched;
+	}
+
+	/**
+	 * Returns the schedule being built
+	 * @return the schedule, which is only complete once every flight has been built
+	 */
+	Schedule getSchedule() {
+		return schedule;
+	}
+
+	/**
+	 * Updates the builder after some of the flights it allocated have been given new aircraft or
+	 * crew, so later flights are built from where everything really is
+	 * @param changed the flights
+	 * @param before the allocation of each flight as it was
+	 * @param after the allocation of each flight as it is now
+	 */
+	void reallocated(List<FlightInfo> changed, List<Allocation> before, List<Allocation> after) {
+
+		//take everything off first, as resources may be moving between the changed flights
+		for (int i = 0; i < changed.size(); i++) {
+			for (Object resource : before.get(i).resources()) {
+				if (!after.get(i).contains(resource)) {
+					availability.remove(resource, changed.get(i));
+					if (resource instanceof Crew) {
+						crewStates.get(resource).unfly(changed.get(i), this);
+					}
+				}
+			}
+		}
+		for (int i = 0; i < changed.size(); i++) {
+			Allocation allocation = after.get(i);
+			for (Object resource : allocation.resources()) {
+				if (!before.get(i).contains(resource)) {
+					availability.add(resource, changed.get(i));
+					if (resource instanceof Crew) {
+						Pilot.Rank seat = resource == allocation.captain ? Pilot.Rank.CAPTAIN
+								: resource == allocation.firstOfficer ? Pilot.Rank.FIRST_OFFICER : null;
+						crewStates.get(resource).fly(changed.get(i), seat, this);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of flights the last build could not find enough free resources for
+	 * @return the number of flights left in the schedule's remaining allocations
+	 */
+	int getUnallocatedCount() {
+		return unallocated;
+	}
+
+	/**
+	 * Chooses an aircraft and crew free for every flight of a rotation, allocates them to all of
+	 * its flights, and completes them
+	 * @param rotation the flights to allocate, in order of departure
+	 * @param forecast the forecast passengers on each flight
+	 * @return false if there were not enough free resources to complete the rotation
+	 */
+	private boolean allocate(List<FlightInfo> rotation, int[] forecast) {
+
+		Aircraft aircraft = chooseAircraft(rotation, forecast);
+		if (aircraft == null) {
+			return false;
+		}
+
+		//everything is chosen before anything is allocated, so a flight that can't be completed leaves no trace
+		Set<Crew> taken = new HashSet<>();
+		Pilot captain = choosePilot(rotation, aircraft, Pilot.Rank.CAPTAIN, taken);
+		Pilot firstOfficer = captain == null ? null : choosePilot(rotation, aircraft, Pilot.Rank.FIRST_OFFICER, taken);
+		if (firstOfficer == null) {
+			return false;
+		}
+
+		List<CabinCrew> cabinCrew = new ArrayList<>();
+		for (int i = 0; i < aircraft.getCabinCrewRequired(); i++) {
+			CabinCrew c = cheapest(crewDAO.findCabinCrewByTypeRating(aircraft.getTypeCode()), rotation, aircraft, null, taken);
+			if (c == null) {
+				c = cheapest(crewDAO.getAllCabinCrew(), rotation, aircraft, null, taken);
+			}
+			if (c == null) {
+				return false;
+			}
+			taken.add(c);
+			cabinCrew.add(c);
+		}
+
+		return complete(rotation, new Allocation(aircraft, captain, firstOfficer, cabinCrew));
+	}
+
+	/**
+	 * Allocates an aircraft and crew to every flight of a rotation and completes them
+	 * @param rotation the flights, in order of departure
+	 * @param allocation the aircraft and crew, which must be free for all of them
+	 * @return false if the schedule would not take the allocation, in which case none of it is kept
+	 */
+	private boolean complete(List<FlightInfo> rotation, Allocation allocation) {
+
+		for (int i = 0; i < rotation.size(); i++) {
+			try {
+				allocation.allocateTo(schedule, rotation.get(i));
+			}
+			catch (DoubleBookedException | InvalidAllocationException e) {
+				//candidates were checked against the availability index, so this means the schedule disagrees with it
+				for (int j = 0; j <= i; j++) {
+					unAllocate(schedule, rotation.get(j));
+				}
+				return false;
+			}
+		}
+
+		for (FlightInfo f : rotation) {
+			crewStates.get(allocation.captain).fly(f, Pilot.Rank.CAPTAIN, this);
+			crewStates.get(allocation.firstOfficer).fly(f, Pilot.Rank.FIRST_OFFICER, this);
+			for (CabinCrew c : allocation.cabinCrew) {
+				crewStates.get(c).fly(f, null, this);
+			}
+			for (Object resource : allocation.resources()) {
+				availability.add(resource, f);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the free aircraft that would add least to the schedule's penalties by flying a rotation.
+	 * Going from the smallest aircraft up, the first big enough for every flight is usually the one,
+	 * so bigger aircraft stay free for busier flights
+	 */
+	private Aircraft chooseAircraft(List<FlightInfo> rotation, int[] forecast) {
+
+		FlightInfo f = rotation.get(0);
+		String departure = f.getFlight().getDepartureAirportCode();
+		long departs = minutes(f.getDepartureDateTime());
+		long lands = minutes(rotation.get(rotation.size() - 1).getLandingDateTime());
+		int busiest = Arrays.stream(forecast).max().getAsInt();
+
+		Aircraft best = null;
+		long bestCost = Long.MAX_VALUE;
+		long bestLanded = Long.MAX_VALUE;
+
+		for (Aircraft a : fleetBySeats) {
+			long capacity = capacityCost(a, rotation, forecast);
+
+			//once every flight would be full, each bigger aircraft only has more empty seats
+			if (a.getSeats() >= busiest && capacity > bestCost) {
+				break;
+			}
+			if (!availability.isFree(a, departs, lands)) {
+				continue;
+			}
+			long landedAt = availability.lastLandedBy(a, departs);
+			boolean flown = landedAt != Long.MIN_VALUE;
+
+			long cost = capacity + unqualifiedCrewFor(a) * UNQUALIFIED * rotation.size() + jitter();
+			if (!departure.equals(availability.lastSeenAt(a, departs))) {
+				cost += flown ? POSITIONING_FLIGHT : AWAY_FROM_START;
+			}
+			if (flown) {
+				long turnaround = departs - landedAt;
+				if (turnaround < 15) {
+					cost += TURNAROUND_UNDER_15;
+				}
+				else if (turnaround < 30) {
+					cost += TURNAROUND_UNDER_30;
+				}
+			}
+
+			//between equals, the aircraft that has waited longest
+			if (cost < bestCost || (cost == bestCost && landedAt < bestLanded)) {
+				best = a;
+				bestCost = cost;
+				bestLanded = landedAt;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Works out the penalty for the passengers on a rotation's flights not fitting an aircraft, or leaving seats empty.
+	 * A flight with no forecast adds nothing, so no size of aircraft is favoured for it
+	 * @param a the aircraft
+	 * @param rotation the flights
+	 * @param forecast the forecast passengers on each flight, or -1 where there is none
+	 * @return the penalty over all the flights
+	 */
+	private static long capacityCost(Aircraft a, List<FlightInfo> rotation, int[] forecast) {
+
+		int seats = a.getSeats();
+		long cost = 0;
+		for (int i = 0; i < forecast.length; i++) {
+			if (forecast[i] < 0) {
+				continue;
+			}
+			if (seats < forecast[i]) {
+				boolean departsUK = Utilities.airportIsInUK(rotation.get(i).getFlight().getDepartureAirportCode());
+				cost += (forecast[i] - seats) * (departsUK ? OVER_CAPACITY_PER_PASSENGER_UK : OVER_CAPACITY_PER_PASSENGER_ABROAD);
+			}
+			else {
+				cost += (seats - forecast[i]) * EMPTY_SEAT;
+			}
+		}
+		return cost;
+	}
+
+	/**
+	 * Counts the seats on an aircraft that nobody at all is type rated to fill, which
+	 * will be unqualified whichever crew are chosen
+	 * @param a the aircraft
+	 * @return the number of crew on the aircraft who can't be qualified for it
+	 */
+	private int unqualifiedCrewFor(Aircraft a) {
+
+		String type = a.getTypeCode();
+		int unqualified = 0;
+		if (!captainsByType.containsKey(type)) {
+			unqualified++;
+		}
+		if (!firstOfficersByType.containsKey(type)) {
+			unqualified++;
+		}
+		if (crewDAO.findCabinCrewByTypeRating(type).isEmpty()) {
+			unqualified += a.getCabinCrewRequired();
+		}
+		return unqualified;
+	}
+
+	private Pilot choosePilot(List<FlightInfo> rotation, Aircraft aircraft, Pilot.Rank seat, Set<Crew> taken) {
+
+		Map<String, List<Pilot>> byType = seat == Pilot.Rank.CAPTAIN ? captainsByType : firstOfficersByType;
+		List<Pilot> ofRank = seat == Pilot.Rank.CAPTAIN ? captains : firstOfficers;
+
+		//qualified pilots of the right rank, then any of the right rank, then anyone who can take the seat
+		Pilot p = cheapest(byType.getOrDefault(aircraft.getTypeCode(), Collections.emptyList()), rotation, aircraft, seat, taken);
+		if (p == null) {
+			p = cheapest(ofRank, rotation, aircraft, seat, taken);
+		}
+		if (p == null) {
+			p = cheapest(crewDAO.getAllPilots(), rotation, aircraft, seat, taken);
+		}
+		if (p != null) {
+			taken.add(p);
+		}
+		return p;
+	}
+
+	/**
+	 * Finds the crew member free for a whole rotation who would add least to the schedule's penalties by working it
+	 * @param candidates the crew to choose from
+	 * @param rotation the flights, in order of departure
+	 * @param aircraft the aircraft chosen for the flights
+	 * @param seat for pilots, the seat to fill; null for cabin crew
+	 * @param taken crew already chosen for these flights, which are skipped
+	 * @return the cheapest candidate, or null if none is free
+	 */
+	private <C extends Crew> C cheapest(List<C> candidates, List<FlightInfo> rotation, Aircraft aircraft, Pilot.Rank seat, Set<Crew> taken) {
+
+		long departs = minutes(rotation.get(0).getDepartureDateTime());
+		long lands = minutes(rotation.get(rotation.size() - 1).getLandingDateTime());
+		C best = null;
+		long bestCost = Long.MAX_VALUE;
+
+		for (C c : candidates) {
+			if (taken.contains(c)) {
+				continue;
+			}
+			CrewState state = crewStates.get(c);
+
+			//a pilot is only ever put in one seat, as Schedule doesn't keep their flights in order across both
+			if (seat != null && state.seat != null && state.seat != seat) {
+				continue;
+			}
+
+			long cost = crewCost(c, state, rotation, aircraft, seat);
+			if (cost >= bestCost) {
+				continue;
+			}
+			if (!availability.isFree(c, departs, lands)) {
+				continue;
+			}
+			best = c;
+			bestCost = cost;
+		}
+		return best;
+	}
+
+	//only the first flight is costed against where the crew member was, as the rest follow on from it
+	private long crewCost(Crew c, CrewState state, List<FlightInfo> rotation, Aircraft aircraft, Pilot.Rank seat) {
+
+		FlightInfo f = rotation.get(0);
+		String departure = f.getFlight().getDepartureAirportCode();
+		long departs = minutes(f.getDepartureDateTime());
+		//where and when the crew member last landed, with a null airport if they haven't flown
+		long landedAt = availability.lastLandedBy(c, departs);
+		String airport = landedAt == Long.MIN_VALUE ? null : availability.lastSeenAt(c, departs);
+		long cost = 0;
+
+		if (!c.isQualifiedFor(aircraft)) {
+			cost += UNQUALIFIED * rotation.size();
+		}
+		if (seat != null && ((Pilot) c).getRank() != seat) {
+			cost += UNQUALIFIED * rotation.size();
+		}
+
+		if (airport == null) {
+			if (!departure.equals(state.homeBase)) {
+				cost += AWAY_FROM_BASE;
+			}
+		}
+		else {
+			long rest = departs - landedAt;
+			boolean departsUK = Utilities.airportIsInUK(departure);
+			boolean landedUK = Utilities.airportIsInUK(airport);
+
+			//after flying out of the UK, the next flight should be the way back, soon after
+			boolean stranded = !departure.equals(airport) || rest > 4 * MINUTES_PER_HOUR;
+			if (stranded && (!landedUK || !departsUK)) {
+				long penalty = AWAY_WITHOUT_RETURN + (rest < 48 * MINUTES_PER_HOUR ? AWAY_WITHOUT_RETURN_UNDER_48H : 0);
+				cost += !landedUK && !departsUK ? 2 * penalty : penalty;
+			}
+			if (departsUK && landedUK && rest < 12 * MINUTES_PER_HOUR) {
+				cost += NIGHTLY_REST;
+			}
+			if (rest < 24 * MINUTES_PER_HOUR) {
+				if (departsUK && !departure.equals(state.homeBase)) {
+					cost += REST_AWAY_FROM_BASE;
+				}
+				if (landedUK && !airport.equals(state.homeBase)) {
+					cost += REST_AWAY_FROM_BASE;
+				}
+			}
+		}
+
+		Arrays.fill(rotationMinutes, 0);
+		for (FlightInfo g : rotation) {
+			int month = monthOf(g);
+			if (month >= 0) {
+				rotationMinutes[month] += g.getFlight().getDuration().toMinutes();
+			}
+		}
+		for (int month = 0; month < rotationMinutes.length; month++) {
+			long worked = state.monthMinutes[month] + rotationMinutes[month];
+			if (worked > MONTHLY_LIMIT_MINUTES && rotationMinutes[month] > 0) {
+				cost += MONTHLY_HOURS_PER_HOUR * ((worked - MONTHLY_LIMIT_MINUTES) / MINUTES_PER_HOUR + 1);
+			}
+		}
+
+		//spread the work, which leaves more crew rested for later flights
+		return cost + state.flights + jitter();
+	}
+
+	private int jitter() {
+		return random == null ? 0 : random.nextInt(JITTER);
+	}
+
+	/**
+	 * Finds the month of the horizon whose working hours a flight counts towards
+	 * @param f the flight
+	 * @return the index of the month, or -1 if the flight spans the end of a month and counts towards neither
+	 */
+	private int monthOf(FlightInfo f) {
+
+		long departs = minutes(f.getDepartureDateTime());
+		long lands = minutes(f.getLandingDateTime());
+		for (int i = 0; i < monthStarts.length - 1; i++) {
+			if (departs > monthStarts[i] && lands < monthStarts[i + 1]) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Removes a flight's allocations from a schedule. Schedule.unAllocate() forgets every flight
+	 * of the flight's first officer, not just this one, so their other flights are put back afterwards
+	 * @param schedule the schedule to remove the allocations from
+	 * @param f the flight to unallocate
+	 */
+	static void unAllocate(Schedule schedule, FlightInfo f) {
+
+		Pilot firstOfficer = schedule.getFirstOfficerOf(f);
+		List<FlightInfo> keep = new ArrayList<>();
+		if (firstOfficer != null) {
+			for (FlightInfo other : schedule.getCompletedAllocationsFor(firstOfficer)) {
+				if (other != f && schedule.getFirstOfficerOf(other) == firstOfficer) {
+					keep.add(other);
+				}
+			}
+		}
+
+		schedule.unAllocate(f);
+
+		for (FlightInfo other : keep) {
+			try {
+				schedule.allocateFirstOfficerTo(firstOfficer, other);
+			}
+			catch (DoubleBookedException e) {
+				//these flights were allocated together before, so they cannot conflict
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	static long minutes(LocalDateTime t) {
+		return t.toEpochSecond(ZoneOffset.UTC) / 60;
+	}
+
+	private static final class CrewState {
+
+		final String homeBase;
+		final long[] monthMinutes;
+
+		int flights;
+		Pilot.Rank seat;
+
+		CrewState(String homeBase, int months) {
+
+			this.homeBase = homeBase;
+			this.monthMinutes = new long[months];
+		}
+
+		void fly(FlightInfo f, Pilot.Rank seat, ScheduleBuilder builder) {
+
+			flights++;
+			if (seat != null) {
+				this.seat = seat;
+			}
+			int month = builder.monthOf(f);
+			if (month >= 0) {
+				monthMinutes[month] += f.getFlight().getDuration().toMinutes();
+			}
+		}
+
+		void unfly(FlightInfo f, ScheduleBuilder builder) {
+
+			flights--;
+			int month = builder.monthOf(f);
+			if (month >= 0) {
+				monthMinutes[month] -= f.getFlight().getDuration().toMinutes();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,134 @@
+package solution;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import baseclasses.Aircraft;
+import baseclasses.CabinCrew;
+import baseclasses.DoubleBookedException;
+import baseclasses.FlightInfo;
+import baseclasses.IRouteDAO;
+import baseclasses.InvalidAllocationException;
+import baseclasses.Pilot;
+import baseclasses.Schedule;
+
+/**
+ * An unchanging copy of the completed allocations in a schedule, with the schedule's quality score.
+ * A Schedule can't be copied and is changed in place while it is being improved, so the best one found
+ * so far is kept as a snapshot, which can be turned back into a Schedule whenever it is wanted
+ */
+final class ScheduleSnapshot {
+
+	private final LocalDate startDate;
+	private final LocalDate endDate;
+	private final long score;
+	private final List<Entry> entries;
+
+	private ScheduleSnapshot(LocalDate startDate, LocalDate endDate, long score, List<Entry> entries) {
+
+		this.startDate = startDate;
+		this.endDate = endDate;
+		this.score = score;
+		this.entries = entries;
+	}
+
+	/**
+	 * Copies the completed allocations of a schedule
+	 * @param s the schedule to copy
+	 * @param score the quality score of the schedule
+	 * @return the snapshot
+	 */
+	static ScheduleSnapshot of(Schedule s, long score) {
+
+		List<FlightInfo> completed = s.getCompletedAllocations();
+		completed.sort(Comparator.comparing(FlightInfo::getDepartureDateTime));
+
+		List<Entry> entries = new ArrayList<>(completed.size());
+		for (FlightInfo f : completed) {
+			entries.add(new Entry(key(f), s.getAircraftFor(f), s.getCaptainOf(f), s.getFirstOfficerOf(f),
+					new ArrayList<>(s.getCabinCrewOf(f))));
+		}
+		return new ScheduleSnapshot(s.getStartDate(), s.getEndDate(), score, Collections.unmodifiableList(entries));
+	}
+
+	/**
+	 * Returns the quality score of the schedule this snapshot was taken from
+	 * @return the quality score
+	 */
+	long getScore() {
+		return score;
+	}
+
+	/**
+	 * Returns the number of completed allocations in the snapshot
+	 * @return the number of completed flights
+	 */
+	int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Creates a new schedule with the same allocations as the one this snapshot was taken from
+	 * @param routeDAO the routes the original schedule was created from
+	 * @return a new schedule
+	 */
+	Schedule toSchedule(IRouteDAO routeDAO) {
+
+		Schedule s = new Schedule(routeDAO, startDate, endDate);
+		Map<Long, FlightInfo> flights = new HashMap<>();
+		for (FlightInfo f : s.getRemainingAllocations()) {
+			flights.put(key(f), f);
+		}
+
+		try {
+			for (Entry e : entries) {
+				FlightInfo f = flights.get(e.key);
+				if (f == null) {
+					throw new IllegalStateException("The routes have changed since this snapshot was taken");
+				}
+				s.allocateAircraftTo(e.aircraft, f);
+				s.allocateCaptainTo(e.captain, f);
+				s.allocateFirstOfficerTo(e.firstOfficer, f);
+				for (CabinCrew c : e.cabinCrew) {
+					s.allocateCabinCrewTo(c, f);
+				}
+				s.completeAllocationFor(f);
+			}
+		}
+		catch (DoubleBookedException | InvalidAllocationException e) {
+			//the allocations were all valid together in the schedule the snapshot was taken from
+			throw new IllegalStateException(e);
+		}
+
+		s.sort();
+		return s;
+	}
+
+	//flight number and departure time, which pick out one flight of a schedule
+	private static long key(FlightInfo f) {
+		return LongIntHashMap.pack(f.getFlight().getFlightNumber(), (int) ScheduleBuilder.minutes(f.getDepartureDateTime()));
+	}
+
+	private static final class Entry {
+
+		final long key;
+		final Aircraft aircraft;
+		final Pilot captain;
+		final Pilot firstOfficer;
+		final List<CabinCrew> cabinCrew;
+
+		Entry(long key, Aircraft aircraft, Pilot captain, Pilot firstOfficer, List<CabinCrew> cabinCrew) {
+
+			this.key = key;
+			this.aircraft = aircraft;
+			this.captain = captain;
+			this.firstOfficer = firstOfficer;
+			this.cabinCrew = cabinCrew;
+		}
+	}
+
+}
@@ -1,9 +1,17 @@
 package solution;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
 
-import baseclasses.Aircraft;
-import baseclasses.DoubleBookedException;
 import baseclasses.FlightInfo;
 import baseclasses.IAircraftDAO;
 import baseclasses.ICrewDAO;
@@ -22,10 +30,147 @@ import baseclasses.Schedule;
  */
 public class Scheduler implements IScheduler {
 	
+	//the SchedulerRunner gives up after 2 minutes, so stop improving the schedule well before then
+	private static final Duration DEFAULT_TIME_LIMIT = Duration.ofSeconds(100);
 	
+	//how long each phase takes, summed over every attempt, and how hard the search worked, while metrics are on
+	private static final Metrics.Timer GENERATE = Metrics.timer("scheduler.generateSchedule");
+	private static final Metrics.Timer FEASIBILITY = Metrics.timer("scheduler.feasibility");
+	private static final Metrics.Timer CONSTRUCTION = Metrics.timer("scheduler.construction");
+	private static final Metrics.Timer SCORING = Metrics.timer("scheduler.scoring");
+	private static final Metrics.Timer IMPROVEMENT = Metrics.timer("scheduler.improvement");
+	private static final Metrics.Counter STEPS = Metrics.counter("scheduler.steps");
+	private static final Metrics.Counter ACCEPTED = Metrics.counter("scheduler.accepted");
 	
+	private Duration timeLimit = DEFAULT_TIME_LIMIT;
+	private long seed = 1;
+	private int threads = 1;
+	private int windowDays;
+	private int lookAheadDays;
+	private Duration matchingSlice;
+	private boolean verifying;
+	
+	//the best schedule found by the current or last call to generateSchedule, and the routes it was made from.
+	//every attempt offers the schedules it finds, so the best one is swapped in without locking
+	private final AtomicReference<ScheduleSnapshot> bestSoFar = new AtomicReference<>();
+	private volatile IRouteDAO bestSoFarRoutes;
+	private volatile FeasibilityAnalyser feasibility;
+	
+	/**
+	 * Sets how long generateSchedule() may take in total. Whatever time is left once every flight
+	 * has been allocated is spent improving the schedule's quality score
+	 * @param timeLimit the time allowed, or zero to return the first complete schedule without improving it
+	 */
+	public void setTimeLimit(Duration timeLimit) {
+		
+		if (timeLimit.isNegative()) {
+			throw new IllegalArgumentException("The time limit can't be negative");
+		}
+		this.timeLimit = timeLimit;
+	}
+	
+	/**
+	 * Sets the seed for the random choices made while improving a schedule, so runs can be repeated
+	 * @param seed the seed to use
+	 */
+	public void setSeed(long seed) {
+		
+		this.seed = seed;
+	}
+	
+	/**
+	 * Sets how many schedules to build and improve at the same time, each on its own thread with its
+	 * own random choices. The best of them is returned. With one thread, the default, the schedule
+	 * is generated on the thread that calls generateSchedule()
+	 * @param threads the number of independent attempts to run
+	 */
+	public void setThreads(int threads) {
+		
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1, was " + threads);
+		}
+		this.threads = threads;
+	}
+	
+	/**
+	 * Makes generateSchedule() work through the horizon a window at a time instead of all at once.
+	 * The flights of each window, and of the look-ahead after it, are built starting from wherever
+	 * the aircraft and crew were left and with the hours they have already worked, and then improved
+	 * for an equal share of the time that is left. Flights in the look-ahead can still be changed
+	 * with the next window, but flights before the window being worked on are fixed. Each window
+	 * takes about the same time however long the horizon is, and getBestSoFar() has nothing
+	 * to return until the last window is done
+	 * @param windowDays the length of each window in days, or zero to schedule the whole horizon at once
+	 * @param lookAheadDays how many days after each window to build and improve along with it
+	 */
+	public void setRollingHorizon(int windowDays, int lookAheadDays) {
+		
+		if (windowDays < 0 || lookAheadDays < 0) {
+			throw new IllegalArgumentException("The window and look-ahead can't be negative");
+		}
+		this.windowDays = windowDays;
+		this.lookAheadDays = lookAheadDays;
+	}
+	
+	/**
+	 * Makes generateSchedule() choose cabin crew for all the flights starting within each slice of
+	 * time together, by solving the assignment of crew to seats exactly at the least total cost of
+	 * their penalties, such as resting away from their home base, instead of giving each flight in
+	 * turn the cheapest crew left. This takes longer to build a schedule but can leave better crew
+	 * free for the later flights of the slice
+	 * @param slice the length of each slice, or null to choose each flight's cabin crew in turn
+	 */
+	public void setCabinCrewMatching(Duration slice) {
+		
+		if (slice != null && (slice.isNegative() || slice.isZero())) {
+			throw new IllegalArgumentException("The slice must be longer than zero");
+		}
+		this.matchingSlice = slice;
+	}
+	
+	/**
+	 * Sets whether the quality score kept while improving a schedule is checked against the
+	 * QualityScoreCalculator after every change. This is for testing, as it makes the search
+	 * far slower, and an IllegalStateException is thrown as soon as the two scores differ
+	 * @param verifying true to check the score after every change
+	 */
+	public void setVerifying(boolean verifying) {
+		
+		this.verifying = verifying;
+	}
+	
+	/**
+	 * Returns the best schedule generateSchedule() has found so far. This can be called from another
+	 * thread while a schedule is being generated, and each call returns a new copy
+	 * @return the best schedule so far, or null if no schedule has been completed yet
+	 */
+	public Schedule getBestSoFar() {
+		
+		ScheduleSnapshot best = bestSoFar.get();
+		return best == null ? null : best.toSchedule(bestSoFarRoutes);
+	}
+	
+	/**
+	 * Returns the quality score of the schedule getBestSoFar() would return
+	 * @return the best quality score so far, or -1 if no schedule has been completed yet
+	 */
+	public long getBestScoreSoFar() {
+		
+		ScheduleSnapshot best = bestSoFar.get();
+		return best == null ? -1 : best.getScore();
+	}
 	
 
+	/**
+	 * Returns what the last call to generateSchedule() found when it checked that the aircraft and
+	 * crew could cover the horizon's flights
+	 * @return the analysis, or null if no schedule has been generated yet
+	 */
+	public FeasibilityAnalyser getFeasibility() {
+		
+		return feasibility;
+	}
+	
 	/**
 	 * Generates a schedule, providing you with ready-loaded DAO objects to get your data from
 	 * @param aircraftDAO the DAO for the aircraft to be used when scheduling
@@ -40,29 +185,252 @@ public class Scheduler implements IScheduler {
 	public Schedule generateSchedule(IAircraftDAO aircraftDAO, ICrewDAO crewDAO, IRouteDAO routeDAO, 
 			IPassengerNumbersDAO passengerNumbersDAO, LocalDate startDate, LocalDate endDate) {
 		
-		Schedule sc = new Schedule(routeDAO, startDate, endDate);
+		long start = Metrics.start();
+		Schedule generated = generate(cached(aircraftDAO), cached(crewDAO), cached(routeDAO), cached(passengerNumbersDAO), startDate, endDate);
+		GENERATE.stop(start);
+		return generated;
+	}
+	
+	//building and improving a schedule asks the same questions of the DAOs over and over, so a DAO
+	//that works each answer out again is wrapped in a cache; the DAOs in this package answer from
+	//indexes built when they load, which is quicker than any cache, so are used as they are
+	
+	private static IAircraftDAO cached(IAircraftDAO dao) {
+		return dao instanceof AircraftDAO || dao instanceof CachingAircraftDAO ? dao : new CachingAircraftDAO(dao);
+	}
+	
+	private static ICrewDAO cached(ICrewDAO dao) {
+		return dao instanceof CrewDAO || dao instanceof CachingCrewDAO ? dao : new CachingCrewDAO(dao);
+	}
+	
+	private static IRouteDAO cached(IRouteDAO dao) {
+		return dao instanceof RouteDAO || dao instanceof CachingRouteDAO ? dao : new CachingRouteDAO(dao);
+	}
+	
+	private static IPassengerNumbersDAO cached(IPassengerNumbersDAO dao) {
+		return dao instanceof PassengerNumbersDAO || dao instanceof CachingPassengerNumbersDAO ? dao : new CachingPassengerNumbersDAO(dao);
+	}
+	
+	private Schedule generate(IAircraftDAO aircraftDAO, ICrewDAO crewDAO, IRouteDAO routeDAO, 
+			IPassengerNumbersDAO passengerNumbersDAO, LocalDate startDate, LocalDate endDate) {
 		
-		List<FlightInfo> flightInfoObjects = sc.getRemainingAllocations();
+		long deadline = System.nanoTime() + timeLimit.toNanos();
+		bestSoFar.set(null);
+		bestSoFarRoutes = routeDAO;
 		
-		for (int i = 0; i < flightInfoObjects.size(); i++) {
-			for(int j = 0; j <aircraftDAO.getAllAircraft().size(); j++) {
-				
-				try {
-					sc.allocateAircraftTo(aircraftDAO.getAllAircraft().get(i), flightInfoObjects.get(i));
-				} catch (DoubleBookedException e) {
-					e.printStackTrace();
+		//the analysis is shared by every attempt, which only read the aircraft it found usable;
+		//a horizon that can't be completed is built once and returned, rather than searched until the time runs out
+		long started = Metrics.start();
+		FeasibilityAnalyser analyser = new FeasibilityAnalyser(aircraftDAO, crewDAO);
+		feasibility = analyser;
+		int attemptCount = threads;
+		boolean feasible = analyser.analyse(routeDAO, startDate, endDate);
+		FEASIBILITY.stop(started);
+		if (!feasible) {
+			deadline = System.nanoTime();
+			attemptCount = 1;
+		}
+		
+		List<Attempt> attempts = new ArrayList<>();
+		for (int i = 0; i < attemptCount; i++) {
+			attempts.add(new Attempt(i, aircraftDAO, crewDAO, routeDAO, passengerNumbersDAO, analyser, startDate, endDate, deadline));
+		}
+		
+		if (attemptCount == 1) {
+			return attempts.get(0).call().getSchedule(routeDAO);
+		}
+		
+		boolean interrupted = false;
+		ForkJoinPool pool = new ForkJoinPool(attemptCount);
+		try {
+			List<ForkJoinTask<Attempt>> tasks = new ArrayList<>();
+			for (Attempt attempt : attempts) {
+				tasks.add(pool.submit(attempt));
+			}
+			try {
+				for (ForkJoinTask<Attempt> task : tasks) {
+					task.get();
 				}
+			}
+			catch (InterruptedException e) {
+				//stop every attempt, and return the best schedule any of them had found
+				interrupted = true;
+				for (Attempt attempt : attempts) {
+					attempt.stop();
+				}
+				for (ForkJoinTask<Attempt> task : tasks) {
+					task.quietlyJoin();
+				}
+			}
+			catch (ExecutionException e) {
+				for (Attempt attempt : attempts) {
+					attempt.stop();
+				}
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IllegalStateException(cause);
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+		
+		Attempt best = null;
+		for (Attempt attempt : attempts) {
+			if (attempt.best != null && (best == null || attempt.best.getScore() < best.best.getScore())) {
+				best = attempt;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return best == null ? null : best.getSchedule(routeDAO);
+	}
+	
+	private void offer(ScheduleSnapshot snapshot) {
+		
+		bestSoFar.accumulateAndGet(snapshot, (best, offered) -> best == null || offered.getScore() < best.getScore() ? offered : best);
+	}
+	
+	/**
+	 * Builds one schedule and improves it until the deadline, with its own Schedule and random choices
+	 */
+	private final class Attempt implements Callable<Attempt> {
+		
+		private final int index;
+		private final IAircraftDAO aircraftDAO;
+		private final ICrewDAO crewDAO;
+		private final IRouteDAO routeDAO;
+		private final IPassengerNumbersDAO passengerNumbersDAO;
+		private final FeasibilityAnalyser analyser;
+		private final LocalDate startDate;
+		private final LocalDate endDate;
+		private final long deadline;
+		
+		private volatile boolean stopped;
+		private volatile LocalSearch search;
+		private Schedule schedule;
+		private ScheduleSnapshot best;
+		
+		Attempt(int index, IAircraftDAO aircraftDAO, ICrewDAO crewDAO, IRouteDAO routeDAO, IPassengerNumbersDAO passengerNumbersDAO,
+				FeasibilityAnalyser analyser, LocalDate startDate, LocalDate endDate, long deadline) {
 			
-				
-				
+			this.index = index;
+			this.aircraftDAO = aircraftDAO;
+			this.crewDAO = crewDAO;
+			this.routeDAO = routeDAO;
+			this.passengerNumbersDAO = passengerNumbersDAO;
+			this.analyser = analyser;
+			this.startDate = startDate;
+			this.endDate = endDate;
+			this.deadline = deadline;
+		}
 		
+		@Override
+		public Attempt call() {
+			
+			//the first attempt builds the same schedule a single thread would, and the rest vary it
+			ScheduleBuilder builder = new ScheduleBuilder(aircraftDAO, crewDAO, routeDAO, passengerNumbersDAO, analyser, startDate, endDate);
+			if (index > 0) {
+				builder.setRandom(new Random(seed + index));
+			}
+			builder.setCabinCrewMatching(matchingSlice);
+			if (windowDays > 0) {
+				return callRolling(builder);
+			}
+			long started = Metrics.start();
+			schedule = builder.build();
+			CONSTRUCTION.stop(started);
+			
+			//spend the rest of the time improving the schedule, publishing each better one as it is found
+			LocalSearch s = start(schedule);
+			started = Metrics.start();
+			best = s.improve(deadline, Scheduler.this::offer);
+			IMPROVEMENT.stop(started);
+			countSearch(s);
+			return this;
+		}
+		
+		private Attempt callRolling(ScheduleBuilder builder) {
+			
+			LocalDateTime end = endDate.atStartOfDay();
+			long windows = (ChronoUnit.DAYS.between(startDate, endDate) + windowDays - 1) / windowDays;
+			
+			//the search starts with nothing to search, and is given each window's flights as they are built
+			LocalSearch s = start(builder.getSchedule());
+			s.setChangeListener(builder::reallocated);
+			
+			LocalDateTime from = startDate.atStartOfDay();
+			for (long w = 0; from.isBefore(end); w++) {
+				LocalDateTime to = from.plusDays(windowDays);
+				LocalDateTime ahead = to.plusDays(lookAheadDays);
+				long started = Metrics.start();
+				List<FlightInfo> built = builder.buildUntil(ahead);
+				CONSTRUCTION.stop(started);
+				started = Metrics.start();
+				s.add(built);
+				SCORING.stop(started);
 				
-				
+				long now = System.nanoTime();
+				started = Metrics.start();
+				s.improveWindow(from, ahead, now + (deadline - now) / (windows - w));
+				IMPROVEMENT.stop(started);
+				from = to;
+			}
+			countSearch(s);
 			
+			long started = Metrics.start();
+			schedule = builder.build();
+			CONSTRUCTION.stop(started);
+			best = ScheduleSnapshot.of(schedule, s.getCurrentScore());
+			offer(best);
+			return this;
+		}
+		
+		//creating the search scores the schedule it is given in full
+		private LocalSearch start(Schedule sc) {
+			
+			long started = Metrics.start();
+			LocalSearch s = new LocalSearch(aircraftDAO, crewDAO, passengerNumbersDAO, analyser, sc, new Random(seed + index));
+			SCORING.stop(started);
+			s.setVerifying(verifying);
+			search = s;
+			if (stopped) {
+				s.stop();
 			}
+			return s;
+		}
+		
+		private void countSearch(LocalSearch s) {
+			
+			STEPS.add(s.getSteps());
+			ACCEPTED.add(s.getAccepted());
+		}
+		
+		void stop() {
+			
+			stopped = true;
+			LocalSearch s = search;
+			if (s != null) {
+				s.stop();
+			}
+		}
+		
+		/**
+		 * Returns the best schedule this attempt found, which is the one it was working on if nothing better came after it
+		 */
+		Schedule getSchedule(IRouteDAO routes) {
+			
+			if (best.getScore() < search.getCurrentScore()) {
+				return best.toSchedule(routes);
+			}
+			return schedule;
 		}
-	
-		return sc;
 	}
 
 }
@@ -0,0 +1,239 @@
+package solution;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import baseclasses.Aircraft;
+import baseclasses.DataLoadingException;
+import baseclasses.Pilot;
+import baseclasses.Route;
+
+/**
+ * Checks that each DAO restores from a snapshot exactly what it parsed from the data file, and
+ * that a snapshot is not used once the file has changed or when the snapshot itself is damaged
+ */
+class DataSnapshotTest {
+
+	@TempDir
+	Path dir;
+
+	private Path copy(String name) throws IOException {
+		return Files.copy(Paths.get("./data", name), dir.resolve(name));
+	}
+
+	private static long restored(String dao) {
+		return Metrics.counter(dao + ".restoredFromSnapshot").get();
+	}
+
+	//loads with the snapshot twice, the first parsing and saving it, and checks the second restored it
+	private interface Load<T> {
+		T load() throws DataLoadingException;
+	}
+
+	private static <T> T loadTwice(String dao, Load<T> load) throws DataLoadingException {
+
+		boolean enabled = Metrics.isEnabled();
+		Metrics.setEnabled(true);
+		try {
+			long before = restored(dao);
+			load.load();
+			assertEquals(before, restored(dao), "the first load should parse the file");
+			T second = load.load();
+			assertEquals(before + 1, restored(dao), "the second load should restore the snapshot");
+			return second;
+		}
+		finally {
+			Metrics.setEnabled(enabled);
+		}
+	}
+
+	private static String describe(Aircraft a) {
+		return a.getTailCode() + " " + a.getModel() + " " + a.getTypeCode() + " " + a.getManufacturer() + " "
+				+ a.getStartingPosition() + " " + a.getSeats() + " " + a.getCabinCrewRequired();
+	}
+
+	private static String describe(Pilot p) {
+		return p.getForename() + " " + p.getSurname() + " " + p.getHomeBase() + " " + p.getTypeRatings() + " " + p.getRank();
+	}
+
+	private static String describe(Route r) {
+		return r.getFlightNumber() + " " + r.getDayOfWeek() + " " + r.getDepartureTime() + " " + r.getDepartureAirport() + " "
+				+ r.getDepartureAirportCode() + " " + r.getArrivalTime() + " " + r.getArrivalAirport() + " "
+				+ r.getArrivalAirportCode() + " " + r.getDuration();
+	}
+
+	private static <T> List<String> describeAll(List<T> items, Function<T, String> describe) {
+		return items.stream().map(describe).collect(Collectors.toList());
+	}
+
+	@Test
+	void restoresTheAircraftItParsed() throws IOException, DataLoadingException {
+
+		Path file = copy("aircraft.csv");
+		Path snapshot = DataSnapshot.pathFor(dir.resolve("snapshots"), file);
+		AircraftDAO parsed = new AircraftDAO();
+		parsed.loadAircraftData(file);
+
+		AircraftDAO restored = loadTwice("aircraft", () -> {
+			AircraftDAO dao = new AircraftDAO();
+			dao.loadAircraftData(file, snapshot);
+			return dao;
+		});
+		assertEquals(describeAll(parsed.getAllAircraft(), DataSnapshotTest::describe), describeAll(restored.getAllAircraft(), DataSnapshotTest::describe));
+	}
+
+	@Test
+	void restoresTheCrewItParsed() throws IOException, DataLoadingException {
+
+		Path file = copy("crew.json");
+		Path snapshot = DataSnapshot.pathFor(dir.resolve("snapshots"), file);
+		CrewDAO parsed = new CrewDAO();
+		parsed.loadCrewData(file);
+
+		CrewDAO restored = loadTwice("crew", () -> {
+			CrewDAO dao = new CrewDAO();
+			dao.loadCrewData(file, snapshot);
+			return dao;
+		});
+		assertEquals(describeAll(parsed.getAllPilots(), DataSnapshotTest::describe), describeAll(restored.getAllPilots(), DataSnapshotTest::describe));
+		assertEquals(describeAll(parsed.getAllCabinCrew(), c -> c.getForename() + " " + c.getSurname() + " " + c.getHomeBase() + " " + c.getTypeRatings()),
+				describeAll(restored.getAllCabinCrew(), c -> c.getForename() + " " + c.getSurname() + " " + c.getHomeBase() + " " + c.getTypeRatings()));
+	}
+
+	@Test
+	void restoresTheRoutesItParsed() throws IOException, DataLoadingException {
+
+		Path file = copy("routes.xml");
+		Path snapshot = DataSnapshot.pathFor(dir.resolve("snapshots"), file);
+		RouteDAO parsed = new RouteDAO();
+		parsed.loadRouteData(file);
+
+		RouteDAO restored = loadTwice("routes", () -> {
+			RouteDAO dao = new RouteDAO();
+			dao.loadRouteData(file, snapshot);
+			return dao;
+		});
+		assertEquals(describeAll(parsed.getAllRoutes(), DataSnapshotTest::describe), describeAll(restored.getAllRoutes(), DataSnapshotTest::describe));
+	}
+
+	@Test
+	void restoresThePassengerNumbersItRead() throws IOException, DataLoadingException {
+
+		Path file = copy("mini_passengers.db");
+		Path snapshot = DataSnapshot.pathFor(dir.resolve("snapshots"), file);
+		PassengerNumbersDAO parsed = new PassengerNumbersDAO();
+		parsed.loadPassengerNumbersData(file);
+
+		PassengerNumbersDAO restored = loadTwice("passengers", () -> {
+			PassengerNumbersDAO dao = new PassengerNumbersDAO();
+			dao.loadPassengerNumbersData(file, snapshot);
+			return dao;
+		});
+		assertEquals(parsed.getNumberOfEntries(), restored.getNumberOfEntries());
+		RouteDAO routes = new RouteDAO();
+		routes.loadRouteData(Paths.get("./data/mini_routes.xml"));
+		for (Route r : routes.getAllRoutes()) {
+			for (LocalDate date = LocalDate.of(2020, 7, 1); date.isBefore(LocalDate.of(2020, 8, 1)); date = date.plusDays(1)) {
+				assertEquals(parsed.getPassengerNumbersFor(r.getFlightNumber(), date), restored.getPassengerNumbersFor(r.getFlightNumber(), date));
+			}
+		}
+	}
+
+	@Test
+	void parsesTheFileAgainOnceItGrows() throws IOException, DataLoadingException {
+
+		Path file = copy("aircraft.csv");
+		Path snapshot = DataSnapshot.pathFor(dir.resolve("snapshots"), file);
+		AircraftDAO first = new AircraftDAO();
+		first.loadAircraftData(file, snapshot);
+
+		Files.write(file, "G-TEST,A320,A320,Airbus,MAN,180,4\r\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		AircraftDAO second = new AircraftDAO();
+		second.loadAircraftData(file, snapshot);
+		assertEquals(first.getNumberOfAircraft() + 1, second.getNumberOfAircraft());
+		assertEquals("MAN", second.findAircraftByTailCode("G-TEST").getStartingPosition());
+	}
+
+	@Test
+	void parsesTheFileAgainWhenItChangesButKeepsItsSize() throws IOException, DataLoadingException {
+
+		Path file = copy("aircraft.csv");
+		Path snapshot = DataSnapshot.pathFor(dir.resolve("snapshots"), file);
+		new AircraftDAO().loadAircraftData(file, snapshot);
+		String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		String tailCode = text.split("\\R")[1].split(",")[0];
+
+		//the same number of bytes, so only the checksum can tell
+		FileTime modified = Files.getLastModifiedTime(file);
+		String changed = tailCode.substring(0, tailCode.length() - 1) + (tailCode.endsWith("Z") ? "Y" : "Z");
+		Files.write(file, text.replaceFirst(tailCode, changed).getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(file, FileTime.fromMillis(modified.toMillis() + 60_000));
+
+		AircraftDAO dao = new AircraftDAO();
+		dao.loadAircraftData(file, snapshot);
+		assertEquals(changed, dao.getAllAircraft().get(0).getTailCode());
+	}
+
+	@Test
+	void restoresTheSnapshotOfAFileThatWasOnlyTouched() throws IOException, DataLoadingException {
+
+		Path file = copy("aircraft.csv");
+		Path snapshot = DataSnapshot.pathFor(dir.resolve("snapshots"), file);
+		new AircraftDAO().loadAircraftData(file, snapshot);
+		Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 60_000));
+
+		boolean enabled = Metrics.isEnabled();
+		Metrics.setEnabled(true);
+		try {
+			long before = restored("aircraft");
+			new AircraftDAO().loadAircraftData(file, snapshot);
+			assertEquals(before + 1, restored("aircraft"));
+		}
+		finally {
+			Metrics.setEnabled(enabled);
+		}
+	}
+
+	@Test
+	void parsesTheFileWhenTheSnapshotIsDamaged() throws IOException, DataLoadingException {
+
+		Path file = copy("routes.xml");
+		Path snapshot = DataSnapshot.pathFor(dir.resolve("snapshots"), file);
+		RouteDAO parsed = new RouteDAO();
+		parsed.loadRouteData(file, snapshot);
+
+		byte[] bytes = Files.readAllBytes(snapshot);
+		Files.write(snapshot, Arrays.copyOf(bytes, bytes.length / 2));
+		RouteDAO dao = new RouteDAO();
+		dao.loadRouteData(file, snapshot);
+		assertEquals(describeAll(parsed.getAllRoutes(), DataSnapshotTest::describe), describeAll(dao.getAllRoutes(), DataSnapshotTest::describe));
+	}
+
+	@Test
+	void keepsFilesWithTheSameNameInDifferentFoldersApart() throws IOException {
+
+		Path snapshots = dir.resolve("snapshots");
+		Path a = dir.resolve("a").resolve("aircraft.csv");
+		Path b = dir.resolve("b").resolve("aircraft.csv");
+		assertNotEquals(DataSnapshot.pathFor(snapshots, a), DataSnapshot.pathFor(snapshots, b));
+		assertEquals(DataSnapshot.pathFor(snapshots, a), DataSnapshot.pathFor(snapshots, dir.resolve("b").resolve("..").resolve("a").resolve("aircraft.csv")));
+		assertTrue(DataSnapshot.pathFor(snapshots, a).getFileName().toString().startsWith("aircraft.csv"));
+	}
+
+}
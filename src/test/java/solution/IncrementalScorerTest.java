@@ -0,0 +1,80 @@
+package solution;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import baseclasses.DataLoadingException;
+import baseclasses.QualityScoreCalculator;
+import baseclasses.Schedule;
+
+/**
+ * Checks that the IncrementalScorer gives the same quality score as the QualityScoreCalculator,
+ * for schedules as they are built and as the local search changes them
+ */
+class IncrementalScorerTest {
+
+	private static final LocalDate START = LocalDate.of(2020, 7, 1);
+
+	private final AircraftDAO aircraft = new AircraftDAO();
+	private final CrewDAO crew = new CrewDAO();
+	private final RouteDAO routes = new RouteDAO();
+	private final PassengerNumbersDAO passengers = new PassengerNumbersDAO();
+
+	private void loadFull() throws DataLoadingException {
+
+		aircraft.loadAircraftData(Paths.get("./data/aircraft.csv"));
+		crew.loadCrewData(Paths.get("./data/crew.json"));
+		routes.loadRouteData(Paths.get("./data/routes.xml"));
+		passengers.loadPassengerNumbersData(Paths.get("./data/passengernumbers.db"));
+	}
+
+	private Schedule build(int days) {
+
+		FeasibilityAnalyser feasibility = new FeasibilityAnalyser(aircraft, crew);
+		return new ScheduleBuilder(aircraft, crew, routes, passengers, feasibility, START, START.plusDays(days)).build();
+	}
+
+	private long calculate(Schedule schedule) {
+		return new QualityScoreCalculator(aircraft, crew, passengers, schedule).calculateQualityScore();
+	}
+
+	@Test
+	void scoresBuiltSchedulesLikeTheCalculator() throws DataLoadingException {
+
+		loadFull();
+		for (int days : new int[] {1, 7, 28}) {
+			Schedule schedule = build(days);
+			assertEquals(calculate(schedule), new IncrementalScorer(aircraft, crew, passengers, schedule).getScore(), days + " days");
+		}
+	}
+
+	@Test
+	void scoresFlightsWithoutForecastsLikeTheCalculator() throws DataLoadingException {
+
+		//no passenger numbers are loaded, so every flight has no forecast
+		aircraft.loadAircraftData(Paths.get("./data/aircraft.csv"));
+		crew.loadCrewData(Paths.get("./data/crew.json"));
+		routes.loadRouteData(Paths.get("./data/routes.xml"));
+		Schedule schedule = build(7);
+		assertEquals(calculate(schedule), new IncrementalScorer(aircraft, crew, passengers, schedule).getScore());
+	}
+
+	@Test
+	void keepsInStepWithTheCalculatorWhileSearching() throws DataLoadingException {
+
+		loadFull();
+		Schedule schedule = build(1);
+		LocalSearch search = new LocalSearch(aircraft, crew, passengers, new FeasibilityAnalyser(aircraft, crew), schedule, new Random(1));
+
+		//verifying rescores the schedule in full after every change kept, and throws if the scores differ
+		search.setVerifying(true);
+		search.improve(System.nanoTime() + 2_000_000_000L, best -> { });
+
+		assertEquals(calculate(schedule), search.getCurrentScore());
+	}
+
+}
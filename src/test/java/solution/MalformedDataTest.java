@@ -0,0 +1,120 @@
+package solution;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import baseclasses.DataLoadingException;
+
+/**
+ * Checks that the CSV, JSON and XML parsers reject malformed files with a DataLoadingException,
+ * and leave whatever the DAO held before untouched
+ */
+class MalformedDataTest {
+
+	@TempDir
+	Path dir;
+
+	//the mini data file with the first occurrence of one string replaced
+	private Path corrupt(String name, String from, String to) throws IOException {
+
+		String text = new String(Files.readAllBytes(Paths.get("./data", name)), StandardCharsets.UTF_8);
+		Path file = dir.resolve(name);
+		Files.write(file, text.replaceFirst(from, to).getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	//the first half of the mini data file
+	private Path truncate(String name) throws IOException {
+
+		byte[] bytes = Files.readAllBytes(Paths.get("./data", name));
+		Path file = dir.resolve(name);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+		return file;
+	}
+
+	@Test
+	void rejectsAircraftWithMissingFields() {
+		assertThrows(DataLoadingException.class, () -> new AircraftDAO().loadAircraftData(Paths.get("./data/malformed_aircraft1.csv")));
+	}
+
+	@Test
+	void rejectsAircraftWithBadSeats() throws IOException {
+
+		Path file = corrupt("mini_aircraft.csv", ",192,", ",many,");
+		assertThrows(DataLoadingException.class, () -> new AircraftDAO().loadAircraftData(file));
+	}
+
+	@Test
+	void rejectsAircraftFromAnUnknownManufacturer() throws IOException {
+
+		Path file = corrupt("mini_aircraft.csv", ",Boeing,", ",Zeppelin,");
+		assertThrows(DataLoadingException.class, () -> new AircraftDAO().loadAircraftData(file));
+	}
+
+	@Test
+	void keepsTheAircraftItHadWhenALoadFails() throws DataLoadingException {
+
+		AircraftDAO dao = new AircraftDAO();
+		dao.loadAircraftData(Paths.get("./data/mini_aircraft.csv"));
+		int before = dao.getNumberOfAircraft();
+		assertThrows(DataLoadingException.class, () -> dao.loadAircraftData(Paths.get("./data/malformed_aircraft1.csv")));
+		assertEquals(before, dao.getNumberOfAircraft());
+	}
+
+	@Test
+	void rejectsCrewWithoutARank() {
+		assertThrows(DataLoadingException.class, () -> new CrewDAO().loadCrewData(Paths.get("./data/malformed_crew1.json")));
+	}
+
+	@Test
+	void rejectsTruncatedCrew() throws IOException {
+
+		Path file = truncate("mini_crew.json");
+		assertThrows(DataLoadingException.class, () -> new CrewDAO().loadCrewData(file));
+	}
+
+	@Test
+	void rejectsCrewWithAnUnknownRank() throws IOException {
+
+		Path file = corrupt("mini_crew.json", "\"CAPTAIN\"", "\"ADMIRAL\"");
+		assertThrows(DataLoadingException.class, () -> new CrewDAO().loadCrewData(file));
+	}
+
+	@Test
+	void rejectsRoutesWithABadFlightNumber() {
+		assertThrows(DataLoadingException.class, () -> new RouteDAO().loadRouteData(Paths.get("./data/malformed_routes1.xml")));
+	}
+
+	@Test
+	void rejectsTruncatedRoutes() throws IOException {
+
+		Path file = truncate("mini_routes.xml");
+		assertThrows(DataLoadingException.class, () -> new RouteDAO().loadRouteData(file));
+	}
+
+	@Test
+	void rejectsRoutesWithABadTime() throws IOException {
+
+		Path file = corrupt("mini_routes.xml", "<DepartureTime>13:40<", "<DepartureTime>25:40<");
+		assertThrows(DataLoadingException.class, () -> new RouteDAO().loadRouteData(file));
+	}
+
+	@Test
+	void rejectsMissingFiles() {
+
+		Path missing = dir.resolve("missing");
+		assertThrows(DataLoadingException.class, () -> new AircraftDAO().loadAircraftData(missing));
+		assertThrows(DataLoadingException.class, () -> new CrewDAO().loadCrewData(missing));
+		assertThrows(DataLoadingException.class, () -> new RouteDAO().loadRouteData(missing));
+	}
+
+}